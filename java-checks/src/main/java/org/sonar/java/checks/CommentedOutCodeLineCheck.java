@@ -29,6 +29,7 @@ import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.java.ast.visitors.JavaAstCheck;
+import org.sonar.java.ast.visitors.TokenOnlyVisitor;
 import org.sonar.squid.recognizer.CodeRecognizer;
 
 import java.util.Collections;
@@ -36,7 +37,7 @@ import java.util.List;
 
 @Rule(key = "CommentedOutCodeLine", priority = Priority.MAJOR)
 @BelongsToProfile(title = "Sonar way", priority = Priority.MAJOR)
-public class CommentedOutCodeLineCheck extends JavaAstCheck implements AstAndTokenVisitor {
+public class CommentedOutCodeLineCheck extends JavaAstCheck implements AstAndTokenVisitor, TokenOnlyVisitor {
 
   private static final double THRESHOLD = 0.9;
 
@@ -27,7 +27,6 @@ import org.sonar.java.bytecode.visitor.BytecodeVisitor;
 import org.sonar.squid.api.CheckMessage;
 import org.sonar.squid.api.SourceClass;
 import org.sonar.squid.api.SourceFile;
-import org.sonar.squid.measures.Metric;
 
 @Rule(key = "MaximumInheritanceDepth", priority = Priority.MAJOR)
 public class DITCheck extends BytecodeVisitor {
@@ -39,9 +38,9 @@ public class DITCheck extends BytecodeVisitor {
 
   @Override
   public void visitClass(AsmClass asmClass) {
-    SourceClass sourceClass = getSourceClass(asmClass);
-    int dit = sourceClass.getInt(Metric.DIT);
+    int dit = getClassHierarchy().getDepthOfInheritance(asmClass);
     if (dit > max) {
+      SourceClass sourceClass = getSourceClass(asmClass);
       CheckMessage message = new CheckMessage(this, "This class has " + dit + " parents which is greater than " + max + " authorized.");
       message.setLine(sourceClass.getStartAtLine());
       message.setCost(dit - max);
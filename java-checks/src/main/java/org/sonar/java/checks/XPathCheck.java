@@ -56,4 +56,12 @@ public class XPathCheck extends AbstractXPathCheck<JavaGrammar> {
     return message;
   }
 
+  /**
+   * Distinguishes instances of this check in profiling report.
+   */
+  @Override
+  public String toString() {
+    return xpathQuery;
+  }
+
 }
@@ -26,6 +26,8 @@ import org.sonar.squid.api.SourceFile;
 
 import java.io.File;
 
+import static org.fest.assertions.Assertions.assertThat;
+
 public class XPathCheckTest {
 
   private XPathCheck check = new XPathCheck();
@@ -41,4 +43,11 @@ public class XPathCheckTest {
         .noMore();
   }
 
+  @Test
+  public void should_be_described_by_query() {
+    check.xpathQuery = "//IDENTIFIER";
+
+    assertThat(check.toString()).isEqualTo("//IDENTIFIER");
+  }
+
 }
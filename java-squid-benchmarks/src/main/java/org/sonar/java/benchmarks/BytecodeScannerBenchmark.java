@@ -0,0 +1,103 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.ast.AstScanner;
+import org.sonar.java.bytecode.BytecodeScanner;
+import org.sonar.java.bytecode.visitor.DITVisitor;
+import org.sonar.java.bytecode.visitor.DependenciesVisitor;
+import org.sonar.java.bytecode.visitor.DependencyGraph;
+import org.sonar.java.bytecode.visitor.LCOM4Visitor;
+import org.sonar.java.bytecode.visitor.NOCVisitor;
+import org.sonar.java.bytecode.visitor.RFCVisitor;
+import org.sonar.squid.indexer.SquidIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan of bytecode of synthetic corpus with same visitors as {@link org.sonar.java.JavaSquid}, so one operation is analysis of one class file
+ * (without nested and anonymous classes). Sources are scanned before each operation, because bytecode scanner adds results to the same index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BytecodeScannerBenchmark {
+
+  @Param({"1"})
+  public int parallelism;
+
+  private Corpus corpus;
+  private File classesDir;
+  private SquidIndex index;
+
+  @Setup
+  public void setUp(Corpus corpus) throws IOException {
+    corpus.checkSynthetic();
+    this.corpus = corpus;
+    classesDir = new File(corpus.getTempDir(), "classes");
+    classesDir.mkdirs();
+    SyntheticCorpus.compile(corpus.getFiles(), classesDir);
+  }
+
+  @Setup(Level.Invocation)
+  public void scanSources() {
+    AstScanner astScanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8));
+    astScanner.scan(corpus.getInputFiles());
+    index = (SquidIndex) astScanner.getIndex();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SyntheticCorpus.FILES)
+  public DependencyGraph scan() {
+    DependencyGraph graph = new DependencyGraph();
+    BytecodeScanner bytecodeScanner = new BytecodeScanner(index);
+    bytecodeScanner.setParallelism(parallelism);
+    bytecodeScanner.accept(new DITVisitor());
+    bytecodeScanner.accept(new RFCVisitor());
+    bytecodeScanner.accept(new NOCVisitor());
+    bytecodeScanner.accept(new LCOM4Visitor(Collections.<String> emptySet()));
+    bytecodeScanner.accept(new DependenciesVisitor(graph));
+    bytecodeScanner.scan(Collections.singleton(classesDir));
+    return graph;
+  }
+
+}
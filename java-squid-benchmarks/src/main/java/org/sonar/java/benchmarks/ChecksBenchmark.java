@@ -0,0 +1,97 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.resources.InputFile;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.ast.AstScanner;
+import org.sonar.java.ast.api.JavaGrammar;
+import org.sonar.java.checks.CommentedOutCodeLineCheck;
+import org.sonar.java.checks.SnippetCheckDisabled;
+import org.sonar.java.checks.XPathCheck;
+import org.sonar.squid.api.SourceCodeSearchEngine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan of synthetic corpus with one of heavy checks, so one operation is analysis of one file.
+ * Cost of a check is the difference with results for "None".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChecksBenchmark {
+
+  @Param({"None", "CommentedOutCodeLine", "Snippet", "XPath"})
+  public String check;
+
+  private List<InputFile> inputFiles;
+
+  @Setup
+  public void setUp(Corpus corpus) {
+    corpus.checkSynthetic();
+    inputFiles = corpus.getInputFiles();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SyntheticCorpus.FILES)
+  public SourceCodeSearchEngine scan() {
+    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), createChecks());
+    scanner.scan(inputFiles);
+    return scanner.getIndex();
+  }
+
+  @SuppressWarnings("unchecked")
+  private SquidAstVisitor<JavaGrammar>[] createChecks() {
+    if ("CommentedOutCodeLine".equals(check)) {
+      return new SquidAstVisitor[] {new CommentedOutCodeLineCheck()};
+    } else if ("Snippet".equals(check)) {
+      SnippetCheckDisabled snippetCheck = new SnippetCheckDisabled();
+      snippetCheck.dontExample1 = "result = result * 3;";
+      snippetCheck.doExample1 = "result *= 3;";
+      return new SquidAstVisitor[] {snippetCheck};
+    } else if ("XPath".equals(check)) {
+      XPathCheck xpathCheck = new XPathCheck();
+      xpathCheck.xpathQuery = "//ifStatement[not(.//block)]";
+      return new SquidAstVisitor[] {xpathCheck};
+    }
+    return new SquidAstVisitor[0];
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Lookup of resources in a classpath of many JAR files, as done for each class referenced from bytecode of project.
+ * One operation is lookup of all classes of given JAR files, in random order, and of the same number of missing classes,
+ * e.g. classes of project itself. By default libraries of JDK are used, i.e. large dependency classpath.
+ * {@link #indexed()} measures {@link SquidClassLoader}, which looks up index of content of JAR files,
+ * whereas {@link #chain()} measures probing of each JAR file in order of classpath, as was done before introduction of this index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClassLoaderBenchmark {
+
+  /**
+   * JAR files separated by {@link File#pathSeparator}, empty to use libraries of JDK.
+   */
+  @Param({""})
+  public String libraries;
+
+  private List<String> resourceNames;
+  private SquidClassLoader classLoader;
+  private List<SquidClassLoader> chain;
+
+  @Setup
+  public void setUp() throws IOException {
+    String path = "".equals(libraries) ? System.getProperty("sun.boot.class.path") : libraries;
+    List<File> files = Lists.newArrayList();
+    resourceNames = Lists.newArrayList();
+    for (String fileName : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(path)) {
+      File file = new File(fileName);
+      if (file.isFile() && fileName.endsWith(".jar")) {
+        files.add(file);
+        addResourceNames(file);
+      }
+    }
+    int numberOfClasses = resourceNames.size();
+    for (int i = 0; i < numberOfClasses; i++) {
+      resourceNames.add("missing/" + resourceNames.get(i));
+    }
+    Collections.shuffle(resourceNames, new Random(1));
+
+    classLoader = new SquidClassLoader(files);
+    chain = Lists.newArrayList();
+    for (File file : files) {
+      // Class loader with a single JAR file probes it as JAR loaders were probed one after another
+      chain.add(new SquidClassLoader(ImmutableList.of(file)));
+    }
+  }
+
+  private void addResourceNames(File file) throws IOException {
+    JarFile jarFile = new JarFile(file);
+    try {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (name.endsWith(".class")) {
+          resourceNames.add(name);
+        }
+      }
+    } finally {
+      jarFile.close();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    classLoader.close();
+    for (SquidClassLoader loader : chain) {
+      loader.close();
+    }
+  }
+
+  /**
+   * Resources are looked up with {@link SquidClassLoader#findResource(String)}, because
+   * {@link ClassLoader#getResource(String)} would delegate to bootstrap class loader first.
+   */
+  @Benchmark
+  public int indexed() {
+    int found = 0;
+    for (String resourceName : resourceNames) {
+      if (classLoader.findResource(resourceName) != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  public int chain() {
+    int found = 0;
+    for (String resourceName : resourceNames) {
+      for (SquidClassLoader loader : chain) {
+        if (loader.findResource(resourceName) != null) {
+          found++;
+          break;
+        }
+      }
+    }
+    return found;
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
+import org.sonar.java.bytecode.asm.ConcurrentAsmClassProvider;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Loading of all classes of libraries, as done for dependencies of project during scan of bytecode, so one operation is loading of
+ * all classes of given JAR files with empty cache. By default libraries of JDK are used, i.e. large dependency classpath.
+ * Level {@link DETAIL_LEVEL#STRUCTURE_AND_CALLS} parses code of methods, so can be used as a reference for level {@link DETAIL_LEVEL#STRUCTURE},
+ * which is used for classes from libraries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClassProviderBenchmark {
+
+  /**
+   * JAR files separated by {@link File#pathSeparator}, empty to use libraries of JDK.
+   */
+  @Param({""})
+  public String libraries;
+
+  @Param({"STRUCTURE", "STRUCTURE_AND_CALLS"})
+  public DETAIL_LEVEL level;
+
+  private List<File> files;
+  private List<String> internalNames;
+
+  @Setup
+  public void setUp() throws IOException {
+    String path = "".equals(libraries) ? System.getProperty("sun.boot.class.path") : libraries;
+    files = Lists.newArrayList();
+    internalNames = Lists.newArrayList();
+    for (String fileName : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(path)) {
+      File file = new File(fileName);
+      if (file.isFile() && fileName.endsWith(".jar")) {
+        files.add(file);
+        addInternalNames(file);
+      }
+    }
+  }
+
+  private void addInternalNames(File file) throws IOException {
+    JarFile jarFile = new JarFile(file);
+    try {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (name.endsWith(".class")) {
+          internalNames.add(name.substring(0, name.length() - ".class".length()));
+        }
+      }
+    } finally {
+      jarFile.close();
+    }
+  }
+
+  @Benchmark
+  public ConcurrentAsmClassProvider load() {
+    SquidClassLoader classLoader = (SquidClassLoader) ClassLoaderBuilder.create(files);
+    ConcurrentAsmClassProvider classProvider = new ConcurrentAsmClassProvider(classLoader);
+    for (String internalName : internalNames) {
+      classProvider.getClass(internalName, level);
+    }
+    classLoader.close();
+    return classProvider;
+  }
+
+}
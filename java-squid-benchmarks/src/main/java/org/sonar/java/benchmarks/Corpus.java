@@ -0,0 +1,113 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.sonar.api.resources.InputFile;
+import org.sonar.api.resources.InputFileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Source files shared by all threads of a benchmark: {@link SyntheticCorpus} by default,
+ * or real-world sources from directory given by parameter "sources".
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+
+  /**
+   * Directory with real-world sources, empty to use synthetic corpus.
+   */
+  @Param({""})
+  public String sources;
+
+  private File tempDir;
+  private File baseDir;
+  private List<File> files;
+  private List<String> contents;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    tempDir = Files.createTempDir();
+    if (isSynthetic()) {
+      baseDir = new File(tempDir, "src");
+      files = SyntheticCorpus.generate(baseDir);
+    } else {
+      baseDir = new File(sources);
+      files = Lists.newArrayList(FileUtils.listFiles(baseDir, new String[] {"java"}, true));
+      Collections.sort(files);
+      Preconditions.checkState(!files.isEmpty(), "No sources found in " + baseDir);
+    }
+    contents = Lists.newArrayList();
+    for (File file : files) {
+      contents.add(Files.toString(file, Charsets.UTF_8));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(tempDir);
+  }
+
+  public boolean isSynthetic() {
+    return "".equals(sources);
+  }
+
+  /**
+   * Benchmarks, which process whole corpus in one operation, report number of operations per {@link SyntheticCorpus#FILES} files,
+   * so only synthetic corpus is allowed for them.
+   */
+  public void checkSynthetic() {
+    Preconditions.checkState(isSynthetic(), "This benchmark can be executed only on synthetic corpus");
+  }
+
+  /**
+   * Directory, which can be used to store temporary files, and which will be deleted at the end of trial.
+   */
+  public File getTempDir() {
+    return tempDir;
+  }
+
+  public List<File> getFiles() {
+    return files;
+  }
+
+  public List<InputFile> getInputFiles() {
+    return InputFileUtils.create(baseDir, files);
+  }
+
+  public String getContent(int index) {
+    return contents.get(index % contents.size());
+  }
+
+}
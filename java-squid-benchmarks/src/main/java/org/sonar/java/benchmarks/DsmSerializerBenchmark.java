@@ -0,0 +1,156 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.resources.JavaPackage;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.graph.Dsm;
+import org.sonar.graph.Edge;
+import org.sonar.plugins.java.bridges.DependencyIndex;
+import org.sonar.plugins.java.bridges.DsmSerializer;
+import org.sonar.plugins.java.bridges.ResourceIndex;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeEdge;
+import org.sonar.squid.api.SourceCodeEdgeUsage;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourcePackage;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of dependency matrix of synthetic project in dense and sparse formats, so one operation is serialization of whole matrix.
+ * Benchmark "write" streams matrix without keeping it in memory, whereas "serialize" builds string as required for measure,
+ * so size of output is reflected by "gc.alloc.rate.norm" ({@code -prof gc}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DsmSerializerBenchmark {
+
+  /**
+   * Number of packages.
+   */
+  @Param({"500", "2000"})
+  public int dimension;
+
+  /**
+   * Average number of packages used by each package.
+   */
+  @Param({"5"})
+  public int dependencies;
+
+  @Param({"false", "true"})
+  public boolean sparse;
+
+  private Dsm<SourceCode> dsm;
+  private final DependencyIndex dependencyIndex = new DependencyIndex();
+  private final ResourceIndex resourceIndex = new ResourceIndex();
+
+  @Setup
+  public void setUp() {
+    List<SourceCode> packages = Lists.newArrayList();
+    for (int i = 0; i < dimension; i++) {
+      SourceCode squidPackage = new SourcePackage("org/example/package" + i);
+      JavaPackage sonarPackage = new JavaPackage("org.example.package" + i);
+      sonarPackage.setId(i);
+      resourceIndex.put(squidPackage, sonarPackage);
+      packages.add(squidPackage);
+    }
+
+    DirectedGraph<SourceCode, SourceCodeEdge> graph = new DirectedGraph<SourceCode, SourceCodeEdge>();
+    Random random = new Random(0);
+    long dependencyId = 0;
+    for (SourceCode from : packages) {
+      for (int i = 0; i < dependencies; i++) {
+        SourceCode to = packages.get(random.nextInt(dimension));
+        if (from != to && !graph.hasEdge(from, to)) {
+          SourceCodeEdge edge = new SourceCodeEdge(from, to, SourceCodeEdgeUsage.USES);
+          edge.addRootEdge(new SourceCodeEdge(new SourceFile(from.getKey() + "/File"), to, SourceCodeEdgeUsage.USES));
+          graph.addEdge(edge);
+          Dependency dependency = new Dependency(resourceIndex.get(from), resourceIndex.get(to));
+          dependency.setId(dependencyId++);
+          dependencyIndex.put(edge, dependency);
+        }
+      }
+    }
+    dsm = new Dsm<SourceCode>(graph, packages, Collections.<Edge> emptySet());
+  }
+
+  @Benchmark
+  public long write() throws IOException {
+    CountingWriter writer = new CountingWriter();
+    DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex, writer, sparse);
+    return writer.count;
+  }
+
+  @Benchmark
+  public String serialize() {
+    return DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex, sparse);
+  }
+
+  private static class CountingWriter extends Writer {
+    long count;
+
+    @Override
+    public void write(char[] buffer, int offset, int length) {
+      count += length;
+    }
+
+    @Override
+    public void write(int c) {
+      count++;
+    }
+
+    @Override
+    public void write(String str) {
+      count += str.length();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+}
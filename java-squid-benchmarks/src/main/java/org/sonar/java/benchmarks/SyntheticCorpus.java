@@ -0,0 +1,273 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates Java sources for benchmarks. Result depends only on the number of a file, so it is the same from run to run
+ * and from release to release, as long as this class is not modified.
+ * <p>
+ * Sources contain everything, which is interesting for analysis: comments, commented-out code, NOSONAR, all kinds of literals,
+ * statements, anonymous and nested classes, accessors, inheritance, dependencies between classes of different packages,
+ * and some classes with a lot of fields and methods.
+ * </p>
+ */
+public final class SyntheticCorpus {
+
+  public static final int FILES = 64;
+  private static final int PACKAGES = 8;
+  private static final long SEED = 20121015L;
+
+  private final int number;
+  private final Random random;
+  private final StringBuilder sb = new StringBuilder();
+  private final int fields;
+
+  private SyntheticCorpus(int number) {
+    this.number = number;
+    this.random = new Random(SEED + number);
+    // Every eighth class is wide
+    this.fields = number % 8 == 7 ? 40 : 1 + random.nextInt(5);
+  }
+
+  /**
+   * Writes {@link #FILES} source files into given directory.
+   *
+   * @return written files
+   */
+  public static List<File> generate(File dir) throws IOException {
+    List<File> files = Lists.newArrayList();
+    for (int i = 0; i < FILES; i++) {
+      File file = new File(dir, packageName(i).replace('.', '/') + "/" + className(i) + ".java");
+      Files.createParentDirs(file);
+      Files.write(new SyntheticCorpus(i).generateClass(), file, Charsets.UTF_8);
+      files.add(file);
+    }
+    return files;
+  }
+
+  /**
+   * Compiles given files into given directory.
+   */
+  public static void compile(List<File> files, File classesDir) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("Java compiler is not available, benchmarks must be executed using JDK");
+    }
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, Charsets.UTF_8);
+    try {
+      List<String> options = Lists.newArrayList("-g", "-source", "1.6", "-target", "1.6", "-nowarn", "-d", classesDir.getAbsolutePath());
+      if (!compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjectsFromFiles(files)).call()) {
+        throw new IllegalStateException("Unable to compile synthetic corpus");
+      }
+    } finally {
+      fileManager.close();
+    }
+  }
+
+  private static String packageName(int number) {
+    return "bench.p" + (number % PACKAGES);
+  }
+
+  private static String className(int number) {
+    return "C" + number;
+  }
+
+  private static String qualifiedClassName(int number) {
+    return packageName(number) + "." + className(number);
+  }
+
+  private String generateClass() {
+    line("/*");
+    line(" * Synthetic source file for benchmarks");
+    line(" * Copyright (C) 2012 SonarSource");
+    line(" */");
+    line("package " + packageName(number) + ";");
+    line("");
+    line("import java.util.ArrayList;");
+    line("import java.util.List;");
+    line("");
+    line("/**");
+    line(" * Class number " + number + ".");
+    line(" */");
+    String superClass = number >= PACKAGES && number % 3 != 0 ? " extends " + qualifiedClassName(number - PACKAGES) : "";
+    line("public class " + className(number) + superClass + " {");
+    line("");
+    line("  private static final long SEED = " + random.nextInt(Integer.MAX_VALUE) + "L;");
+    line("  private static final String NAME = \"" + className(number) + "\\t\\\"quoted\\\"\";");
+    line("  private int counter;");
+    line("  private final List<String> values = new ArrayList<String>();");
+    for (int i = 0; i < fields; i++) {
+      line("  private int field" + i + " = " + i + ";");
+    }
+    line("");
+    line("  public " + className(number) + "() {");
+    line("    counter = NAME.length() + (int) SEED;");
+    line("  }");
+    line("");
+    line("  public int getCounter() {");
+    line("    return counter;");
+    line("  }");
+    line("");
+    line("  public void setCounter(int counter) {");
+    line("    this.counter = counter;");
+    line("  }");
+    line("");
+    method("compute");
+    int methods = fields > 10 ? fields : 2 + random.nextInt(6);
+    for (int i = 0; i < methods; i++) {
+      method("method" + i);
+    }
+    line("  private static class Nested {");
+    line("    private int value;");
+    line("");
+    line("    int twice() {");
+    line("      return value * 2;");
+    line("    }");
+    line("  }");
+    line("");
+    line("}");
+    return sb.toString();
+  }
+
+  private void method(String name) {
+    line("  /**");
+    line("   * Method " + name + ".");
+    line("   */");
+    line("  public int " + name + "(int value) {");
+    line("    int result = value;");
+    int statements = 3 + random.nextInt(8);
+    for (int i = 0; i < statements; i++) {
+      statement();
+    }
+    line("    return result;");
+    line("  }");
+    line("");
+  }
+
+  private void statement() {
+    switch (random.nextInt(14)) {
+      case 0:
+        line("    for (int k = 0; k < " + random.nextInt(100) + "; k++) {");
+        line("      result += k * 0x1F;");
+        line("    }");
+        break;
+      case 1:
+        line("    while (result > 1000) {");
+        line("      result /= 2;");
+        line("    }");
+        break;
+      case 2:
+        line("    switch (result % 4) {");
+        line("      case 0:");
+        line("        result++;");
+        line("        break;");
+        line("      case 1:");
+        line("        result--;");
+        line("        break;");
+        line("      default:");
+        line("        result ^= 07;");
+        line("    }");
+        break;
+      case 3:
+        line("    try {");
+        line("      result = Integer.parseInt(\"\" + result) + 0xCAFEL > 0 ? 1 : 0;");
+        line("    } catch (NumberFormatException e) {");
+        line("      result = -1;");
+        line("    } finally {");
+        line("      counter++;");
+        line("    }");
+        break;
+      case 4:
+        line("    if (result > 10 && value < 100L) {");
+        line("      result = (int) (result * 1.5e0);");
+        line("    } else if (result < -10 || value == 0) {");
+        line("      result = (int) (result + 2.5f + .5d);");
+        line("    } else {");
+        line("      result = (int) (result - 0x1p3);");
+        line("    }");
+        break;
+      case 5:
+        line("    {");
+        line("      String s = \"text\\n\" + result + 'c' + '\\'';");
+        line("      result += s.length();");
+        line("    }");
+        break;
+      case 6:
+        line("    result += new " + qualifiedClassName(random.nextInt(FILES)) + "().getCounter();");
+        break;
+      case 7:
+        line("    // result = result * 2;");
+        line("    // if (result > 0) {");
+        line("    //   result--;");
+        line("    // }");
+        line("    result = result * 3;");
+        break;
+      case 8:
+        line("    result = result - 1; // NOSONAR");
+        break;
+      case 9:
+        line("    {");
+        line("      Runnable runnable = new Runnable() {");
+        line("        public void run() {");
+        line("          counter++;");
+        line("        }");
+        line("      };");
+        line("      runnable.run();");
+        line("    }");
+        break;
+      case 10:
+        line("    /* Iterate over array */");
+        line("    for (int item : new int[] {1, 2, 3}) {");
+        line("      result += item;");
+        line("    }");
+        break;
+      case 11:
+        line("    result = result > 0 ? result : -result;");
+        break;
+      case 12:
+        int field = random.nextInt(fields);
+        line("    result += field" + field + ";");
+        line("    field" + field + " = result;");
+        break;
+      default:
+        line("    values.add(String.valueOf(result));");
+        line("    result += values.size();");
+        break;
+    }
+  }
+
+  private void line(String line) {
+    sb.append(line).append('\n');
+  }
+
+}
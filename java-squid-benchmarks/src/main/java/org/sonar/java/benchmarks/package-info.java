@@ -0,0 +1,41 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+/**
+ * JMH benchmarks for lexer, parser, scanners, heavy checks and serialization of dependency matrix.
+ * <p>
+ * Module is built only with profile "benchmarks" and requires JDK 7:
+ * <pre>
+ * mvn install -Pbenchmarks
+ * java -jar java-squid-benchmarks/target/benchmarks.jar
+ * </pre>
+ * Number of files analysed per second is reported as throughput, and number of bytes allocated per file is reported
+ * as "gc.alloc.rate.norm" when profiler "gc" is enabled ({@code -prof gc}).
+ * By default all benchmarks use {@link org.sonar.java.benchmarks.SyntheticCorpus}, so results can be compared from release to release.
+ * Lexer and parser can be also measured on real-world sources: {@code java -jar benchmarks.jar "Lexer|Parser" -p sources=/path/to/sources}.
+ * </p>
+ * <p>
+ * Bytecode benchmarks require JDK 7, because ASM 3 is not able to read class files of JDK 8.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+package org.sonar.java.benchmarks;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
@@ -27,8 +27,11 @@ import com.sonar.sslr.squid.metrics.CounterVisitor;
 import org.sonar.api.resources.InputFile;
 import org.sonar.api.resources.InputFileUtils;
 import org.sonar.java.ast.AstScanner;
+import org.sonar.java.ast.SourceFileCache;
+import org.sonar.java.ast.SourceFileQuarantine;
 import org.sonar.java.ast.api.JavaGrammar;
 import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.lexer.JavaLexer;
 import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.ast.visitors.*;
 import org.sonar.squid.api.SourceCode;
@@ -65,7 +68,17 @@ public final class JavaAstScanner {
   public static AstScanner create(JavaConfiguration conf, SquidAstVisitor<JavaGrammar>... visitors) {
     final Parser<JavaGrammar> parser = JavaParser.create(conf);
 
-    AstScanner builder = new AstScanner(parser);
+    AstScanner builder = new AstScanner(parser, conf.getCharset());
+    builder.setParallelism(conf.getParallelism());
+    if (conf.getCacheDirectory() != null) {
+      builder.setCache(new SourceFileCache(conf.getCacheDirectory(), conf.getCharset() + " " + conf.isAnalysePropertyAccessors()));
+    }
+    // Lexer is used for files, which can't be parsed in time
+    builder.setLexer(JavaLexer.create(conf.getCharset()));
+    builder.setParseTimeout(conf.getParseTimeout());
+    if (conf.getQuarantineFile() != null) {
+      builder.setQuarantine(new SourceFileQuarantine(conf.getQuarantineFile()));
+    }
 
     /* Packages */
     builder.withSquidAstVisitor(new PackageVisitor());
@@ -87,38 +100,15 @@ public final class JavaAstScanner {
     builder.withSquidAstVisitor(new EndAtLineVisitor());
 
     /* Comments */
-    builder.setCommentAnalyser(
-        new CommentAnalyser() {
-          @Override
-          public boolean isBlank(String line) {
-            // Implementation of this method was taken from org.sonar.squid.text.Line#isThereBlankComment()
-            // TODO Godin: for some languages we use Character.isLetterOrDigit instead of Character.isWhitespace
-            for (int i = 0; i < line.length(); i++) {
-              char character = line.charAt(i);
-              if (!Character.isWhitespace(character) && character != '*' && character != '/') {
-                return false;
-              }
-            }
-            return true;
-          }
-
-          @Override
-          public String getContents(String comment) {
-            return comment.startsWith("//") ? comment.substring(2) : comment.substring(2, comment.length() - 2);
-          }
-        });
+    builder.setCommentAnalyser(new JavaCommentAnalyser());
 
     /* Metrics */
 
-    builder.withSquidAstVisitor(new LinesVisitor(conf.getCharset()));
+    builder.withSquidAstVisitor(new LinesVisitor());
 
     builder.withSquidAstVisitor(new LinesOfCodeVisitor());
     builder.withSquidAstVisitor(new CommentLinesVisitor());
-    builder.withSquidAstVisitor(CommentsVisitor.<JavaGrammar> builder()
-        .withBlankCommentMetric(JavaMetric.COMMENT_BLANK_LINES)
-        .withNoSonar(true)
-        .withIgnoreHeaderComment(true)
-        .build());
+    builder.withSquidAstVisitor(createCommentsVisitor());
     builder.withSquidAstVisitor(CounterVisitor.<JavaGrammar> builder()
         .setMetricDef(JavaMetric.STATEMENTS)
         .subscribeTo(
@@ -150,4 +140,63 @@ public final class JavaAstScanner {
     return builder;
   }
 
+  /**
+   * Creates scanner, which computes only metrics of files based on tokens and comments (lines, lines of code, comments, NOSONAR),
+   * and so able to skip parsing, when all given visitors implement {@link TokenOnlyVisitor}.
+   */
+  public static AstScanner createForTokens(JavaConfiguration conf, Collection<SquidAstVisitor<JavaGrammar>> visitors) {
+    AstScanner builder = new AstScanner(JavaParser.create(conf), conf.getCharset());
+    builder.setLexer(JavaLexer.create(conf.getCharset()));
+    builder.setParallelism(conf.getParallelism());
+    if (conf.getCacheDirectory() != null) {
+      builder.setCache(new SourceFileCache(conf.getCacheDirectory(), conf.getCharset().toString()));
+    }
+
+    builder.withSquidAstVisitor(new PackageVisitor());
+    builder.withSquidAstVisitor(new FileVisitor());
+
+    builder.setCommentAnalyser(new JavaCommentAnalyser());
+
+    builder.withSquidAstVisitor(new LinesVisitor());
+    builder.withSquidAstVisitor(new LinesOfCodeVisitor());
+    builder.withSquidAstVisitor(new CommentLinesVisitor());
+    builder.withSquidAstVisitor(createCommentsVisitor());
+
+    for (SquidAstVisitor<JavaGrammar> visitor : visitors) {
+      builder.withSquidAstVisitor(visitor);
+    }
+
+    return builder;
+  }
+
+  private static SquidAstVisitor<JavaGrammar> createCommentsVisitor() {
+    return CommentsVisitor.<JavaGrammar> builder()
+        .withBlankCommentMetric(JavaMetric.COMMENT_BLANK_LINES)
+        .withNoSonar(true)
+        .withIgnoreHeaderComment(true)
+        .build();
+  }
+
+  private static class JavaCommentAnalyser extends CommentAnalyser {
+
+    @Override
+    public boolean isBlank(String line) {
+      // Implementation of this method was taken from org.sonar.squid.text.Line#isThereBlankComment()
+      // TODO Godin: for some languages we use Character.isLetterOrDigit instead of Character.isWhitespace
+      for (int i = 0; i < line.length(); i++) {
+        char character = line.charAt(i);
+        if (!Character.isWhitespace(character) && character != '*' && character != '/') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public String getContents(String comment) {
+      return comment.startsWith("//") ? comment.substring(2) : comment.substring(2, comment.length() - 2);
+    }
+
+  }
+
 }
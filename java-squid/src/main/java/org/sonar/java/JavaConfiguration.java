@@ -21,6 +21,9 @@ package org.sonar.java;
 
 import com.google.common.collect.Sets;
 
+import javax.annotation.Nullable;
+
+import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Set;
 
@@ -29,6 +32,12 @@ public class JavaConfiguration {
   private final Charset charset;
   private final Set<String> fieldsToExcludeFromLcom4Calculation = Sets.newHashSet();
   private boolean analyzePropertyAccessors = true;
+  private int parallelism = 1;
+  private File cacheDirectory;
+  private boolean profiling = false;
+  private long parseTimeout = 0;
+  private File quarantineFile;
+  private File classSummaryCacheDirectory;
 
   public JavaConfiguration(Charset charset) {
     this.charset = charset;
@@ -54,4 +63,74 @@ public class JavaConfiguration {
     this.analyzePropertyAccessors = analyzePropertyAccessors;
   }
 
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @param parallelism number of threads to use for analysis
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  @Nullable
+  public File getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  /**
+   * @param cacheDirectory directory to store results of analysis of files between analyses, or null to disable caching
+   */
+  public void setCacheDirectory(@Nullable File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  public long getParseTimeout() {
+    return parseTimeout;
+  }
+
+  /**
+   * @param parseTimeout maximal time in milliseconds to parse one file, or 0 for no limit
+   */
+  public void setParseTimeout(long parseTimeout) {
+    this.parseTimeout = parseTimeout;
+  }
+
+  @Nullable
+  public File getQuarantineFile() {
+    return quarantineFile;
+  }
+
+  /**
+   * @param quarantineFile file to store list of files, which can't be parsed in time, between analyses, or null to disable quarantine
+   */
+  public void setQuarantineFile(@Nullable File quarantineFile) {
+    this.quarantineFile = quarantineFile;
+  }
+
+  @Nullable
+  public File getClassSummaryCacheDirectory() {
+    return classSummaryCacheDirectory;
+  }
+
+  /**
+   * @param classSummaryCacheDirectory directory to store summaries of classes from JAR files between analyses, which can be shared
+   *        between projects, or null to parse bytecode of libraries during each analysis
+   */
+  public void setClassSummaryCacheDirectory(@Nullable File classSummaryCacheDirectory) {
+    this.classSummaryCacheDirectory = classSummaryCacheDirectory;
+  }
+
+  public boolean isProfiling() {
+    return profiling;
+  }
+
+  /**
+   * @param profiling whether to measure callbacks of visitors and time of parsing of each file, which slows down analysis
+   */
+  public void setProfiling(boolean profiling) {
+    this.profiling = profiling;
+  }
+
 }
@@ -26,12 +26,13 @@ import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.resources.InputFile;
 import org.sonar.api.resources.InputFileUtils;
 import org.sonar.api.utils.TimeProfiler;
-import org.sonar.graph.DirectedGraph;
 import org.sonar.graph.DirectedGraphAccessor;
 import org.sonar.java.ast.AstScanner;
 import org.sonar.java.ast.visitors.FileLinesVisitor;
 import org.sonar.java.bytecode.BytecodeScanner;
+import org.sonar.java.bytecode.asm.ClassSummaryCache;
 import org.sonar.java.bytecode.visitor.*;
+import org.sonar.java.profiling.Profiler;
 import org.sonar.squid.api.*;
 import org.sonar.squid.indexer.QueryByType;
 import org.sonar.squid.indexer.SquidIndex;
@@ -48,9 +49,11 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
   private final SquidIndex squidIndex;
   private final AstScanner astScanner;
   private final BytecodeScanner bytecodeScanner;
-  private final DirectedGraph<SourceCode, SourceCodeEdge> graph = new DirectedGraph<SourceCode, SourceCodeEdge>();
+  private final DependencyGraph graph = new DependencyGraph();
+  private final Profiler profiler = new Profiler();
 
   private boolean bytecodeScanned = false;
+  private final int parallelism;
 
   @VisibleForTesting
   public JavaSquid(JavaConfiguration conf, CodeVisitor... visitors) {
@@ -59,20 +62,30 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
 
   public JavaSquid(JavaConfiguration conf, @Nullable FileLinesContextFactory fileLinesContextFactory, CodeVisitor... visitors) {
     astScanner = JavaAstScanner.create(conf);
+    parallelism = conf.getParallelism();
     if (fileLinesContextFactory != null) {
-      astScanner.accept(new FileLinesVisitor(fileLinesContextFactory, conf.getCharset()));
+      astScanner.accept(new FileLinesVisitor(fileLinesContextFactory));
     }
 
     // TODO unchecked cast
     squidIndex = (SquidIndex) astScanner.getIndex();
 
     bytecodeScanner = new BytecodeScanner(squidIndex);
+    bytecodeScanner.setParallelism(conf.getParallelism());
+    if (conf.getClassSummaryCacheDirectory() != null) {
+      bytecodeScanner.setClassSummaryCache(new ClassSummaryCache(conf.getClassSummaryCacheDirectory()));
+    }
     bytecodeScanner.accept(new DITVisitor());
     bytecodeScanner.accept(new RFCVisitor());
     bytecodeScanner.accept(new NOCVisitor());
     bytecodeScanner.accept(new LCOM4Visitor(conf.getFieldsToExcludeFromLcom4Calculation()));
     bytecodeScanner.accept(new DependenciesVisitor(graph));
 
+    if (conf.isProfiling()) {
+      astScanner.setProfiler(profiler);
+      bytecodeScanner.setProfiler(profiler);
+    }
+
     // External visitors (typically Check ones):
     for (CodeVisitor visitor : visitors) {
       astScanner.accept(visitor);
@@ -95,17 +108,21 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
   }
 
   private void scanSources(Collection<InputFile> sourceFiles) {
-    TimeProfiler profiler = new TimeProfiler(getClass()).start("Java AST scan");
+    TimeProfiler timeProfiler = new TimeProfiler(getClass()).start("Java AST scan");
+    Profiler.Phase phase = profiler.start("Java AST scan");
     astScanner.scan(sourceFiles);
-    profiler.stop();
+    phase.stop();
+    timeProfiler.stop();
   }
 
   private void scanBytecode(Collection<File> bytecodeFilesOrDirectories) {
     if (hasBytecode(bytecodeFilesOrDirectories)) {
-      TimeProfiler profiler = new TimeProfiler(getClass()).start("Java bytecode scan");
+      TimeProfiler timeProfiler = new TimeProfiler(getClass()).start("Java bytecode scan");
+      Profiler.Phase phase = profiler.start("Java bytecode scan");
       bytecodeScanner.scan(bytecodeFilesOrDirectories);
       bytecodeScanned = true;
-      profiler.stop();
+      phase.stop();
+      timeProfiler.stop();
     } else {
       bytecodeScanned = false;
     }
@@ -129,11 +146,25 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
     return bytecodeScanned;
   }
 
+  /**
+   * Gives access to measurements of phases of analysis, which include callbacks of visitors only if {@link JavaConfiguration#isProfiling()}.
+   */
+  public Profiler getProfiler() {
+    return profiler;
+  }
+
+  /**
+   * @return number of threads, which can be used for analysis, as given by {@link JavaConfiguration#getParallelism()}
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
   public SquidIndex getIndex() {
     return squidIndex;
   }
 
-  public DirectedGraph<SourceCode, SourceCodeEdge> getGraph() {
+  public DependencyGraph getGraph() {
     return graph;
   }
 
@@ -19,25 +19,47 @@
  */
 package org.sonar.java.ast;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.sonar.sslr.api.*;
+import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.LexerException;
 import com.sonar.sslr.impl.Parser;
 import com.sonar.sslr.impl.ast.AstWalker;
 import com.sonar.sslr.impl.events.ExtendedStackTrace;
 import com.sonar.sslr.squid.SquidAstVisitor;
+import com.sonar.sslr.squid.metrics.CommentsVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.resources.InputFile;
+import org.sonar.check.RuleProperty;
 import org.sonar.java.ast.api.JavaGrammar;
+import org.sonar.java.ast.api.JavaKeyword;
 import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.api.JavaPunctuator;
+import org.sonar.java.ast.parser.ParsingInterruptedException;
+import org.sonar.java.ast.visitors.CacheableVisitor;
+import org.sonar.java.ast.visitors.FileContent;
+import org.sonar.java.ast.visitors.TokenOnlyVisitor;
 import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.java.profiling.Profiler;
 import org.sonar.squid.api.*;
 import org.sonar.squid.indexer.SquidIndex;
 
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Replacement for {@link com.sonar.sslr.squid.AstScanner<JavaGrammar>}.
@@ -50,16 +72,23 @@ public class AstScanner {
   private final List<SquidAstVisitor<JavaGrammar>> visitors = Lists.newArrayList();
   private final List<AuditListener> auditListeners = Lists.newArrayList();
   private final Parser<JavaGrammar> parser;
-  private final Parser<JavaGrammar> parserDebug;
+  private Parser<JavaGrammar> parserDebug;
+  private final Charset charset;
+  private Lexer lexer;
   private CommentAnalyser commentAnalyser;
+  private int parallelism = 1;
+  private SourceFileCache cache;
+  private Profiler profiler;
+  private long parseTimeoutMillis = 0;
+  private SourceFileQuarantine quarantine;
+  private final LastFileVisitor lastFileVisitor = new LastFileVisitor();
 
-  public AstScanner(Parser<JavaGrammar> parser) {
+  /**
+   * @param charset must be the same as used by parser
+   */
+  public AstScanner(Parser<JavaGrammar> parser, Charset charset) {
     this.parser = parser;
-    this.parserDebug = Parser.builder(parser)
-        .setParsingEventListeners()
-        .setExtendedStackTrace(new ExtendedStackTrace())
-        .setRecognictionExceptionListener(this.auditListeners.toArray(new AuditListener[this.auditListeners.size()]))
-        .build();
+    this.charset = charset;
   }
 
   public void scan(Collection<InputFile> files) {
@@ -68,6 +97,7 @@ public class AstScanner {
     project.setSourceCodeIndexer(index);
     VisitorContext context = new VisitorContext(project);
     context.setGrammar(parser.getGrammar());
+    context.setCharset(charset);
     context.setCommentAnalyser(commentAnalyser);
 
     for (SquidAstVisitor<JavaGrammar> visitor : visitors) {
@@ -75,65 +105,325 @@ public class AstScanner {
       visitor.init();
     }
 
-    AstWalker astWalker = new AstWalker(visitors);
-
-    for (InputFile inputFile : files) {
-      File file = inputFile.getFile();
-      context.setFile(file);
-      context.setInputFile(inputFile);
+    WalkedVisitors walkedVisitors = new WalkedVisitors();
+    for (SquidAstVisitor<JavaGrammar> visitor : visitors) {
+      walkedVisitors.add(profiler == null ? visitor : ProfilingAstVisitor.wrap(visitor, profiler), isTokenOnly(visitor));
+    }
+    if (cache != null) {
+      lastFileVisitor.setContext(context);
+      walkedVisitors.add(lastFileVisitor, true);
+    }
+    boolean tokensOnly = lexer != null && walkedVisitors.isTokenOnly();
 
-      try {
-        AstNode ast = parser.parse(file);
-        astWalker.walkAndVisit(ast);
-      } catch (RecognitionException e) {
-        LOG.error("Unable to parse source file : " + file.getAbsolutePath());
+    Collection<InputFile> filesToParse = files;
+    Set<InputFile> cachedFiles = Collections.emptySet();
+    if (cache != null) {
+      cache.start(getVisitorsConfiguration());
+      filesToParse = Lists.newArrayList();
+      cachedFiles = Sets.newIdentityHashSet();
+      for (InputFile inputFile : files) {
+        if (cache.contains(inputFile)) {
+          cachedFiles.add(inputFile);
+        } else {
+          filesToParse.add(inputFile);
+        }
+      }
+      LOG.info("{} source files to be analyzed, {} unchanged", filesToParse.size(), cachedFiles.size());
+    }
 
-        try {
-          if (e.isToRetryWithExtendStackTrace()) {
-            try {
-              parserDebug.parse(file);
-            } catch (RecognitionException re) {
-              e = re;
-            } catch (Exception e2) {
-              LOG.error("Unable to get an extended stack trace on file : " + file.getAbsolutePath(), e2);
-            }
+    Set<InputFile> quarantinedFiles = Collections.emptySet();
+    if (quarantine != null && !tokensOnly) {
+      quarantine.start();
+      List<InputFile> notQuarantinedFiles = Lists.newArrayList();
+      quarantinedFiles = Sets.newIdentityHashSet();
+      for (InputFile inputFile : filesToParse) {
+        if (quarantine.contains(inputFile)) {
+          quarantinedFiles.add(inputFile);
+        } else {
+          notQuarantinedFiles.add(inputFile);
+        }
+      }
+      filesToParse = notQuarantinedFiles;
+      if (!quarantinedFiles.isEmpty()) {
+        LOG.warn("{} source files will not be parsed, because previous analysis was unable to parse them in time", quarantinedFiles.size());
+      }
+    }
 
-            // Log the recognition exception
-            LOG.error(e.getMessage());
-          } else {
-            LOG.error(e.getMessage(), e);
+    Watchdog watchdog = !tokensOnly && parseTimeoutMillis > 0 ? new Watchdog(parseTimeoutMillis) : null;
+    FileParser fileParser = new FileParser(parser, profiler, watchdog);
+    ParallelParser parallelParser = !tokensOnly && parallelism > 1 ? new ParallelParser(fileParser, charset, filesToParse, parallelism) : null;
+    try {
+      for (InputFile inputFile : files) {
+        if (tokensOnly) {
+          if (!cachedFiles.contains(inputFile) || !restoreFile(context, inputFile)) {
+            lexFile(context, walkedVisitors, inputFile, true);
           }
+        } else if (quarantinedFiles.contains(inputFile)) {
+          lexFile(context, walkedVisitors, inputFile, false);
+        } else if (!cachedFiles.contains(inputFile)) {
+          scanFile(context, walkedVisitors, fileParser, parallelParser, inputFile);
+        } else if (!restoreFile(context, inputFile)) {
+          scanFile(context, walkedVisitors, fileParser, null, inputFile);
+        }
+      }
+    } finally {
+      if (parallelParser != null) {
+        parallelParser.stop();
+      }
+      if (watchdog != null) {
+        watchdog.stop();
+      }
+    }
 
-          // Process the exception
-          for (SquidAstVisitor<? extends Grammar> visitor : visitors) {
-            visitor.visitFile(null);
-          }
+    if (cache != null) {
+      cache.stop();
+    }
+    if (quarantine != null && !tokensOnly) {
+      quarantine.stop();
+    }
 
-          for (AuditListener auditListener : auditListeners) {
-            auditListener.processRecognitionException(e);
-          }
+    for (SquidAstVisitor<JavaGrammar> visitor : visitors) {
+      visitor.destroy();
+    }
 
-          for (SquidAstVisitor<? extends Grammar> visitor : Iterables.reverse(visitors)) {
-            visitor.leaveFile(null);
-          }
+    SourceCodeTreeDecorator decorator = new SourceCodeTreeDecorator(project);
+    decorator.decorateWith(JavaMetric.values());
+    decorator.decorateWith(org.sonar.squid.measures.Metric.values());
+  }
 
+  private void scanFile(VisitorContext context, WalkedVisitors walkedVisitors, FileParser fileParser, @Nullable ParallelParser parallelParser,
+      InputFile inputFile) {
+    File file = inputFile.getFile();
+    context.setFile(file);
+    context.setInputFile(inputFile);
+
+    AstNode ast;
+    try {
+      ast = parallelParser == null ? fileParser.parse(file, context.getFileContent().getContent()) : parallelParser.next(context);
+    } catch (ParsingInterruptedException e) {
+      LOG.warn("Unable to parse source file in " + parseTimeoutMillis + " ms, so only lines and comments will be computed : " + file.getAbsolutePath());
+      if (quarantine != null) {
+        quarantine.add(inputFile);
+      }
+      if (lexer != null) {
+        lexFile(context, walkedVisitors, inputFile, false);
+      } else {
+        visitUnparsedFile();
+      }
+      return;
+    } catch (RecognitionException e) {
+      processRecognitionException(context, fileParser, e);
+      return;
+    } catch (Exception e) {
+      String errorMessage = "Sonar is unable to analyze file : '" + file.getAbsolutePath() + "'";
+      throw new AnalysisException(errorMessage, e);
+    }
+
+    try {
+      walkedVisitors.getWalker().walkAndVisit(ast);
+      if (cache != null) {
+        saveFile(inputFile, lastFileVisitor.sourceFile);
+      }
+    } catch (Exception e) {
+      String errorMessage = "Sonar is unable to analyze file : '" + file.getAbsolutePath() + "'";
+      throw new AnalysisException(errorMessage, e);
+    }
+  }
+
+  private void processRecognitionException(VisitorContext context, FileParser fileParser, RecognitionException e) {
+    File file = context.getFile();
+    LOG.error("Unable to parse source file : " + file.getAbsolutePath());
+
+    try {
+      // Parsing with extended stack trace takes even more time than failed parsing, so performed only on demand
+      if (e.isToRetryWithExtendStackTrace() && LOG.isDebugEnabled()) {
+        try {
+          new FileParser(getParserDebug(), null, fileParser.getWatchdog()).parse(file, context.getFileContent().getContent());
+        } catch (RecognitionException re) {
+          e = re;
         } catch (Exception e2) {
-          String errorMessage = "Sonar is unable to analyze file : '" + file.getAbsolutePath() + "'";
-          throw new AnalysisException(errorMessage, e);
+          LOG.error("Unable to get an extended stack trace on file : " + file.getAbsolutePath(), e2);
+        }
+
+        // Log the recognition exception
+        LOG.error(e.getMessage());
+      } else {
+        LOG.error(e.getMessage(), e);
+      }
+
+      // Process the exception
+      for (SquidAstVisitor<? extends Grammar> visitor : visitors) {
+        visitor.visitFile(null);
+      }
+
+      for (AuditListener auditListener : auditListeners) {
+        auditListener.processRecognitionException(e);
+      }
+
+      for (SquidAstVisitor<? extends Grammar> visitor : Lists.reverse(visitors)) {
+        visitor.leaveFile(null);
+      }
+
+    } catch (Exception e2) {
+      String errorMessage = "Sonar is unable to analyze file : '" + file.getAbsolutePath() + "'";
+      throw new AnalysisException(errorMessage, e);
+    }
+  }
+
+  private Parser<JavaGrammar> getParserDebug() {
+    if (parserDebug == null) {
+      parserDebug = Parser.builder(parser)
+          .setParsingEventListeners()
+          .setExtendedStackTrace(new ExtendedStackTrace())
+          .setRecognictionExceptionListener(auditListeners.toArray(new AuditListener[auditListeners.size()]))
+          .build();
+    }
+    return parserDebug;
+  }
+
+  /**
+   * Notifies about tokens only visitors, which are able to work without parsing, other visitors are notified as for file, which can't be parsed.
+   *
+   * @param cacheable whether results are complete and so can be cached
+   */
+  private void lexFile(VisitorContext context, WalkedVisitors walkedVisitors, InputFile inputFile, boolean cacheable) {
+    File file = inputFile.getFile();
+    context.setFile(file);
+    context.setInputFile(inputFile);
+
+    try {
+      List<Token> tokens = lex(context);
+      AstNode ast = createCompilationUnit(tokens);
+      for (AstVisitor visitor : walkedVisitors.all) {
+        visitor.visitFile(walkedVisitors.tokenOnly.contains(visitor) ? ast : null);
+      }
+      for (Token token : tokens) {
+        for (AstAndTokenVisitor visitor : walkedVisitors.tokens) {
+          visitor.visitToken(token);
         }
-      } catch (Exception e) {
-        String errorMessage = "Sonar is unable to analyze file : '" + file.getAbsolutePath() + "'";
-        throw new AnalysisException(errorMessage, e);
       }
+      for (AstVisitor visitor : Lists.reverse(walkedVisitors.all)) {
+        visitor.leaveFile(walkedVisitors.tokenOnly.contains(visitor) ? ast : null);
+      }
+      if (cache != null && cacheable) {
+        saveFile(inputFile, lastFileVisitor.sourceFile);
+      }
+    } catch (LexerException e) {
+      LOG.error("Unable to lex source file : " + file.getAbsolutePath(), e);
+      visitUnparsedFile();
+    } catch (Exception e) {
+      String errorMessage = "Sonar is unable to analyze file : '" + file.getAbsolutePath() + "'";
+      throw new AnalysisException(errorMessage, e);
     }
+  }
 
+  private void visitUnparsedFile() {
     for (SquidAstVisitor<JavaGrammar> visitor : visitors) {
-      visitor.destroy();
+      visitor.visitFile(null);
+    }
+    for (SquidAstVisitor<JavaGrammar> visitor : Lists.reverse(visitors)) {
+      visitor.leaveFile(null);
     }
+  }
 
-    SourceCodeTreeDecorator decorator = new SourceCodeTreeDecorator(project);
-    decorator.decorateWith(JavaMetric.values());
-    decorator.decorateWith(org.sonar.squid.measures.Metric.values());
+  private List<Token> lex(VisitorContext context) {
+    String content = context.getFileContent().getContent();
+    if (profiler == null) {
+      return lexer.lex(content);
+    }
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    try {
+      return lexer.lex(content);
+    } finally {
+      profiler.addFile(context.getFile(), startTime, startAllocatedBytes);
+    }
+  }
+
+  /**
+   * Creates root node, which contains only package declaration (if any) and end of file,
+   * so that visitors of files and packages are able to work without parsing.
+   */
+  private AstNode createCompilationUnit(List<Token> tokens) {
+    JavaGrammar grammar = parser.getGrammar();
+    AstNode compilationUnit = new AstNode(grammar.compilationUnit, "compilationUnit", tokens.get(0));
+    int i = 0;
+    // Keyword "package" can appear only in package declaration
+    while (i < tokens.size() && tokens.get(i).getType() != JavaKeyword.PACKAGE) {
+      i++;
+    }
+    if (i + 1 < tokens.size()) {
+      AstNode packageDeclaration = new AstNode(grammar.packageDeclaration, "packageDeclaration", tokens.get(i));
+      packageDeclaration.addChild(new AstNode(tokens.get(i)));
+      AstNode qualifiedIdentifier = new AstNode(grammar.qualifiedIdentifier, "qualifiedIdentifier", tokens.get(i + 1));
+      for (i++; i < tokens.size() - 1 && tokens.get(i).getType() != JavaPunctuator.SEMI; i++) {
+        qualifiedIdentifier.addChild(new AstNode(tokens.get(i)));
+      }
+      packageDeclaration.addChild(qualifiedIdentifier);
+      compilationUnit.addChild(packageDeclaration);
+    }
+    compilationUnit.addChild(new AstNode(tokens.get(tokens.size() - 1)));
+    return compilationUnit;
+  }
+
+  private static boolean isTokenOnly(SquidAstVisitor<JavaGrammar> visitor) {
+    // CommentsVisitor from SSLR Squid Bridge can't be marked, but needs only tokens
+    return visitor instanceof TokenOnlyVisitor || visitor instanceof CommentsVisitor;
+  }
+
+  private boolean restoreFile(VisitorContext context, InputFile inputFile) {
+    byte[] data = cache.read(inputFile);
+    if (data == null) {
+      return false;
+    }
+    context.setFile(inputFile.getFile());
+    context.setInputFile(inputFile);
+    try {
+      new SourceFileSerializer(visitors).deserialize(context, new DataInputStream(new ByteArrayInputStream(data)));
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Unable to restore results of analysis of file, so it will be analyzed : " + inputFile.getFile().getAbsolutePath(), e);
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to restore results of analysis of file, so it will be analyzed : " + inputFile.getFile().getAbsolutePath(), e);
+    }
+    return false;
+  }
+
+  private void saveFile(InputFile inputFile, SourceFile sourceFile) {
+    byte[] data;
+    try {
+      data = new SourceFileSerializer(visitors).serialize(sourceFile);
+    } catch (IOException e) {
+      LOG.warn("Unable to save results of analysis of file : " + inputFile.getFile().getAbsolutePath(), e);
+      return;
+    }
+    if (data != null) {
+      cache.write(inputFile, data);
+    }
+  }
+
+  /**
+   * Values of rule properties are part of configuration of checks.
+   */
+  private String getVisitorsConfiguration() {
+    StringBuilder sb = new StringBuilder();
+    for (SquidAstVisitor<JavaGrammar> visitor : visitors) {
+      sb.append(visitor.getClass().getName());
+      for (Class<?> visitorClass = visitor.getClass(); visitorClass != null; visitorClass = visitorClass.getSuperclass()) {
+        for (Field field : visitorClass.getDeclaredFields()) {
+          if (field.isAnnotationPresent(RuleProperty.class)) {
+            field.setAccessible(true);
+            try {
+              sb.append(' ').append(field.getName()).append('=').append(field.get(visitor));
+            } catch (IllegalAccessException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        }
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
   }
 
   public void withSquidAstVisitor(SquidAstVisitor<JavaGrammar> visitor) {
@@ -143,10 +433,61 @@ public class AstScanner {
     this.visitors.add(visitor);
   }
 
+  /**
+   * Sets number of threads used to parse files, visitors are notified sequentially and in order of files regardless of this value,
+   * so results of analysis do not depend on it. Parser should be thread-safe for values greater than 1.
+   */
+  public void setParallelism(int parallelism) {
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+    this.parallelism = parallelism;
+  }
+
   public SourceCodeSearchEngine getIndex() {
     return index;
   }
 
+  /**
+   * Enables skipping of files, which were not changed since previous analysis.
+   * Only visitors, which either produce results in tree of {@link SourceCode} or implement {@link CacheableVisitor}, are supported.
+   */
+  public void setCache(@Nullable SourceFileCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Enables analysis without parsing, when all visitors implement {@link TokenOnlyVisitor}.
+   * Otherwise files are parsed regardless of this value, and lexer is used only for files, which can't be parsed in time.
+   */
+  public void setLexer(@Nullable Lexer lexer) {
+    this.lexer = lexer;
+  }
+
+  /**
+   * Enables measurement of callbacks of visitors and of time of parsing of each file.
+   */
+  public void setProfiler(@Nullable Profiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * Limits time of parsing of each file. Visitors are notified about file, which exceeds this limit,
+   * as about file, which can't be parsed, except visitors implementing {@link TokenOnlyVisitor}, which are notified
+   * about its tokens, if {@link #setLexer(Lexer) lexer} was set.
+   *
+   * @param parseTimeoutMillis maximal time in milliseconds to parse one file, or 0 for no limit
+   */
+  public void setParseTimeout(long parseTimeoutMillis) {
+    Preconditions.checkArgument(parseTimeoutMillis >= 0, "parseTimeoutMillis must not be negative");
+    this.parseTimeoutMillis = parseTimeoutMillis;
+  }
+
+  /**
+   * Enables skipping of parsing of files, which exceeded {@link #setParseTimeout(long) time limit} during previous analysis.
+   */
+  public void setQuarantine(@Nullable SourceFileQuarantine quarantine) {
+    this.quarantine = quarantine;
+  }
+
   public void setCommentAnalyser(CommentAnalyser commentAnalyser) {
     this.commentAnalyser = commentAnalyser;
   }
@@ -157,4 +498,55 @@ public class AstScanner {
     }
   }
 
+  /**
+   * Visitors, which are notified about nodes of tree, in order of notification.
+   */
+  private static class WalkedVisitors {
+
+    private final List<AstVisitor> all = Lists.newArrayList();
+    /**
+     * Visitors, which are able to work on tokens without parsing.
+     */
+    private final Set<AstVisitor> tokenOnly = Sets.newIdentityHashSet();
+    private final List<AstAndTokenVisitor> tokens = Lists.newArrayList();
+    private AstWalker walker;
+
+    public void add(AstVisitor visitor, boolean isTokenOnly) {
+      all.add(visitor);
+      if (isTokenOnly) {
+        tokenOnly.add(visitor);
+        if (visitor instanceof AstAndTokenVisitor) {
+          tokens.add((AstAndTokenVisitor) visitor);
+        }
+      }
+      walker = null;
+    }
+
+    public boolean isTokenOnly() {
+      return tokenOnly.size() == all.size();
+    }
+
+    public AstWalker getWalker() {
+      if (walker == null) {
+        walker = new AstWalker(all);
+      }
+      return walker;
+    }
+
+  }
+
+  /**
+   * Gives access to file, which was visited last.
+   */
+  private static class LastFileVisitor extends SquidAstVisitor<JavaGrammar> {
+
+    private SourceFile sourceFile;
+
+    @Override
+    public void leaveFile(AstNode astNode) {
+      sourceFile = (SourceFile) getContext().peekSourceCode();
+    }
+
+  }
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.base.Throwables;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.Parser;
+import org.sonar.java.ast.api.JavaGrammar;
+import org.sonar.java.ast.parser.ParsingInterruptedException;
+import org.sonar.java.profiling.Profiler;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+
+/**
+ * Parses files under control of {@link Watchdog} and {@link Profiler}, if any. Thread-safe, if parser is thread-safe.
+ */
+class FileParser {
+
+  private final Parser<JavaGrammar> parser;
+  private final Profiler profiler;
+  private final Watchdog watchdog;
+
+  public FileParser(Parser<JavaGrammar> parser, @Nullable Profiler profiler, @Nullable Watchdog watchdog) {
+    this.parser = parser;
+    this.profiler = profiler;
+    this.watchdog = watchdog;
+  }
+
+  @Nullable
+  public Watchdog getWatchdog() {
+    return watchdog;
+  }
+
+  /**
+   * @throws com.sonar.sslr.api.RecognitionException if file can't be parsed
+   * @throws ParsingInterruptedException if parsing takes more time than allowed by watchdog
+   */
+  public AstNode parse(File file, String content) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = profiler == null ? 0 : Profiler.getCurrentThreadAllocatedBytes();
+    Watchdog.Task task = watchdog == null ? null : watchdog.start();
+    try {
+      return parser.parse(content);
+    } catch (RuntimeException e) {
+      // Parser wraps exceptions thrown by matchers
+      Throwable cause = Throwables.getRootCause(e);
+      if (cause instanceof ParsingInterruptedException) {
+        throw (ParsingInterruptedException) cause;
+      }
+      throw e;
+    } finally {
+      if (task != null) {
+        task.stop();
+      }
+      if (profiler != null) {
+        profiler.addFile(file, startTime, startAllocatedBytes);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sonar.sslr.api.AstNode;
+import org.sonar.api.resources.InputFile;
+import org.sonar.java.ast.visitors.FileContent;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.squid.api.AnalysisException;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads and parses files ahead of {@link AstScanner} using a pool of threads, and gives back resulting trees in order of files.
+ * Number of files parsed ahead is bounded, so that only few trees are kept in memory.
+ */
+class ParallelParser {
+
+  private final FileParser parser;
+  private final Charset charset;
+  private final Iterator<InputFile> files;
+  private final ExecutorService executor;
+  private final int maxPending;
+  private final LinkedList<Future<ParsedFile>> pending = Lists.newLinkedList();
+
+  public ParallelParser(FileParser parser, Charset charset, Collection<InputFile> files, int threads) {
+    this.parser = parser;
+    this.charset = charset;
+    this.files = files.iterator();
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("java-squid-parser-%d")
+        .setDaemon(true)
+        .build());
+    this.maxPending = threads * 2;
+    submit();
+  }
+
+  /**
+   * Passes content of next file to given context.
+   *
+   * @return tree of next file
+   * @throws com.sonar.sslr.api.RecognitionException if this file can't be parsed
+   * @throws org.sonar.java.ast.parser.ParsingInterruptedException if this file can't be parsed in time
+   */
+  public AstNode next(VisitorContext context) {
+    Future<ParsedFile> future = pending.removeFirst();
+    submit();
+    try {
+      ParsedFile parsedFile = future.get();
+      context.setFileContent(parsedFile.content);
+      return parsedFile.ast;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Interrupted while parsing files", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  private void submit() {
+    while (pending.size() < maxPending && files.hasNext()) {
+      final File file = files.next().getFile();
+      pending.add(executor.submit(new Callable<ParsedFile>() {
+        public ParsedFile call() throws Exception {
+          FileContent content = FileContent.read(file, charset);
+          return new ParsedFile(content, parser.parse(file, content.getContent()));
+        }
+      }));
+    }
+  }
+
+  private static class ParsedFile {
+    private final FileContent content;
+    private final AstNode ast;
+
+    public ParsedFile(FileContent content, AstNode ast) {
+      this.content = content;
+      this.ast = ast;
+    }
+  }
+
+}
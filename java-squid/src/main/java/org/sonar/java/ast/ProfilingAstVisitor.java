@@ -0,0 +1,112 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AstVisitor;
+import com.sonar.sslr.api.Token;
+import org.sonar.java.profiling.Profiler;
+
+import java.util.List;
+
+/**
+ * Measures callbacks of visitor.
+ */
+class ProfilingAstVisitor implements AstVisitor {
+
+  private final AstVisitor visitor;
+  private final Profiler.Counter visitFileCounter;
+  private final Profiler.Counter visitNodeCounter;
+  private final Profiler.Counter leaveNodeCounter;
+  private final Profiler.Counter leaveFileCounter;
+
+  private ProfilingAstVisitor(AstVisitor visitor, Profiler profiler) {
+    this.visitor = visitor;
+    this.visitFileCounter = profiler.getCallbackCounter(visitor, "visitFile");
+    this.visitNodeCounter = profiler.getCallbackCounter(visitor, "visitNode");
+    this.leaveNodeCounter = profiler.getCallbackCounter(visitor, "leaveNode");
+    this.leaveFileCounter = profiler.getCallbackCounter(visitor, "leaveFile");
+  }
+
+  /**
+   * @return visitor, which implements {@link AstAndTokenVisitor} if and only if given visitor implements it
+   */
+  public static AstVisitor wrap(AstVisitor visitor, Profiler profiler) {
+    if (visitor instanceof AstAndTokenVisitor) {
+      return new ProfilingAstAndTokenVisitor((AstAndTokenVisitor) visitor, profiler);
+    }
+    return new ProfilingAstVisitor(visitor, profiler);
+  }
+
+  public List<AstNodeType> getAstNodeTypesToVisit() {
+    return visitor.getAstNodeTypesToVisit();
+  }
+
+  public void visitFile(AstNode astNode) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.visitFile(astNode);
+    visitFileCounter.add(startTime, startAllocatedBytes);
+  }
+
+  public void visitNode(AstNode astNode) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.visitNode(astNode);
+    visitNodeCounter.add(startTime, startAllocatedBytes);
+  }
+
+  public void leaveNode(AstNode astNode) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.leaveNode(astNode);
+    leaveNodeCounter.add(startTime, startAllocatedBytes);
+  }
+
+  public void leaveFile(AstNode astNode) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.leaveFile(astNode);
+    leaveFileCounter.add(startTime, startAllocatedBytes);
+  }
+
+  private static class ProfilingAstAndTokenVisitor extends ProfilingAstVisitor implements AstAndTokenVisitor {
+
+    private final AstAndTokenVisitor visitor;
+    private final Profiler.Counter visitTokenCounter;
+
+    public ProfilingAstAndTokenVisitor(AstAndTokenVisitor visitor, Profiler profiler) {
+      super(visitor, profiler);
+      this.visitor = visitor;
+      this.visitTokenCounter = profiler.getCallbackCounter(visitor, "visitToken");
+    }
+
+    public void visitToken(Token token) {
+      long startTime = System.nanoTime();
+      long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+      visitor.visitToken(token);
+      visitTokenCounter.add(startTime, startAllocatedBytes);
+    }
+
+  }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.resources.InputFile;
+
+import javax.annotation.Nullable;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent cache of results of analysis of files, which allows {@link AstScanner} to skip files unchanged since previous analysis.
+ * Entry is stored for each file and is valid only for same content of file and same configuration of analysis.
+ * Any I/O error leads to cache miss, and so to analysis of file.
+ */
+public class SourceFileCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SourceFileCache.class);
+
+  /**
+   * Must be incremented on each change of format of entries or of visitors, which affects results of analysis.
+   */
+  private static final int VERSION = 1;
+  private static final String ENTRY_SUFFIX = ".bin";
+
+  private final File directory;
+  private final String configuration;
+
+  private String configurationHash;
+  private final Map<InputFile, String> contentHashes = Maps.newHashMap();
+  private final Set<String> usedEntries = Sets.newHashSet();
+
+  /**
+   * @param directory directory, which should be used exclusively by this cache
+   * @param configuration configuration of analysis, which affects its results
+   */
+  public SourceFileCache(File directory, String configuration) {
+    this.directory = directory;
+    this.configuration = configuration;
+  }
+
+  /**
+   * @param visitorsConfiguration configuration of visitors, which will be used for analysis
+   */
+  public void start(String visitorsConfiguration) {
+    String implementationVersion = SourceFileCache.class.getPackage().getImplementationVersion();
+    configurationHash = hash(toUtf8(VERSION + " " + implementationVersion + "\n" + configuration + "\n" + visitorsConfiguration));
+    contentHashes.clear();
+    usedEntries.clear();
+    try {
+      Files.createParentDirs(new File(directory, "entry"));
+    } catch (IOException e) {
+      LOG.warn("Unable to create cache directory " + directory, e);
+    }
+  }
+
+  /**
+   * Removes entries, which were not used during analysis.
+   */
+  public void stop() {
+    File[] entries = directory.listFiles();
+    if (entries == null) {
+      return;
+    }
+    for (File entry : entries) {
+      if (entry.getName().endsWith(ENTRY_SUFFIX) && !usedEntries.contains(entry.getName()) && !entry.delete()) {
+        LOG.warn("Unable to delete cache entry " + entry);
+      }
+    }
+  }
+
+  public boolean contains(InputFile inputFile) {
+    DataInputStream in = open(inputFile);
+    Closeables.closeQuietly(in);
+    return in != null;
+  }
+
+  /**
+   * @return data stored for given file, or null if there is no valid entry
+   */
+  @Nullable
+  public byte[] read(InputFile inputFile) {
+    DataInputStream in = open(inputFile);
+    if (in == null) {
+      return null;
+    }
+    try {
+      return ByteStreams.toByteArray(in);
+    } catch (IOException e) {
+      LOG.warn("Unable to read cache entry for " + inputFile.getFile(), e);
+      return null;
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  public void write(InputFile inputFile, byte[] data) {
+    String contentHash = getContentHash(inputFile);
+    if (contentHash == null) {
+      return;
+    }
+    String entryName = getEntryName(inputFile);
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, entryName))));
+      out.writeUTF(configurationHash);
+      out.writeUTF(contentHash);
+      out.write(data);
+      usedEntries.add(entryName);
+    } catch (IOException e) {
+      LOG.warn("Unable to write cache entry for " + inputFile.getFile(), e);
+    } finally {
+      Closeables.closeQuietly(out);
+    }
+  }
+
+  @Nullable
+  private DataInputStream open(InputFile inputFile) {
+    String entryName = getEntryName(inputFile);
+    File entry = new File(directory, entryName);
+    if (!entry.isFile()) {
+      return null;
+    }
+    String contentHash = getContentHash(inputFile);
+    if (contentHash == null) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+      if (configurationHash.equals(in.readUTF()) && contentHash.equals(in.readUTF())) {
+        usedEntries.add(entryName);
+        return in;
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to read cache entry for " + inputFile.getFile(), e);
+    }
+    Closeables.closeQuietly(in);
+    return null;
+  }
+
+  private static String getEntryName(InputFile inputFile) {
+    return hash(toUtf8(inputFile.getFile().getAbsolutePath())) + ENTRY_SUFFIX;
+  }
+
+  /**
+   * Relative path is a part of hash, because it affects key of resource.
+   */
+  @Nullable
+  private String getContentHash(InputFile inputFile) {
+    String contentHash = contentHashes.get(inputFile);
+    if (contentHash == null) {
+      try {
+        MessageDigest digest = newDigest();
+        digest.update(toUtf8(inputFile.getRelativePath()));
+        digest.update(Files.toByteArray(inputFile.getFile()));
+        contentHash = new String(Hex.encodeHex(digest.digest()));
+      } catch (IOException e) {
+        LOG.warn("Unable to read " + inputFile.getFile(), e);
+        return null;
+      }
+      contentHashes.put(inputFile, contentHash);
+    }
+    return contentHash;
+  }
+
+  /**
+   * {@link String#getBytes(java.nio.charset.Charset)} is not available in Java 5.
+   */
+  private static byte[] toUtf8(String s) {
+    try {
+      return s.getBytes(Charsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hash(byte[] bytes) {
+    return new String(Hex.encodeHex(newDigest().digest(bytes)));
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.resources.InputFile;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent list of files, which can't be parsed in reasonable time, so that {@link AstScanner} doesn't try to parse them again.
+ * Entry is valid only for same content of file. Any I/O error leads to empty list.
+ */
+public class SourceFileQuarantine {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SourceFileQuarantine.class);
+
+  private final File file;
+
+  /**
+   * Content hashes of files from previous analysis by absolute paths.
+   */
+  private final Map<String, String> previousEntries = Maps.newHashMap();
+  private final Map<String, String> entries = Maps.newTreeMap();
+
+  /**
+   * @param file file, which should be used exclusively by this quarantine
+   */
+  public SourceFileQuarantine(File file) {
+    this.file = file;
+  }
+
+  public void start() {
+    previousEntries.clear();
+    entries.clear();
+    if (!file.isFile()) {
+      return;
+    }
+    try {
+      List<String> lines = Files.readLines(file, Charsets.UTF_8);
+      for (String line : lines) {
+        int separator = line.indexOf(' ');
+        if (separator > 0) {
+          previousEntries.put(line.substring(separator + 1), line.substring(0, separator));
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to read quarantine " + file, e);
+    }
+  }
+
+  /**
+   * Saves files, which were added or found during analysis.
+   */
+  public void stop() {
+    if (entries.isEmpty() && !file.exists()) {
+      return;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      sb.append(entry.getValue()).append(' ').append(entry.getKey()).append('\n');
+    }
+    try {
+      Files.createParentDirs(file);
+      Files.write(sb, file, Charsets.UTF_8);
+    } catch (IOException e) {
+      LOG.warn("Unable to write quarantine " + file, e);
+    }
+  }
+
+  public boolean contains(InputFile inputFile) {
+    String path = inputFile.getFile().getAbsolutePath();
+    String previousHash = previousEntries.get(path);
+    if (previousHash == null) {
+      return false;
+    }
+    String hash = getContentHash(inputFile);
+    if (!previousHash.equals(hash)) {
+      return false;
+    }
+    entries.put(path, hash);
+    return true;
+  }
+
+  public void add(InputFile inputFile) {
+    String hash = getContentHash(inputFile);
+    if (hash != null) {
+      entries.put(inputFile.getFile().getAbsolutePath(), hash);
+    }
+  }
+
+  @Nullable
+  private static String getContentHash(InputFile inputFile) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return new String(Hex.encodeHex(digest.digest(Files.toByteArray(inputFile.getFile()))));
+    } catch (IOException e) {
+      LOG.warn("Unable to read " + inputFile.getFile(), e);
+      return null;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,352 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.visitors.CacheableVisitor;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.squid.api.*;
+import org.sonar.squid.measures.Metric;
+import org.sonar.squid.measures.MetricDef;
+
+import javax.annotation.Nullable;
+
+import java.io.*;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converts {@link SourceFile} with its classes, methods, measures and check messages into bytes and back,
+ * as well as data of {@link CacheableVisitor}s.
+ */
+class SourceFileSerializer {
+
+  private static final byte FILE = 0;
+  private static final byte CLASS = 1;
+  private static final byte METHOD = 2;
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte BOOLEAN = 5;
+
+  private static final List<MetricDef> METRICS = Lists.newArrayList();
+
+  static {
+    for (JavaMetric metric : JavaMetric.values()) {
+      METRICS.add(metric);
+    }
+    for (Metric metric : Metric.values()) {
+      if (!metric.isCalculatedMetric()) {
+        METRICS.add(metric);
+      }
+    }
+  }
+
+  private final List<?> visitors;
+
+  /**
+   * @param visitors visitors, which created given files, check messages are stored as references on them
+   */
+  public SourceFileSerializer(List<?> visitors) {
+    this.visitors = visitors;
+  }
+
+  /**
+   * @return null if file can't be serialized
+   */
+  @Nullable
+  public byte[] serialize(SourceFile sourceFile) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeUTF(sourceFile.getParent().getKey());
+    if (!write(out, sourceFile)) {
+      return null;
+    }
+    out.writeInt(sourceFile.getNoSonarTagLines() == null ? 0 : sourceFile.getNoSonarTagLines().size());
+    if (sourceFile.getNoSonarTagLines() != null) {
+      for (Integer line : sourceFile.getNoSonarTagLines()) {
+        out.writeInt(line);
+      }
+    }
+    for (Object visitor : visitors) {
+      if (visitor instanceof CacheableVisitor) {
+        ((CacheableVisitor) visitor).writeFileData(out);
+      }
+    }
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Restores file and adds it into project, which is held by given context.
+   * Data is entirely read before modification of project, so project remains unchanged in case of exception.
+   */
+  public SourceFile deserialize(VisitorContext context, DataInput in) throws IOException {
+    String packageKey = in.readUTF();
+    Node file = read(in, null);
+    Set<Integer> noSonarTagLines = Sets.newHashSet();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      noSonarTagLines.add(in.readInt());
+    }
+    for (Object visitor : visitors) {
+      if (visitor instanceof CacheableVisitor) {
+        ((CacheableVisitor) visitor).readFileData(in);
+      }
+    }
+
+    SourceFile sourceFile = (SourceFile) file.sourceCode;
+    sourceFile.addNoSonarTagLines(noSonarTagLines);
+    for (Object visitor : visitors) {
+      if (visitor instanceof CacheableVisitor) {
+        ((CacheableVisitor) visitor).restoreFileData(sourceFile);
+      }
+    }
+    SourcePackage sourcePackage = findOrCreateSourcePackage(context.getProject(), packageKey);
+    sourcePackage.setMeasure(JavaMetric.PACKAGES, 1);
+    attach(sourcePackage, file);
+    return sourceFile;
+  }
+
+  /**
+   * Source code is added into its parent before its children in order to be indexed.
+   */
+  private static void attach(SourceCode parent, Node node) {
+    parent.addChild(node.sourceCode);
+    for (Node child : node.children) {
+      attach(node.sourceCode, child);
+    }
+  }
+
+  private static SourcePackage findOrCreateSourcePackage(SourceProject sourceProject, String packageKey) {
+    if (sourceProject.hasChildren()) {
+      for (SourceCode child : sourceProject.getChildren()) {
+        if (child.getKey().equals(packageKey)) {
+          return (SourcePackage) child;
+        }
+      }
+    }
+    SourcePackage sourcePackage = new SourcePackage(packageKey);
+    sourceProject.addChild(sourcePackage);
+    return sourcePackage;
+  }
+
+  private boolean write(DataOutput out, SourceCode sourceCode) throws IOException {
+    if (sourceCode.isType(SourceFile.class)) {
+      out.writeByte(FILE);
+    } else if (sourceCode.isType(SourceClass.class)) {
+      out.writeByte(CLASS);
+      out.writeBoolean(((SourceClass) sourceCode).isSuppressWarnings());
+    } else if (sourceCode.isType(SourceMethod.class)) {
+      out.writeByte(METHOD);
+      out.writeBoolean(((SourceMethod) sourceCode).isSuppressWarnings());
+    } else {
+      return false;
+    }
+    out.writeUTF(sourceCode.getKey());
+    out.writeUTF(sourceCode.getName());
+    out.writeInt(sourceCode.getStartAtLine());
+    out.writeInt(sourceCode.getEndAtLine());
+
+    List<MetricDef> metrics = Lists.newArrayList();
+    for (MetricDef metric : METRICS) {
+      if (sourceCode.getDouble(metric) != 0) {
+        metrics.add(metric);
+      }
+    }
+    out.writeInt(metrics.size());
+    for (MetricDef metric : metrics) {
+      out.writeInt(METRICS.indexOf(metric));
+      out.writeDouble(sourceCode.getDouble(metric));
+    }
+
+    Set<CheckMessage> messages = sourceCode.hasCheckMessages() ? sourceCode.getCheckMessages() : Sets.<CheckMessage> newHashSet();
+    out.writeInt(messages.size());
+    for (CheckMessage message : messages) {
+      if (!write(out, message)) {
+        return false;
+      }
+    }
+
+    Set<SourceCode> children = sourceCode.hasChildren() ? sourceCode.getChildren() : Sets.<SourceCode> newHashSet();
+    out.writeInt(children.size());
+    for (SourceCode child : children) {
+      if (!write(out, child)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param parent null for file
+   */
+  private Node read(DataInput in, @Nullable SourceCode parent) throws IOException {
+    byte type = in.readByte();
+    if (parent == null ? type != FILE : type == FILE) {
+      throw new IOException("Unexpected type of source code: " + type);
+    }
+    boolean suppressWarnings = type != FILE && in.readBoolean();
+    String key = in.readUTF();
+    String name = in.readUTF();
+    int startAtLine = in.readInt();
+    int endAtLine = in.readInt();
+
+    final SourceCode sourceCode;
+    if (type == FILE) {
+      sourceCode = new SourceFile(key, name);
+    } else if (type == CLASS) {
+      SourceClass sourceClass = new SourceClass(key, name);
+      sourceClass.setSuppressWarnings(suppressWarnings);
+      sourceCode = sourceClass;
+    } else if (type == METHOD) {
+      SourceMethod sourceMethod = parent.isType(SourceClass.class) && key.equals(parent.getKey() + "#" + name)
+          ? new SourceMethod((SourceClass) parent, name, startAtLine)
+          : new SourceMethod(key);
+      sourceMethod.setSuppressWarnings(suppressWarnings);
+      sourceCode = sourceMethod;
+    } else {
+      throw new IOException("Unexpected type of source code: " + type);
+    }
+    sourceCode.setStartAtLine(startAtLine);
+    sourceCode.setEndAtLine(endAtLine);
+
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      sourceCode.setMeasure(METRICS.get(in.readInt()), in.readDouble());
+    }
+
+    size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      sourceCode.log(readCheckMessage(in));
+    }
+
+    Node node = new Node(sourceCode);
+    size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      node.children.add(read(in, sourceCode));
+    }
+    return node;
+  }
+
+  private boolean write(DataOutput out, CheckMessage message) throws IOException {
+    int checkIndex = visitors.indexOf(message.getCheck());
+    if (checkIndex == -1 || message.getDefaultMessage() == null) {
+      return false;
+    }
+    Object[] arguments = message.getMessageArguments() == null ? new Object[0] : message.getMessageArguments();
+    out.writeInt(checkIndex);
+    out.writeUTF(message.getDefaultMessage());
+    out.writeInt(arguments.length);
+    for (Object argument : arguments) {
+      if (!writeArgument(out, argument)) {
+        return false;
+      }
+    }
+    out.writeInt(message.getLine() == null ? -1 : message.getLine());
+    out.writeBoolean(message.getCost() != null);
+    if (message.getCost() != null) {
+      out.writeDouble(message.getCost());
+    }
+    out.writeBoolean(message.isBypassExclusion());
+    return true;
+  }
+
+  private CheckMessage readCheckMessage(DataInput in) throws IOException {
+    Object check = visitors.get(in.readInt());
+    String defaultMessage = in.readUTF();
+    Object[] arguments = new Object[in.readInt()];
+    for (int i = 0; i < arguments.length; i++) {
+      arguments[i] = readArgument(in);
+    }
+    CheckMessage message = new CheckMessage(check, defaultMessage, arguments);
+    int line = in.readInt();
+    if (line != -1) {
+      message.setLine(line);
+    }
+    if (in.readBoolean()) {
+      message.setCost(in.readDouble());
+    }
+    message.setBypassExclusion(in.readBoolean());
+    return message;
+  }
+
+  private static boolean writeArgument(DataOutput out, Object argument) throws IOException {
+    if (argument == null) {
+      out.writeByte(NULL);
+    } else if (argument instanceof String) {
+      out.writeByte(STRING);
+      out.writeUTF((String) argument);
+    } else if (argument instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) argument);
+    } else if (argument instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) argument);
+    } else if (argument instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) argument);
+    } else if (argument instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) argument);
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private static Object readArgument(DataInput in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return in.readUTF();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      case BOOLEAN:
+        return in.readBoolean();
+      default:
+        throw new IOException("Unexpected type of argument: " + type);
+    }
+  }
+
+  /**
+   * Source code, which is not yet added into its parent.
+   */
+  private static final class Node {
+    private final SourceCode sourceCode;
+    private final List<Node> children = Lists.newArrayList();
+
+    Node(SourceCode sourceCode) {
+      this.sourceCode = sourceCode;
+    }
+  }
+
+}
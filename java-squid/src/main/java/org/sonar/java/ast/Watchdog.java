@@ -0,0 +1,98 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interrupts threads, which perform some work for longer than given time.
+ * Can be used by several threads.
+ */
+class Watchdog {
+
+  private final long timeoutMillis;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("java-squid-watchdog-%d")
+      .setDaemon(true)
+      .build());
+
+  public Watchdog(long timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  /**
+   * Starts watching of current thread, {@link Task#stop()} must be called by same thread after completion of work.
+   */
+  public Task start() {
+    Task task = new Task(Thread.currentThread());
+    task.future = executor.schedule(task, timeoutMillis, TimeUnit.MILLISECONDS);
+    return task;
+  }
+
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  public static final class Task implements Runnable {
+
+    private final Thread thread;
+    private ScheduledFuture<?> future;
+    private boolean done = false;
+    private boolean interrupted = false;
+
+    private Task(Thread thread) {
+      this.thread = thread;
+    }
+
+    public synchronized void run() {
+      if (!done) {
+        interrupted = true;
+        thread.interrupt();
+      }
+    }
+
+    /**
+     * Clears interrupted status of current thread, if it was set by this task.
+     *
+     * @return true if time was exceeded, and so thread was interrupted
+     */
+    public boolean stop() {
+      synchronized (this) {
+        done = true;
+      }
+      future.cancel(false);
+      if (interrupted) {
+        Thread.interrupted();
+      }
+      return interrupted;
+    }
+
+  }
+
+}
@@ -24,16 +24,12 @@ import org.sonar.java.ast.api.JavaGrammar;
 import org.sonar.java.ast.api.JavaKeyword;
 import org.sonar.java.ast.api.JavaPunctuator;
 import org.sonar.java.ast.api.JavaTokenType;
-import org.sonar.java.ast.lexer.FloatLiteralChannel;
-import org.sonar.java.ast.lexer.IntegerLiteralChannel;
 
 import static org.sonar.sslr.parser.GrammarOperators.endOfInput;
 import static org.sonar.sslr.parser.GrammarOperators.firstOf;
-import static org.sonar.sslr.parser.GrammarOperators.next;
 import static org.sonar.sslr.parser.GrammarOperators.nextNot;
 import static org.sonar.sslr.parser.GrammarOperators.oneOrMore;
 import static org.sonar.sslr.parser.GrammarOperators.optional;
-import static org.sonar.sslr.parser.GrammarOperators.regexp;
 import static org.sonar.sslr.parser.GrammarOperators.sequence;
 import static org.sonar.sslr.parser.GrammarOperators.token;
 import static org.sonar.sslr.parser.GrammarOperators.zeroOrMore;
@@ -167,7 +163,7 @@ public class JavaGrammarImpl extends JavaGrammar {
   private Object keyword(String value) {
     for (JavaKeyword tokenType : JavaKeyword.values()) {
       if (value.equals(tokenType.getValue())) {
-        return sequence(token(tokenType, value), nextNot(letterOrDigit), spacing);
+        return sequence(token(tokenType, TerminalMatchers.keyword(value)), spacing);
       }
     }
     throw new IllegalStateException(value);
@@ -206,18 +202,16 @@ public class JavaGrammarImpl extends JavaGrammar {
     characterLiteral.is(token(JavaTokenType.CHARACTER_LITERAL, characterLiteral()), spacing).skip();
     stringLiteral.is(token(GenericTokenType.LITERAL, stringLiteral()), spacing).skip();
 
-    floatLiteral.is(token(JavaTokenType.FLOAT_LITERAL, regexp(FloatLiteralChannel.FLOATING_LITERAL_WITHOUT_SUFFIX + "[fF]|[0-9][0-9_]*+[fF]")), spacing).skip();
-    doubleLiteral.is(token(JavaTokenType.DOUBLE_LITERAL, regexp(FloatLiteralChannel.FLOATING_LITERAL_WITHOUT_SUFFIX + "[dD]?+|[0-9][0-9_]*+[dD]")), spacing).skip();
+    floatLiteral.is(token(JavaTokenType.FLOAT_LITERAL, TerminalMatchers.floatLiteral()), spacing).skip();
+    doubleLiteral.is(token(JavaTokenType.DOUBLE_LITERAL, TerminalMatchers.doubleLiteral()), spacing).skip();
 
-    longLiteral.is(token(JavaTokenType.LONG_LITERAL, regexp(IntegerLiteralChannel.INTEGER_LITERAL + "[lL]")), spacing).skip();
-    integerLiteral.is(token(JavaTokenType.INTEGER_LITERAL, regexp(IntegerLiteralChannel.INTEGER_LITERAL)), spacing).skip();
+    longLiteral.is(token(JavaTokenType.LONG_LITERAL, TerminalMatchers.longLiteral()), spacing).skip();
+    integerLiteral.is(token(JavaTokenType.INTEGER_LITERAL, TerminalMatchers.integerLiteral()), spacing).skip();
 
-    keyword.is(firstOf("assert", "break", "case", "catch", "class", "const", "continue", "default", "do", "else",
-        "enum", "extends", "finally", "final", "for", "goto", "if", "implements", "import", "interface",
-        "instanceof", "new", "package", "return", "static", "super", "switch", "synchronized", "this",
-        "throws", "throw", "try", "void", "while"), nextNot(letterOrDigit));
+    keyword.is(firstOf((Object[]) KEYWORDS), nextNot(letterOrDigit));
     letterOrDigit.is(javaIdentifierPart());
-    identifier.is(nextNot(keyword), token(GenericTokenType.IDENTIFIER, javaIdentifier()), spacing).skip();
+    // Same as sequence(nextNot(keyword), javaIdentifier()), but faster
+    identifier.is(token(GenericTokenType.IDENTIFIER, TerminalMatchers.identifier(KEYWORDS)), spacing).skip();
 
     literal.is(firstOf(
         trueKeyword,
@@ -231,32 +225,40 @@ public class JavaGrammarImpl extends JavaGrammar {
         integerLiteral));
   }
 
+  /**
+   * Words, which can't be used as identifiers. None of them is a prefix of another one, which follows it.
+   */
+  private static final String[] KEYWORDS = {"assert", "break", "case", "catch", "class", "const", "continue", "default", "do", "else",
+    "enum", "extends", "finally", "final", "for", "goto", "if", "implements", "import", "interface",
+    "instanceof", "new", "package", "return", "static", "super", "switch", "synchronized", "this",
+    "throws", "throw", "try", "void", "while"};
+
   private Object characterLiteral() {
-    return sequence(next("'"), regexp("'([^'\\\\]*+(\\\\[\\s\\S])?+)*+'"));
+    return TerminalMatchers.characterLiteral();
   }
 
   private Object stringLiteral() {
-    return sequence(next("\""), regexp("\"([^\"\\\\]*+(\\\\[\\s\\S])?+)*+\""));
+    return TerminalMatchers.stringLiteral();
   }
 
   private Object whitespace() {
-    return regexp("\\s*+");
+    return TerminalMatchers.whitespace();
   }
 
   private Object inlineComment() {
-    return regexp("//[^\\n\\r]*+");
+    return TerminalMatchers.inlineComment();
   }
 
   private Object multilineComment() {
-    return regexp("/\\*[\\s\\S]*?\\*\\/");
+    return TerminalMatchers.multilineComment();
   }
 
   private Object javaIdentifier() {
-    return regexp("\\p{javaJavaIdentifierStart}++\\p{javaJavaIdentifierPart}*+");
+    return TerminalMatchers.javaIdentifier();
   }
 
   private Object javaIdentifierPart() {
-    return regexp("\\p{javaJavaIdentifierPart}");
+    return TerminalMatchers.javaIdentifierPart();
   }
 
   /**
@@ -0,0 +1,550 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.parser;
+
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.MatcherContext;
+
+/**
+ * Hand-written matchers for the most frequently used terminals of {@link JavaGrammarImpl}.
+ * Each of them accepts exactly the same language as regular expression mentioned in its documentation,
+ * but works directly on characters of input, which is much faster.
+ * Matchers have no state, so can be used by several threads.
+ */
+final class TerminalMatchers {
+
+  private TerminalMatchers() {
+  }
+
+  /**
+   * {@code \s*+}
+   * <p>
+   * Also allows to interrupt parsing, because this matcher is used after each token,
+   * so throws {@link ParsingInterruptedException} if current thread was interrupted.
+   * </p>
+   */
+  public static TerminalMatcher whitespace() {
+    return new TerminalMatcher() {
+      @Override
+      int matchLength(CharSequence input) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new ParsingInterruptedException();
+        }
+        int i = 0;
+        while (i < input.length() && isWhitespace(input.charAt(i))) {
+          i++;
+        }
+        return i;
+      }
+    };
+  }
+
+  /**
+   * {@code //[^\n\r]*+}
+   */
+  public static TerminalMatcher inlineComment() {
+    return new TerminalMatcher() {
+      @Override
+      int matchLength(CharSequence input) {
+        if (input.length() < 2 || input.charAt(0) != '/' || input.charAt(1) != '/') {
+          return -1;
+        }
+        int i = 2;
+        while (i < input.length() && input.charAt(i) != '\n' && input.charAt(i) != '\r') {
+          i++;
+        }
+        return i;
+      }
+    };
+  }
+
+  /**
+   * {@code /\*[\s\S]*?\*\/}
+   */
+  public static TerminalMatcher multilineComment() {
+    return new TerminalMatcher() {
+      @Override
+      int matchLength(CharSequence input) {
+        if (input.length() < 2 || input.charAt(0) != '/' || input.charAt(1) != '*') {
+          return -1;
+        }
+        for (int i = 2; i + 1 < input.length(); i++) {
+          if (input.charAt(i) == '*' && input.charAt(i + 1) == '/') {
+            return i + 2;
+          }
+        }
+        return -1;
+      }
+    };
+  }
+
+  /**
+   * {@code \p{javaJavaIdentifierStart}++\p{javaJavaIdentifierPart}*+}
+   */
+  public static TerminalMatcher javaIdentifier() {
+    return new TerminalMatcher() {
+      @Override
+      int matchLength(CharSequence input) {
+        if (input.length() == 0) {
+          return -1;
+        }
+        int codePoint = Character.codePointAt(input, 0);
+        if (!Character.isJavaIdentifierStart(codePoint)) {
+          return -1;
+        }
+        // Every start of identifier is also a part of identifier
+        int i = Character.charCount(codePoint);
+        while (i < input.length()) {
+          codePoint = Character.codePointAt(input, i);
+          if (!Character.isJavaIdentifierPart(codePoint)) {
+            break;
+          }
+          i += Character.charCount(codePoint);
+        }
+        return i;
+      }
+    };
+  }
+
+  /**
+   * Same as {@code sequence(nextNot(firstOf(keywords), nextNot(javaIdentifierPart())), javaIdentifier())},
+   * but word is scanned only once and then looked up in a hash table of keywords.
+   * Equivalence holds only if none of given keywords is a prefix of another one, which follows it.
+   */
+  public static TerminalMatcher identifier(String... keywords) {
+    return new IdentifierMatcher(keywords);
+  }
+
+  /**
+   * Same as {@code sequence(value, nextNot(javaIdentifierPart()))}.
+   */
+  public static TerminalMatcher keyword(final String value) {
+    return new TerminalMatcher() {
+      @Override
+      int matchLength(CharSequence input) {
+        int length = value.length();
+        if (input.length() < length) {
+          return -1;
+        }
+        for (int i = 0; i < length; i++) {
+          if (input.charAt(i) != value.charAt(i)) {
+            return -1;
+          }
+        }
+        if (length < input.length() && Character.isJavaIdentifierPart(Character.codePointAt(input, length))) {
+          return -1;
+        }
+        return length;
+      }
+    };
+  }
+
+  /**
+   * {@code \p{javaJavaIdentifierPart}}
+   */
+  public static TerminalMatcher javaIdentifierPart() {
+    return new TerminalMatcher() {
+      @Override
+      int matchLength(CharSequence input) {
+        if (input.length() == 0) {
+          return -1;
+        }
+        int codePoint = Character.codePointAt(input, 0);
+        return Character.isJavaIdentifierPart(codePoint) ? Character.charCount(codePoint) : -1;
+      }
+    };
+  }
+
+  /**
+   * {@code '([^'\\]*+(\\[\s\S])?+)*+'}
+   */
+  public static TerminalMatcher characterLiteral() {
+    return new QuotedLiteralMatcher('\'');
+  }
+
+  /**
+   * {@code "([^"\\]*+(\\[\s\S])?+)*+"}
+   */
+  public static TerminalMatcher stringLiteral() {
+    return new QuotedLiteralMatcher('"');
+  }
+
+  /**
+   * {@link org.sonar.java.ast.lexer.FloatLiteralChannel#FLOATING_LITERAL_WITHOUT_SUFFIX} followed by {@code [fF]},
+   * or {@code [0-9][0-9_]*+[fF]}
+   */
+  public static TerminalMatcher floatLiteral() {
+    return new FloatingPointLiteralMatcher('f', 'F', true);
+  }
+
+  /**
+   * {@link org.sonar.java.ast.lexer.FloatLiteralChannel#FLOATING_LITERAL_WITHOUT_SUFFIX} followed by {@code [dD]?+},
+   * or {@code [0-9][0-9_]*+[dD]}
+   */
+  public static TerminalMatcher doubleLiteral() {
+    return new FloatingPointLiteralMatcher('d', 'D', false);
+  }
+
+  /**
+   * {@link org.sonar.java.ast.lexer.IntegerLiteralChannel#INTEGER_LITERAL} followed by {@code [lL]}
+   */
+  public static TerminalMatcher longLiteral() {
+    return new TerminalMatcher() {
+      @Override
+      int matchLength(CharSequence input) {
+        for (int alternative = 0; alternative < INTEGER_ALTERNATIVES; alternative++) {
+          int end = matchInteger(input, alternative);
+          if (end != -1 && isOneOf(input, end, 'l', 'L')) {
+            return end + 1;
+          }
+        }
+        return -1;
+      }
+    };
+  }
+
+  /**
+   * {@link org.sonar.java.ast.lexer.IntegerLiteralChannel#INTEGER_LITERAL}
+   */
+  public static TerminalMatcher integerLiteral() {
+    return new TerminalMatcher() {
+      @Override
+      int matchLength(CharSequence input) {
+        for (int alternative = 0; alternative < INTEGER_ALTERNATIVES; alternative++) {
+          int end = matchInteger(input, alternative);
+          if (end != -1) {
+            return end;
+          }
+        }
+        return -1;
+      }
+    };
+  }
+
+  abstract static class TerminalMatcher implements Matcher {
+
+    public boolean match(MatcherContext context) {
+      int length = matchLength(context);
+      if (length == -1) {
+        return false;
+      }
+      context.advanceIndex(length);
+      return true;
+    }
+
+    /**
+     * @return number of matched characters from the beginning of input, or -1 if input doesn't match
+     */
+    abstract int matchLength(CharSequence input);
+
+  }
+
+  private static class IdentifierMatcher extends TerminalMatcher {
+
+    private final TerminalMatcher javaIdentifier = javaIdentifier();
+
+    /**
+     * Open addressing hash table of keywords.
+     */
+    private final String[] table;
+    private final int mask;
+
+    public IdentifierMatcher(String... keywords) {
+      int size = Integer.highestOneBit(keywords.length * 4 + 1);
+      table = new String[size];
+      mask = size - 1;
+      for (String keyword : keywords) {
+        int i = keyword.hashCode() & mask;
+        while (table[i] != null) {
+          i = (i + 1) & mask;
+        }
+        table[i] = keyword;
+      }
+    }
+
+    @Override
+    int matchLength(CharSequence input) {
+      int length = javaIdentifier.matchLength(input);
+      return length == -1 || isKeyword(input, length) ? -1 : length;
+    }
+
+    private boolean isKeyword(CharSequence input, int length) {
+      // Same as String.hashCode()
+      int hash = 0;
+      for (int i = 0; i < length; i++) {
+        hash = 31 * hash + input.charAt(i);
+      }
+      for (int i = hash & mask; table[i] != null; i = (i + 1) & mask) {
+        if (regionEquals(table[i], input, length)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static boolean regionEquals(String keyword, CharSequence input, int length) {
+      if (keyword.length() != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (keyword.charAt(i) != input.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+  private static class QuotedLiteralMatcher extends TerminalMatcher {
+
+    private final char quote;
+
+    public QuotedLiteralMatcher(char quote) {
+      this.quote = quote;
+    }
+
+    @Override
+    int matchLength(CharSequence input) {
+      if (input.length() == 0 || input.charAt(0) != quote) {
+        return -1;
+      }
+      int i = 1;
+      while (i < input.length()) {
+        char c = input.charAt(i);
+        if (c == quote) {
+          return i + 1;
+        } else if (c == '\\') {
+          if (i + 1 == input.length()) {
+            return -1;
+          }
+          i += 2;
+        } else {
+          i++;
+        }
+      }
+      return -1;
+    }
+
+  }
+
+  private static class FloatingPointLiteralMatcher extends TerminalMatcher {
+
+    private final char suffix;
+    private final char upperCaseSuffix;
+    private final boolean suffixRequired;
+
+    public FloatingPointLiteralMatcher(char suffix, char upperCaseSuffix, boolean suffixRequired) {
+      this.suffix = suffix;
+      this.upperCaseSuffix = upperCaseSuffix;
+      this.suffixRequired = suffixRequired;
+    }
+
+    @Override
+    int matchLength(CharSequence input) {
+      // Alternatives of FLOATING_LITERAL_WITHOUT_SUFFIX are tried in order, exactly as regular expression does
+      for (int alternative = 0; alternative < FLOATING_POINT_ALTERNATIVES; alternative++) {
+        int end = matchFloatingPoint(input, alternative);
+        if (end != -1) {
+          if (isOneOf(input, end, suffix, upperCaseSuffix)) {
+            return end + 1;
+          } else if (!suffixRequired) {
+            return end;
+          }
+        }
+      }
+      int end = matchDigits(input, 0);
+      if (end != -1 && isOneOf(input, end, suffix, upperCaseSuffix)) {
+        return end + 1;
+      }
+      return -1;
+    }
+
+  }
+
+  private static final int INTEGER_ALTERNATIVES = 3;
+
+  /**
+   * Alternatives of {@link org.sonar.java.ast.lexer.IntegerLiteralChannel#INTEGER_LITERAL}:
+   * <ol start="0">
+   * <li>{@code 0[xX][0-9_a-fA-F]++}</li>
+   * <li>{@code 0[bB][01_]++}</li>
+   * <li>{@code [0-9][0-9_]*+}</li>
+   * </ol>
+   *
+   * @return end of match, or -1
+   */
+  private static int matchInteger(CharSequence input, int alternative) {
+    switch (alternative) {
+      case 0:
+        return matchHexPrefix(input, 0);
+      case 1:
+        if (isOneOf(input, 0, '0', '0') && isOneOf(input, 1, 'b', 'B')) {
+          int i = 2;
+          while (isOneOf(input, i, '0', '1') || isOneOf(input, i, '_', '_')) {
+            i++;
+          }
+          return i > 2 ? i : -1;
+        }
+        return -1;
+      default:
+        return matchDigits(input, 0);
+    }
+  }
+
+  private static final int FLOATING_POINT_ALTERNATIVES = 5;
+
+  /**
+   * Alternatives of {@link org.sonar.java.ast.lexer.FloatLiteralChannel#FLOATING_LITERAL_WITHOUT_SUFFIX}:
+   * <ol start="0">
+   * <li>{@code [0-9][0-9_]*+\.([0-9_]++)?+EXP?+}</li>
+   * <li>{@code \.[0-9][0-9_]*+EXP?+}</li>
+   * <li>{@code [0-9][0-9_]*+EXP}</li>
+   * <li>{@code 0[xX][0-9_a-fA-F]++\.[0-9_a-fA-F]*+BINARY_EXP}</li>
+   * <li>{@code 0[xX][0-9_a-fA-F]++BINARY_EXP}</li>
+   * </ol>
+   *
+   * @return end of match, or -1
+   */
+  private static int matchFloatingPoint(CharSequence input, int alternative) {
+    int i;
+    switch (alternative) {
+      case 0:
+        i = matchDigits(input, 0);
+        if (i == -1 || !isOneOf(input, i, '.', '.')) {
+          return -1;
+        }
+        i++;
+        while (isDigitOrUnderscore(input, i)) {
+          i++;
+        }
+        return matchOptionalExponent(input, i, 'e', 'E');
+      case 1:
+        if (!isOneOf(input, 0, '.', '.')) {
+          return -1;
+        }
+        i = matchDigits(input, 1);
+        return i == -1 ? -1 : matchOptionalExponent(input, i, 'e', 'E');
+      case 2:
+        i = matchDigits(input, 0);
+        return i == -1 ? -1 : matchExponent(input, i, 'e', 'E');
+      case 3:
+        i = matchHexPrefix(input, 0);
+        if (i == -1 || !isOneOf(input, i, '.', '.')) {
+          return -1;
+        }
+        i++;
+        while (isHexDigitOrUnderscore(input, i)) {
+          i++;
+        }
+        return matchExponent(input, i, 'p', 'P');
+      default:
+        i = matchHexPrefix(input, 0);
+        return i == -1 ? -1 : matchExponent(input, i, 'p', 'P');
+    }
+  }
+
+  /**
+   * {@code [0-9][0-9_]*+}
+   */
+  private static int matchDigits(CharSequence input, int start) {
+    if (start >= input.length() || !isDigit(input.charAt(start))) {
+      return -1;
+    }
+    int i = start + 1;
+    while (isDigitOrUnderscore(input, i)) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * {@code 0[xX][0-9_a-fA-F]++}
+   */
+  private static int matchHexPrefix(CharSequence input, int start) {
+    if (!isOneOf(input, start, '0', '0') || !isOneOf(input, start + 1, 'x', 'X')) {
+      return -1;
+    }
+    int i = start + 2;
+    while (isHexDigitOrUnderscore(input, i)) {
+      i++;
+    }
+    return i > start + 2 ? i : -1;
+  }
+
+  /**
+   * {@code (?:[Ee][+-]?+[0-9_]++)} or {@code (?:[Pp][+-]?+[0-9_]++)} depending on given letters.
+   */
+  private static int matchExponent(CharSequence input, int start, char letter, char upperCaseLetter) {
+    if (!isOneOf(input, start, letter, upperCaseLetter)) {
+      return -1;
+    }
+    int i = start + 1;
+    if (isOneOf(input, i, '+', '-')) {
+      i++;
+    }
+    int digitsStart = i;
+    while (isDigitOrUnderscore(input, i)) {
+      i++;
+    }
+    return i > digitsStart ? i : -1;
+  }
+
+  private static int matchOptionalExponent(CharSequence input, int start, char letter, char upperCaseLetter) {
+    int end = matchExponent(input, start, letter, upperCaseLetter);
+    return end == -1 ? start : end;
+  }
+
+  private static boolean isOneOf(CharSequence input, int index, char c1, char c2) {
+    if (index >= input.length()) {
+      return false;
+    }
+    char c = input.charAt(index);
+    return c == c1 || c == c2;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isDigitOrUnderscore(CharSequence input, int index) {
+    if (index >= input.length()) {
+      return false;
+    }
+    char c = input.charAt(index);
+    return isDigit(c) || c == '_';
+  }
+
+  private static boolean isHexDigitOrUnderscore(CharSequence input, int index) {
+    if (index >= input.length()) {
+      return false;
+    }
+    char c = input.charAt(index);
+    return isDigit(c) || c == '_' || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+  /**
+   * {@code \s}
+   */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+}
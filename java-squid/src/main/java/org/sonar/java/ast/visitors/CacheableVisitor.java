@@ -0,0 +1,51 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import org.sonar.squid.api.SourceFile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Visitor, which produces results outside of tree of {@link org.sonar.squid.api.SourceCode}.
+ * Such visitor must be able to save and to restore those results in order to allow {@link org.sonar.java.ast.AstScanner}
+ * to skip files, which were not changed since previous analysis.
+ */
+public interface CacheableVisitor {
+
+  /**
+   * Called after {@link com.sonar.sslr.squid.SquidAstVisitor#leaveFile(com.sonar.sslr.api.AstNode)}.
+   */
+  void writeFileData(DataOutput out) throws IOException;
+
+  /**
+   * Called instead of visit of file, which was not changed since previous analysis.
+   * Should only read data, because data of other visitors still can be corrupted.
+   */
+  void readFileData(DataInput in) throws IOException;
+
+  /**
+   * Called after {@link #readFileData(DataInput)} of all visitors to save results for given file.
+   */
+  void restoreFileData(SourceFile sourceFile);
+
+}
@@ -30,7 +30,7 @@ import org.sonar.squid.api.SourceCode;
 
 import java.util.Set;
 
-public class CommentLinesVisitor extends JavaAstVisitor implements AstAndTokenVisitor {
+public class CommentLinesVisitor extends JavaAstVisitor implements AstAndTokenVisitor, TokenOnlyVisitor {
 
   private Set<Integer> comments = Sets.newHashSet();
   private boolean seenFirstToken;
@@ -0,0 +1,101 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Decoded content of a file together with offsets of its lines, so that file is read only once for all visitors.
+ * Lines are separated by "\r\n", "\n" or "\r", and so file always has at least one line, even empty.
+ */
+public class FileContent {
+
+  private final String content;
+  private final int[] lineOffsets;
+
+  public FileContent(String content) {
+    this.content = content;
+    this.lineOffsets = computeLineOffsets(content);
+  }
+
+  public static FileContent read(File file, Charset charset) throws IOException {
+    return new FileContent(Files.toString(file, charset));
+  }
+
+  private static int[] computeLineOffsets(String content) {
+    int[] offsets = new int[16];
+    int lines = 1;
+    int length = content.length();
+    for (int i = 0; i < length; i++) {
+      char c = content.charAt(i);
+      if (c == '\n' || c == '\r') {
+        if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') {
+          i++;
+        }
+        if (lines == offsets.length) {
+          int[] newOffsets = new int[offsets.length * 2];
+          System.arraycopy(offsets, 0, newOffsets, 0, lines);
+          offsets = newOffsets;
+        }
+        offsets[lines] = i + 1;
+        lines++;
+      }
+    }
+    int[] result = new int[lines];
+    System.arraycopy(offsets, 0, result, 0, lines);
+    return result;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public int getLinesCount() {
+    return lineOffsets.length;
+  }
+
+  /**
+   * @param line number of line starting from 1
+   * @return offset of first character of given line
+   */
+  public int getLineOffset(int line) {
+    Preconditions.checkElementIndex(line - 1, lineOffsets.length, "line");
+    return lineOffsets[line - 1];
+  }
+
+  /**
+   * @param line number of line starting from 1
+   * @return content of given line without line terminator
+   */
+  public String getLine(int line) {
+    int start = getLineOffset(line);
+    int end = line < lineOffsets.length ? lineOffsets[line] : content.length();
+    while (end > start && (content.charAt(end - 1) == '\n' || content.charAt(end - 1) == '\r')) {
+      end--;
+    }
+    return content.substring(start, end);
+  }
+
+}
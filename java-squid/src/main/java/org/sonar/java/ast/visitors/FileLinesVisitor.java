@@ -20,7 +20,6 @@
 package org.sonar.java.ast.visitors;
 
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 import com.sonar.sslr.api.*;
 import org.sonar.api.batch.SquidUtils;
 import org.sonar.api.measures.CoreMetrics;
@@ -29,47 +28,51 @@ import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.squid.api.SourceFile;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Set;
 
 /**
  * Saves information about lines directly into Sonar by using {@link FileLinesContext}.
  */
-public class FileLinesVisitor extends JavaAstVisitor implements AstAndTokenVisitor {
+public class FileLinesVisitor extends JavaAstVisitor implements AstAndTokenVisitor, CacheableVisitor, TokenOnlyVisitor {
 
   private final FileLinesContextFactory fileLinesContextFactory;
-  private final Charset charset;
   private final Set<Integer> linesOfCode = Sets.newHashSet();
   private final Set<Integer> linesOfComments = Sets.newHashSet();
+  private int fileLength;
 
-  public FileLinesVisitor(FileLinesContextFactory fileLinesContextFactory, Charset charset) {
+  public FileLinesVisitor(FileLinesContextFactory fileLinesContextFactory) {
     this.fileLinesContextFactory = fileLinesContextFactory;
-    this.charset = charset;
+  }
+
+  @Override
+  public void visitFile(AstNode astNode) {
+    linesOfCode.clear();
+    linesOfComments.clear();
   }
 
   @Override
   public void leaveFile(AstNode astNode) {
-    SourceFile file = (SourceFile) getContext().peekSourceCode();
+    FileContent fileContent = getFileContent();
+    fileLength = fileContent.getLinesCount();
+    if (fileContent.getLineOffset(fileLength) == fileContent.getContent().length()) {
+      // Last line is empty
+      fileLength--;
+    }
+    save((SourceFile) getContext().peekSourceCode());
+  }
+
+  private void save(SourceFile file) {
     JavaFile javaFile = SquidUtils.convertJavaFileKeyFromSquidFormat(file.getKey());
     FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(javaFile);
-
-    // TODO minimize access to files, another one in LinesVisitor
-    int fileLength;
-    try {
-      fileLength = Files.readLines(getContext().getFile(), charset).size();
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
     for (int line = 1; line <= fileLength; line++) {
       fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, linesOfCode.contains(line) ? 1 : 0);
       fileLinesContext.setIntValue(CoreMetrics.COMMENT_LINES_DATA_KEY, line, linesOfComments.contains(line) ? 1 : 0);
     }
     fileLinesContext.save();
-
-    linesOfCode.clear();
-    linesOfComments.clear();
   }
 
   public void visitToken(Token token) {
@@ -86,4 +89,35 @@ public class FileLinesVisitor extends JavaAstVisitor implements AstAndTokenVisit
     }
   }
 
+  public void writeFileData(DataOutput out) throws IOException {
+    out.writeInt(fileLength);
+    writeLines(out, linesOfCode);
+    writeLines(out, linesOfComments);
+  }
+
+  public void readFileData(DataInput in) throws IOException {
+    fileLength = in.readInt();
+    readLines(in, linesOfCode);
+    readLines(in, linesOfComments);
+  }
+
+  public void restoreFileData(SourceFile sourceFile) {
+    save(sourceFile);
+  }
+
+  private static void writeLines(DataOutput out, Set<Integer> lines) throws IOException {
+    out.writeInt(lines.size());
+    for (Integer line : lines) {
+      out.writeInt(line);
+    }
+  }
+
+  private static void readLines(DataInput in, Set<Integer> lines) throws IOException {
+    lines.clear();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      lines.add(in.readInt());
+    }
+  }
+
 }
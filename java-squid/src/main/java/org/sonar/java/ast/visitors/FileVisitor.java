@@ -25,7 +25,7 @@ import org.sonar.java.ast.api.JavaMetric;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourcePackage;
 
-public class FileVisitor extends JavaAstVisitor {
+public class FileVisitor extends JavaAstVisitor implements TokenOnlyVisitor {
 
   @Override
   public void visitFile(AstNode astNode) {
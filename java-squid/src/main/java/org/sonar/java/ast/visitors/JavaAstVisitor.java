@@ -55,4 +55,8 @@ public abstract class JavaAstVisitor extends SquidAstVisitor<JavaGrammar> {
     return sourceCode.getParent(SourceClass.class);
   }
 
+  protected final FileContent getFileContent() {
+    return ((VisitorContext) getContext()).getFileContent();
+  }
+
 }
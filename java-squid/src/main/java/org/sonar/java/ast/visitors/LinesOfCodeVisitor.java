@@ -31,7 +31,7 @@ import java.util.Set;
 
 import static com.sonar.sslr.api.GenericTokenType.EOF;
 
-public class LinesOfCodeVisitor extends JavaAstVisitor implements AstAndTokenVisitor {
+public class LinesOfCodeVisitor extends JavaAstVisitor implements AstAndTokenVisitor, TokenOnlyVisitor {
 
   private Set<Integer> lines = Sets.newHashSet();
 
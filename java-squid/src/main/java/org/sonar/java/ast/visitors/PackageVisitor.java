@@ -30,7 +30,7 @@ import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourcePackage;
 import org.sonar.squid.api.SourceProject;
 
-public class PackageVisitor extends JavaAstVisitor {
+public class PackageVisitor extends JavaAstVisitor implements TokenOnlyVisitor {
 
   @Override
   public void visitFile(AstNode astNode) {
@@ -0,0 +1,30 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+/**
+ * Visitor, which needs only tokens and comments of a file, but not its syntax tree.
+ * When all visitors are of this kind, {@link org.sonar.java.ast.AstScanner} does not parse files, but only lexes them:
+ * {@link com.sonar.sslr.squid.SquidAstVisitor#visitFile(com.sonar.sslr.api.AstNode)} receives node, which contains only
+ * package declaration (if any) and end of file, nodes of other types are never visited,
+ * and tokens are passed to {@link com.sonar.sslr.api.AstAndTokenVisitor#visitToken(com.sonar.sslr.api.Token)}.
+ */
+public interface TokenOnlyVisitor {
+}
@@ -28,6 +28,8 @@ import org.sonar.java.ast.api.JavaGrammar;
 import org.sonar.squid.api.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.Stack;
 
 /**
@@ -39,6 +41,8 @@ public class VisitorContext extends SquidAstVisitorContext<JavaGrammar> {
   private final SourceProject project;
   private JavaGrammar grammar;
   private File file;
+  private Charset charset;
+  private FileContent fileContent;
   private CommentAnalyser commentAnalyser;
 
   public VisitorContext(SourceProject project) {
@@ -85,6 +89,32 @@ public class VisitorContext extends SquidAstVisitorContext<JavaGrammar> {
   public void setFile(File file) {
     popTillSourceProject();
     this.file = file;
+    this.fileContent = null;
+  }
+
+  public void setCharset(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Should be called after {@link #setFile(File)}, when content of file was already read.
+   */
+  public void setFileContent(FileContent fileContent) {
+    this.fileContent = fileContent;
+  }
+
+  /**
+   * @return content of current file, which is read at most once
+   */
+  public FileContent getFileContent() {
+    if (fileContent == null) {
+      try {
+        fileContent = FileContent.read(file, charset);
+      } catch (IOException e) {
+        throw new AnalysisException("Unable to read file : '" + file.getAbsolutePath() + "'", e);
+      }
+    }
+    return fileContent;
   }
 
   private void popTillSourceProject() {
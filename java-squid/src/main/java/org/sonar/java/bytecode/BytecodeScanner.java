@@ -19,25 +19,41 @@
  */
 package org.sonar.java.bytecode;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.sonar.java.bytecode.asm.*;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.bytecode.visitor.BytecodeVisitor;
+import org.sonar.java.profiling.Profiler;
 import org.sonar.squid.api.CodeScanner;
+import org.sonar.squid.api.AnalysisException;
 import org.sonar.squid.api.CodeVisitor;
 import org.sonar.squid.api.SourceClass;
 import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.indexer.QueryByType;
 import org.sonar.squid.indexer.SquidIndex;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
 
   private SquidIndex indexer;
+  private int parallelism = 1;
+  private Profiler profiler;
+  private ClassSummaryCache classSummaryCache;
 
   public BytecodeScanner(SquidIndex indexer) {
     this.indexer = indexer;
@@ -46,7 +62,10 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
   public BytecodeScanner scan(Collection<File> bytecodeFilesOrDirectories) {
     Collection<SourceCode> classes = indexer.search(new QueryByType(SourceClass.class));
     ClassLoader classLoader = ClassLoaderBuilder.create(bytecodeFilesOrDirectories);
-    scan(classes, new AsmClassProviderImpl(classLoader));
+    AsmClassProvider classProvider = classSummaryCache == null
+        ? new ConcurrentAsmClassProvider(classLoader)
+        : new CachingAsmClassProvider(classLoader, classSummaryCache);
+    scan(classes, classProvider);
     // TODO unchecked cast
     ((SquidClassLoader) classLoader).close();
     return this;
@@ -57,28 +76,126 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
   }
 
   protected BytecodeScanner scan(Collection<SourceCode> classes, AsmClassProvider classProvider) {
+    Profiler.Phase phase = startPhase("Bytecode loading");
     loadByteCodeInformation(classes, classProvider);
+    stopPhase(phase);
+    phase = startPhase("Class hierarchy indexing");
+    ClassHierarchy classHierarchy = new ClassHierarchy(getAsmClasses(classes, classProvider));
+    stopPhase(phase);
+    phase = startPhase("Virtual methods linking");
     linkVirtualMethods(classes, classProvider);
-    notifyBytecodeVisitors(classes, classProvider);
+    stopPhase(phase);
+    phase = startPhase("Bytecode visitors");
+    notifyBytecodeVisitors(classes, classProvider, classHierarchy);
+    stopPhase(phase);
     return this;
   }
 
+  @Nullable
+  private Profiler.Phase startPhase(String phaseName) {
+    return profiler == null ? null : profiler.start(phaseName);
+  }
+
+  private static void stopPhase(@Nullable Profiler.Phase phase) {
+    if (phase != null) {
+      phase.stop();
+    }
+  }
+
   private void linkVirtualMethods(Collection<SourceCode> classes, AsmClassProvider classProvider) {
-    VirtualMethodsLinker linker = new VirtualMethodsLinker();
-    for (SourceCode sourceCode : classes) {
-      AsmClass asmClass = classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
-      for (AsmMethod method : asmClass.getMethods()) {
-        linker.process(method);
+    final VirtualMethodsLinker linker = new VirtualMethodsLinker();
+    AsmClassTask task = new AsmClassTask() {
+      public void run(AsmClass asmClass) {
+        for (AsmMethod method : asmClass.getMethods()) {
+          linker.process(method);
+        }
+      }
+    };
+    List<AsmClass> asmClasses = getAsmClasses(classes, classProvider);
+    if (parallelism > 1) {
+      runConcurrently(asmClasses, task, "Interrupted while linking virtual methods");
+    } else {
+      for (AsmClass asmClass : asmClasses) {
+        task.run(asmClass);
       }
     }
   }
 
-  private void notifyBytecodeVisitors(Collection<SourceCode> classes, AsmClassProvider classProvider) {
-    BytecodeVisitor[] visitorArray = getVisitors().toArray(new BytecodeVisitor[getVisitors().size()]);
+  private static List<AsmClass> getAsmClasses(Collection<SourceCode> classes, AsmClassProvider classProvider) {
+    List<AsmClass> asmClasses = Lists.newArrayList();
     for (SourceCode sourceCode : classes) {
-      AsmClass asmClass = classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
-      BytecodeVisitorNotifier visitorNotifier = new BytecodeVisitorNotifier(asmClass, visitorArray);
-      visitorNotifier.notifyVisitors(indexer);
+      asmClasses.add(classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS));
+    }
+    return asmClasses;
+  }
+
+  private void notifyBytecodeVisitors(Collection<SourceCode> classes, AsmClassProvider classProvider, ClassHierarchy classHierarchy) {
+    List<AsmClass> asmClasses = getAsmClasses(classes, classProvider);
+
+    List<BytecodeVisitor> concurrentVisitors = Lists.newArrayList();
+    List<BytecodeVisitor> sequentialVisitors = Lists.newArrayList();
+    for (BytecodeVisitor visitor : getVisitors()) {
+      visitor.setSquidIndex(indexer);
+      visitor.setClassHierarchy(classHierarchy);
+      if (profiler != null) {
+        visitor = new ProfilingBytecodeVisitor(visitor, profiler);
+      }
+      if (parallelism > 1 && visitor.isThreadSafe()) {
+        concurrentVisitors.add(visitor);
+      } else {
+        sequentialVisitors.add(visitor);
+      }
+    }
+
+    if (!concurrentVisitors.isEmpty()) {
+      notifyVisitorsConcurrently(asmClasses, concurrentVisitors.toArray(new BytecodeVisitor[concurrentVisitors.size()]));
+    }
+    BytecodeVisitor[] visitorArray = sequentialVisitors.toArray(new BytecodeVisitor[sequentialVisitors.size()]);
+    for (AsmClass asmClass : asmClasses) {
+      new BytecodeVisitorNotifier(asmClass, visitorArray).notifyVisitors();
+    }
+  }
+
+  private void notifyVisitorsConcurrently(List<AsmClass> asmClasses, final BytecodeVisitor[] visitorArray) {
+    runConcurrently(asmClasses, new AsmClassTask() {
+      public void run(AsmClass asmClass) {
+        new BytecodeVisitorNotifier(asmClass, visitorArray).notifyVisitors();
+      }
+    }, "Interrupted while visiting bytecode");
+  }
+
+  private interface AsmClassTask {
+    void run(AsmClass asmClass);
+  }
+
+  private void runConcurrently(List<AsmClass> asmClasses, final AsmClassTask task, String interruptionMessage) {
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("java-squid-bytecode-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      List<Future<?>> futures = Lists.newArrayList();
+      // Several classes per task to reduce overhead of scheduling
+      int partitionSize = Math.max(1, asmClasses.size() / (parallelism * 4));
+      for (final List<AsmClass> partition : Lists.partition(asmClasses, partitionSize)) {
+        futures.add(executor.submit(new Runnable() {
+          public void run() {
+            for (AsmClass asmClass : partition) {
+              task.run(asmClass);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException(interruptionMessage, e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
     }
   }
 
@@ -88,6 +205,32 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
     }
   }
 
+  /**
+   * When greater than one, virtual methods of different classes are linked concurrently, and visitors,
+   * which are {@link BytecodeVisitor#isThreadSafe() thread-safe}, are notified about different classes concurrently,
+   * and before all other visitors.
+   *
+   * @param parallelism number of threads to use for linking and for notification of visitors
+   */
+  public void setParallelism(int parallelism) {
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Enables measurement of phases of scan and of callbacks of visitors.
+   */
+  public void setProfiler(@Nullable Profiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * Enables loading of structure of classes from JAR files using summaries, which are stored in given cache.
+   */
+  public void setClassSummaryCache(@Nullable ClassSummaryCache classSummaryCache) {
+    this.classSummaryCache = classSummaryCache;
+  }
+
   @Override
   public Collection<Class<? extends BytecodeVisitor>> getVisitorClasses() {
     return Collections.emptyList();
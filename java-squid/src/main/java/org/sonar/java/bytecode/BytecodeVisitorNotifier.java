@@ -38,6 +38,13 @@ public class BytecodeVisitorNotifier {
     for (BytecodeVisitor visitor : bytecodeVisitors) {
       visitor.setSquidIndex(indexer);
     }
+    notifyVisitors();
+  }
+
+  /**
+   * Same as {@link #notifyVisitors(SquidIndex)}, but for visitors, which already have index.
+   */
+  public void notifyVisitors() {
     callVisitClass();
     callVisitMethodAndFieldAndEdge();
     callLeaveClass();
@@ -56,7 +63,9 @@ public class BytecodeVisitorNotifier {
   }
 
   private void callVisitEdgeForSpecificAsmResource(AsmResource resource) {
-    for (AsmEdge edge : resource.getOutgoingEdges()) {
+    int edgesCount = resource.getOutgoingEdgesCount();
+    for (int i = 0; i < edgesCount; i++) {
+      AsmEdge edge = resource.getOutgoingEdge(i);
       for (BytecodeVisitor visitor : bytecodeVisitors) {
         visitor.visitEdge(edge);
       }
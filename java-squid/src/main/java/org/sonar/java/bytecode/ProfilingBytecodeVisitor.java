@@ -0,0 +1,95 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode;
+
+import org.sonar.java.bytecode.asm.AsmClass;
+import org.sonar.java.bytecode.asm.AsmEdge;
+import org.sonar.java.bytecode.asm.AsmField;
+import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.visitor.BytecodeVisitor;
+import org.sonar.java.profiling.Profiler;
+
+/**
+ * Measures callbacks of visitor. Index and hierarchy of classes should be set on wrapped visitor.
+ */
+class ProfilingBytecodeVisitor extends BytecodeVisitor {
+
+  private final BytecodeVisitor visitor;
+  private final Profiler.Counter visitClassCounter;
+  private final Profiler.Counter visitMethodCounter;
+  private final Profiler.Counter visitFieldCounter;
+  private final Profiler.Counter visitEdgeCounter;
+  private final Profiler.Counter leaveClassCounter;
+
+  public ProfilingBytecodeVisitor(BytecodeVisitor visitor, Profiler profiler) {
+    this.visitor = visitor;
+    this.visitClassCounter = profiler.getCallbackCounter(visitor, "visitClass");
+    this.visitMethodCounter = profiler.getCallbackCounter(visitor, "visitMethod");
+    this.visitFieldCounter = profiler.getCallbackCounter(visitor, "visitField");
+    this.visitEdgeCounter = profiler.getCallbackCounter(visitor, "visitEdge");
+    this.leaveClassCounter = profiler.getCallbackCounter(visitor, "leaveClass");
+  }
+
+  @Override
+  public void visitClass(AsmClass asmClass) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.visitClass(asmClass);
+    visitClassCounter.add(startTime, startAllocatedBytes);
+  }
+
+  @Override
+  public void visitMethod(AsmMethod asmMethod) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.visitMethod(asmMethod);
+    visitMethodCounter.add(startTime, startAllocatedBytes);
+  }
+
+  @Override
+  public void visitField(AsmField asmField) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.visitField(asmField);
+    visitFieldCounter.add(startTime, startAllocatedBytes);
+  }
+
+  @Override
+  public void visitEdge(AsmEdge asmEdge) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.visitEdge(asmEdge);
+    visitEdgeCounter.add(startTime, startAllocatedBytes);
+  }
+
+  @Override
+  public void leaveClass(AsmClass asmClass) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = Profiler.getCurrentThreadAllocatedBytes();
+    visitor.leaveClass(asmClass);
+    leaveClassCounter.add(startTime, startAllocatedBytes);
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return visitor.isThreadSafe();
+  }
+
+}
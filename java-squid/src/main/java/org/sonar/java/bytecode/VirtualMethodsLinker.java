@@ -19,14 +19,17 @@
  */
 package org.sonar.java.bytecode;
 
-import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmMethod;
 
+/**
+ * Links methods, which are called on a class, but not declared by it, to their implementations in supertypes.
+ * Thread-safe, so different classes can be processed concurrently.
+ */
 public class VirtualMethodsLinker {
 
   public void process(AsmMethod method) {
     if (!method.isBodyLoaded() && method.isUsed()) {
-      AsmMethod implementation = findImplementation(method.getParent(), method.getKey());
+      AsmMethod implementation = method.getParent().resolveMethod(method.getKey());
       if (implementation != null) {
         implementation.setUsed(true);
         method.linkTo(implementation);
@@ -34,15 +37,4 @@ public class VirtualMethodsLinker {
     }
   }
 
-  private AsmMethod findImplementation(AsmClass asmClass, String methodKey) {
-    AsmMethod method = asmClass.getMethod(methodKey);
-    if (method != null && method.isBodyLoaded()) {
-      return method;
-    }
-    if (asmClass.getSuperClass() != null) {
-      return findImplementation(asmClass.getSuperClass(), methodKey);
-    }
-    return null;
-  }
-
 }
@@ -23,16 +23,30 @@ import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 import org.sonar.squid.api.SourceCodeEdgeUsage;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public final class AsmClass extends AsmResource {
 
+  /**
+   * Marks methods, which can't be resolved, in {@link #resolvedMethods}.
+   */
+  private static final Object UNRESOLVED = new Object();
+
   private String internalName;
-  private DETAIL_LEVEL level;
+  /**
+   * Volatile, because can be checked without synchronization by {@link ConcurrentAsmClassProvider}.
+   */
+  private volatile DETAIL_LEVEL level;
   private AsmClass superClass;
   private Set<AsmClass> children;
   private Map<String, AsmMethod> methods = new HashMap<String, AsmMethod>();
   private Map<String, AsmField> fields = new HashMap<String, AsmField>();
-  private int noc = 0;
+  private volatile int noc = 0;
+  /**
+   * Memoized results of {@link #resolveMethod(String)}, created on demand.
+   */
+  private volatile ConcurrentMap<String, Object> resolvedMethods;
 
   public AsmClass(String internalName, DETAIL_LEVEL level) {
     this.internalName = internalName;
@@ -89,6 +103,65 @@ public final class AsmClass extends AsmResource {
     return methods.get(key);
   }
 
+  /**
+   * Resolves method as JVM does for virtual call: method declared by this class, or else by closest superclass, or else by implemented interfaces.
+   * Methods, which are only called (i.e. {@link AsmMethod#isBodyLoaded() not loaded}), are not taken into account.
+   * Result is memoized as soon as this class is loaded, so each method is resolved only once for each class of hierarchy.
+   * Thread-safe, as long as classes of hierarchy are not being loaded concurrently.
+   *
+   * @return declaration of method with given key, or null if not found
+   */
+  public AsmMethod resolveMethod(String key) {
+    ConcurrentMap<String, Object> table = getResolvedMethods();
+    Object result = table.get(key);
+    if (result == null) {
+      AsmMethod method = doResolveMethod(key);
+      if (level != DETAIL_LEVEL.NOTHING) {
+        // Methods of class, which is not loaded yet, might be unknown
+        table.putIfAbsent(key, method == null ? UNRESOLVED : method);
+      }
+      return method;
+    }
+    return result == UNRESOLVED ? null : (AsmMethod) result;
+  }
+
+  private AsmMethod doResolveMethod(String key) {
+    AsmMethod method = getMethod(key);
+    if (method != null && method.isBodyLoaded()) {
+      return method;
+    }
+    if (superClass != null) {
+      method = superClass.resolveMethod(key);
+      if (method != null) {
+        return method;
+      }
+    }
+    for (int i = 0; i < getOutgoingEdgesCount(); i++) {
+      if (getOutgoingEdgeUsage(i) == SourceCodeEdgeUsage.IMPLEMENTS) {
+        method = ((AsmClass) getOutgoingEdgeTarget(i)).resolveMethod(key);
+        if (method != null) {
+          return method;
+        }
+      }
+    }
+    return null;
+  }
+
+  private ConcurrentMap<String, Object> getResolvedMethods() {
+    ConcurrentMap<String, Object> result = resolvedMethods;
+    if (result == null) {
+      synchronized (this) {
+        result = resolvedMethods;
+        if (result == null) {
+          // Small concurrency level to reduce memory consumption, because most of classes have only a few entries
+          result = new ConcurrentHashMap<String, Object>(4, 0.75f, 1);
+          resolvedMethods = result;
+        }
+      }
+    }
+    return result;
+  }
+
   AsmMethod getMethodOrCreateIt(String key) {
     AsmMethod method = getMethod(key);
     if (method != null) {
@@ -103,7 +176,7 @@ public final class AsmClass extends AsmResource {
   void setSuperClass(AsmClass superClass) {
     this.superClass = superClass;
     superClass.addChildren(this);
-    addEdge(new AsmEdge(this, superClass, SourceCodeEdgeUsage.EXTENDS));
+    addEdge(superClass, SourceCodeEdgeUsage.EXTENDS, 0);
   }
 
   private void addChildren(AsmClass asmClass) {
@@ -116,13 +189,20 @@ public final class AsmClass extends AsmResource {
     children.add(asmClass);
   }
 
+  /**
+   * @return classes, which extend or implement this class, or <code>null</code> if there are none
+   */
+  Set<AsmClass> getChildren() {
+    return children;
+  }
+
   public AsmClass getSuperClass() {
     return superClass;
   }
 
   void addInterface(AsmClass implementedInterface) {
     implementedInterface.addChildren(this);
-    addEdge(new AsmEdge(this, implementedInterface, SourceCodeEdgeUsage.IMPLEMENTS));
+    addEdge(implementedInterface, SourceCodeEdgeUsage.IMPLEMENTS, 0);
   }
 
   Set<AsmClass> getInterfaces() {
@@ -147,9 +227,12 @@ public final class AsmClass extends AsmResource {
 
   public int getNumberOfChildren() {
     if (children != null && noc == 0) {
+      // Computed in local variable, so that concurrent calls never observe partial result
+      int result = 0;
       for (AsmClass child : children) {
-        noc += child.getNumberOfChildren() + 1;
+        result += child.getNumberOfChildren() + 1;
       }
+      noc = result;
     }
     return noc;
   }
@@ -19,6 +19,8 @@
  */
 package org.sonar.java.bytecode.asm;
 
+import org.objectweb.asm.ClassReader;
+
 public abstract class AsmClassProvider {
 
   public enum DETAIL_LEVEL {
@@ -46,8 +48,30 @@ public abstract class AsmClassProvider {
     }
   }
 
+  private final AsmSymbolTable symbolTable = new AsmSymbolTable();
+
   public abstract AsmClass getClass(String internalName, DETAIL_LEVEL level);
 
+  /**
+   * @return canonical representation of given name, key or signature, which is shared by all classes of this provider
+   */
+  final String intern(String symbol) {
+    return symbolTable.intern(symbol);
+  }
+
+  /**
+   * Code of methods, debug information and stack map frames are used only for {@link DETAIL_LEVEL#STRUCTURE_AND_CALLS},
+   * i.e. for classes of project, so skipped for other levels, which are typically requested for classes from libraries.
+   *
+   * @return parsing options for {@link ClassReader#accept(org.objectweb.asm.ClassVisitor, int)}
+   */
+  static int getParsingOptions(DETAIL_LEVEL level) {
+    if (level == DETAIL_LEVEL.STRUCTURE_AND_CALLS) {
+      return 0;
+    }
+    return ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+  }
+
   public final AsmClass getClass(String internalName) {
     return getClass(internalName, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
   }
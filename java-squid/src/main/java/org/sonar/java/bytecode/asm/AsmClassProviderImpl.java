@@ -71,7 +71,7 @@ public class AsmClassProviderImpl extends AsmClassProvider {
       AsmClassVisitor classVisitor = new AsmClassVisitor(this, asmClass, level);
       input = classLoader.getResourceAsStream(asmClass.getInternalName() + ".class");
       ClassReader asmReader = new ClassReader(input);
-      asmReader.accept(classVisitor, 0);
+      asmReader.accept(classVisitor, getParsingOptions(level));
 
     } catch (IOException e) {
       logger.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader.");
@@ -62,7 +62,7 @@ public class AsmClassVisitor extends EmptyVisitor {
 
   @Override
   public FieldVisitor visitField(int access, String fieldName, String description, String signature, Object value) {
-    AsmField field = asmClass.getFieldOrCreateIt(fieldName);
+    AsmField field = asmClass.getFieldOrCreateIt(asmClassProvider.intern(fieldName));
     field.setAccessFlags(access);
     String[] internalNames = AsmSignature.extractInternalNames(description, signature);
     AsmClass[] asmClasses = internalNamesToAsmClasses(internalNames, DETAIL_LEVEL.NOTHING);
@@ -72,11 +72,11 @@ public class AsmClassVisitor extends EmptyVisitor {
 
   @Override
   public MethodVisitor visitMethod(int access, String methodName, String description, String signature, String[] exceptions) {
-    AsmMethod method = asmClass.getMethodOrCreateIt(methodName + description);
+    AsmMethod method = asmClass.getMethodOrCreateIt(asmClassProvider.intern(methodName + description));
     if (isInheritedMethodSignature(method.getParent(), method.getKey())) {
       method.setInherited(true);
     }
-    method.setSignature(signature);
+    method.setSignature(signature == null ? null : asmClassProvider.intern(signature));
     method.setBodyLoaded(true);
     method.setAccessFlags(access);
     String[] internalNames = AsmSignature.extractInternalNames(description, signature);
@@ -106,16 +106,22 @@ public class AsmClassVisitor extends EmptyVisitor {
     return asmClasses;
   }
 
+  /**
+   * Method is inherited, if it is declared by a supertype, or if it was called on a direct supertype (e.g. on a class, which can't be loaded).
+   */
   private boolean isInheritedMethodSignature(AsmClass parent, String key) {
-    if (parent.getSuperClass() != null
-        && (parent.getSuperClass().getMethod(key) != null || isInheritedMethodSignature(parent.getSuperClass(), key))) {
+    if (parent.getSuperClass() != null && isDeclaredOrCalled(parent.getSuperClass(), key)) {
       return true;
     }
     for (AsmClass interfaceClass : parent.getInterfaces()) {
-      if (interfaceClass.getMethod(key) != null || isInheritedMethodSignature(interfaceClass, key)) {
+      if (isDeclaredOrCalled(interfaceClass, key)) {
         return true;
       }
     }
     return false;
   }
+
+  private static boolean isDeclaredOrCalled(AsmClass asmClass, String key) {
+    return asmClass.getMethod(key) != null || asmClass.resolveMethod(key) != null;
+  }
 }
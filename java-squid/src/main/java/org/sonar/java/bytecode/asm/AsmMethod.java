@@ -26,8 +26,10 @@ import java.util.List;
 
 public class AsmMethod extends AsmResource {
 
-  private String name;
-  private String key;
+  /**
+   * Name of method followed by its descriptor. Name is not stored separately to reduce memory consumption.
+   */
+  private final String key;
   private boolean inherited = false;
   private boolean empty = false;
   private boolean bodyLoaded = true;
@@ -40,18 +42,16 @@ public class AsmMethod extends AsmResource {
 
   public AsmMethod(AsmClass parent, String name, String descriptor) {
     this.parent = parent;
-    this.name = name;
     key = name + descriptor;
   }
 
   public AsmMethod(AsmClass parent, String key) {
     this.parent = parent;
     this.key = key;
-    this.name = key.substring(0, key.indexOf('('));
   }
 
   public String getName() {
-    return name;
+    return key.substring(0, key.indexOf('('));
   }
 
   public String getKey() {
@@ -60,7 +60,7 @@ public class AsmMethod extends AsmResource {
 
   public String getGenericKey() {
     if (signature != null) {
-      return name + signature;
+      return getName() + signature;
     }
     return getKey();
   }
@@ -75,9 +75,9 @@ public class AsmMethod extends AsmResource {
 
   public List<AsmField> getCallsToField() {
     List<AsmField> callsToField = new ArrayList<AsmField>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.CALLS_FIELD) {
-        callsToField.add((AsmField) usage.getTo());
+    for (int i = 0; i < getOutgoingEdgesCount(); i++) {
+      if (getOutgoingEdgeUsage(i) == SourceCodeEdgeUsage.CALLS_FIELD) {
+        callsToField.add((AsmField) getOutgoingEdgeTarget(i));
       }
     }
     return callsToField;
@@ -85,9 +85,9 @@ public class AsmMethod extends AsmResource {
 
   public List<AsmMethod> getCallsToMethod() {
     List<AsmMethod> callsToMethod = new ArrayList<AsmMethod>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.CALLS_METHOD) {
-        callsToMethod.add((AsmMethod) usage.getTo());
+    for (int i = 0; i < getOutgoingEdgesCount(); i++) {
+      if (getOutgoingEdgeUsage(i) == SourceCodeEdgeUsage.CALLS_METHOD) {
+        callsToMethod.add((AsmMethod) getOutgoingEdgeTarget(i));
       }
     }
     return callsToMethod;
@@ -111,7 +111,7 @@ public class AsmMethod extends AsmResource {
   }
 
   public boolean isConstructor() {
-    return "<init>".equals(name) || "<clinit>".equals(name);
+    return key.startsWith("<init>(") || key.startsWith("<clinit>(");
   }
 
   public boolean isDefaultConstructor() {
@@ -146,40 +146,45 @@ public class AsmMethod extends AsmResource {
     return getAccessedField() != null;
   }
 
+  /**
+   * Computation may involve other methods of the same class, so synchronized on class to allow concurrent calls.
+   */
   public AsmField getAccessedField() {
-    if (accessedFieldComputed) {
-      return accessedField;
-    }
-    if (accessedFieldBeingComputed) {
-      // Do not set accessedField here, because the pending computeAccessedField() will overwrite it anyway
-      accessedFieldIsThisMethodRecursive = true;
-      return null;
-    } else {
-      // Prevents infinite recursion on recursive methods:
-      accessedFieldBeingComputed = true;
-      computeAccessedField();
-      if (accessedFieldIsThisMethodRecursive) {
-        // We already returned null previously during the computation, so we must return null for consistency
-        accessedField = null;
+    synchronized (getParent()) {
+      if (accessedFieldComputed) {
+        return accessedField;
       }
-      accessedFieldComputed = true;
-      accessedFieldBeingComputed = false;
+      if (accessedFieldBeingComputed) {
+        // Do not set accessedField here, because the pending computeAccessedField() will overwrite it anyway
+        accessedFieldIsThisMethodRecursive = true;
+        return null;
+      } else {
+        // Prevents infinite recursion on recursive methods:
+        accessedFieldBeingComputed = true;
+        computeAccessedField();
+        if (accessedFieldIsThisMethodRecursive) {
+          // We already returned null previously during the computation, so we must return null for consistency
+          accessedField = null;
+        }
+        accessedFieldComputed = true;
+        accessedFieldBeingComputed = false;
 
-      return accessedField;
+        return accessedField;
+      }
     }
   }
 
   private void computeAccessedField() {
     if (!isConstructor()) {
-      for (AsmEdge edge : getOutgoingEdges()) {
-        if (isCallToNonStaticInternalField(edge)) {
-          if (isFieldAccesingDifferentField((AsmField) edge.getTo())) {
+      for (int i = 0; i < getOutgoingEdgesCount(); i++) {
+        if (isCallToNonStaticInternalField(i)) {
+          if (isFieldAccesingDifferentField((AsmField) getOutgoingEdgeTarget(i))) {
             accessedField = null;
             break;
           }
-          accessedField = (AsmField) edge.getTo();
-        } else if (isCallToNonStaticInternalMethod(edge)) {
-          AsmMethod method = (AsmMethod) edge.getTo();
+          accessedField = (AsmField) getOutgoingEdgeTarget(i);
+        } else if (isCallToNonStaticInternalMethod(i)) {
+          AsmMethod method = (AsmMethod) getOutgoingEdgeTarget(i);
           if (isMethodNotAccessorOrAccessingDifferentField(method)) {
             accessedField = null;
             break;
@@ -198,12 +203,14 @@ public class AsmMethod extends AsmResource {
     return accessedField != null && accessedField != field;
   }
 
-  private boolean isCallToNonStaticInternalField(AsmEdge edge) {
-    return edge.getTargetAsmClass() == getParent() && edge.getUsage() == SourceCodeEdgeUsage.CALLS_FIELD && !((AsmField) edge.getTo()).isStatic();
+  private boolean isCallToNonStaticInternalField(int edgeIndex) {
+    return getOutgoingEdgeTargetClass(edgeIndex) == getParent() && getOutgoingEdgeUsage(edgeIndex) == SourceCodeEdgeUsage.CALLS_FIELD
+        && !getOutgoingEdgeTarget(edgeIndex).isStatic();
   }
 
-  private boolean isCallToNonStaticInternalMethod(AsmEdge edge) {
-    return edge.getTargetAsmClass() == getParent() && edge.getUsage() == SourceCodeEdgeUsage.CALLS_METHOD && !((AsmMethod) edge.getTo()).isStatic();
+  private boolean isCallToNonStaticInternalMethod(int edgeIndex) {
+    return getOutgoingEdgeTargetClass(edgeIndex) == getParent() && getOutgoingEdgeUsage(edgeIndex) == SourceCodeEdgeUsage.CALLS_METHOD
+        && !getOutgoingEdgeTarget(edgeIndex).isStatic();
   }
 
   @Override
@@ -212,7 +219,7 @@ public class AsmMethod extends AsmResource {
   }
 
   public boolean isStaticConstructor() {
-    return "<init>".equals(name);
+    return key.startsWith("<init>(");
   }
 
   public void linkTo(AsmMethod implementationLinkage) {
@@ -28,7 +28,22 @@ public class AsmResource {
   private int accessFlags;
   AsmClass parent;
   boolean used = false;
-  private List<AsmEdge> outgoingEdges = new ArrayList<AsmEdge>();
+
+  private static final SourceCodeEdgeUsage[] USAGES = SourceCodeEdgeUsage.values();
+  private static final int INITIAL_EDGES_CAPACITY = 4;
+
+  /**
+   * Maximal number of preceding edges with the same line number, which are checked to detect duplicates.
+   */
+  private static final int MAX_DUPLICATES_LOOKUP = 32;
+
+  /**
+   * Outgoing edges are stored in parallel arrays instead of list of {@link AsmEdge} to reduce memory consumption.
+   */
+  private AsmResource[] edgeTargets;
+  private byte[] edgeUsages;
+  private int[] edgeLines;
+  private int edgesCount = 0;
 
   void setAccessFlags(int accessFlags) {
     this.accessFlags = accessFlags;
@@ -36,15 +51,15 @@ public class AsmResource {
 
   void addUsesOfClasses(AsmClass[] asmClasses) {
     for (AsmClass asmClass : asmClasses) {
-      addEdge(new AsmEdge(this, asmClass, SourceCodeEdgeUsage.USES));
+      addEdge(asmClass, SourceCodeEdgeUsage.USES, 0);
     }
   }
 
   public Set<AsmClass> getDistinctUsedAsmClasses() {
     Set<AsmClass> distinctUsedAsmClasses = new HashSet<AsmClass>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.USES) {
-        distinctUsedAsmClasses.add((AsmClass) usage.getTo());
+    for (int i = 0; i < edgesCount; i++) {
+      if (getOutgoingEdgeUsage(i) == SourceCodeEdgeUsage.USES) {
+        distinctUsedAsmClasses.add((AsmClass) edgeTargets[i]);
       }
     }
     return distinctUsedAsmClasses;
@@ -52,20 +67,99 @@ public class AsmResource {
 
   public Set<AsmClass> getImplementedInterfaces() {
     Set<AsmClass> implementedInterfaces = new HashSet<AsmClass>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.IMPLEMENTS) {
-        implementedInterfaces.add((AsmClass) usage.getTo());
+    for (int i = 0; i < edgesCount; i++) {
+      if (getOutgoingEdgeUsage(i) == SourceCodeEdgeUsage.IMPLEMENTS) {
+        implementedInterfaces.add((AsmClass) edgeTargets[i]);
       }
     }
     return implementedInterfaces;
   }
 
   public void addEdge(AsmEdge edge) {
-    outgoingEdges.add(edge);
+    addEdge(edge.getTo(), edge.getUsage(), edge.getSourceLineNumber());
+  }
+
+  /**
+   * Edge is ignored, if there is already edge with the same target, usage and line number.
+   */
+  void addEdge(AsmResource to, SourceCodeEdgeUsage usage, int sourceLineNumber) {
+    to.setUsed(true);
+    byte usageCode = (byte) usage.ordinal();
+    int lookupLimit = Math.max(0, edgesCount - MAX_DUPLICATES_LOOKUP);
+    for (int i = edgesCount - 1; i >= lookupLimit && edgeLines[i] == sourceLineNumber; i--) {
+      if (edgeTargets[i] == to && edgeUsages[i] == usageCode) {
+        return;
+      }
+    }
+    ensureEdgesCapacity();
+    edgeTargets[edgesCount] = to;
+    edgeUsages[edgesCount] = usageCode;
+    edgeLines[edgesCount] = sourceLineNumber;
+    edgesCount++;
+  }
+
+  private void ensureEdgesCapacity() {
+    if (edgeTargets == null) {
+      edgeTargets = new AsmResource[INITIAL_EDGES_CAPACITY];
+      edgeUsages = new byte[INITIAL_EDGES_CAPACITY];
+      edgeLines = new int[INITIAL_EDGES_CAPACITY];
+    } else if (edgesCount == edgeTargets.length) {
+      int capacity = edgesCount + (edgesCount >> 1);
+      AsmResource[] newTargets = new AsmResource[capacity];
+      byte[] newUsages = new byte[capacity];
+      int[] newLines = new int[capacity];
+      System.arraycopy(edgeTargets, 0, newTargets, 0, edgesCount);
+      System.arraycopy(edgeUsages, 0, newUsages, 0, edgesCount);
+      System.arraycopy(edgeLines, 0, newLines, 0, edgesCount);
+      edgeTargets = newTargets;
+      edgeUsages = newUsages;
+      edgeLines = newLines;
+    }
   }
 
+  /**
+   * Creates new {@link AsmEdge} for each outgoing edge,
+   * so methods {@link #getOutgoingEdgesCount()}, {@link #getOutgoingEdgeTarget(int)}, {@link #getOutgoingEdgeUsage(int)}
+   * and {@link #getOutgoingEdgeLine(int)} should be preferred when possible.
+   */
   public Collection<AsmEdge> getOutgoingEdges() {
-    return outgoingEdges;
+    List<AsmEdge> result = new ArrayList<AsmEdge>(edgesCount);
+    for (int i = 0; i < edgesCount; i++) {
+      result.add(getOutgoingEdge(i));
+    }
+    return result;
+  }
+
+  public int getOutgoingEdgesCount() {
+    return edgesCount;
+  }
+
+  /**
+   * Creates new {@link AsmEdge} on each call.
+   */
+  public AsmEdge getOutgoingEdge(int index) {
+    return new AsmEdge(this, edgeTargets[index], getOutgoingEdgeUsage(index), edgeLines[index]);
+  }
+
+  public AsmResource getOutgoingEdgeTarget(int index) {
+    return edgeTargets[index];
+  }
+
+  public SourceCodeEdgeUsage getOutgoingEdgeUsage(int index) {
+    return USAGES[edgeUsages[index]];
+  }
+
+  public int getOutgoingEdgeLine(int index) {
+    return edgeLines[index];
+  }
+
+  /**
+   * @return class, which contains target of outgoing edge, or target itself if this is a class
+   * @see AsmEdge#getTargetAsmClass()
+   */
+  public AsmClass getOutgoingEdgeTargetClass(int index) {
+    AsmResource to = edgeTargets[index];
+    return to.getParent() != null ? to.getParent() : (AsmClass) to;
   }
 
   public AsmClass getParent() {
@@ -0,0 +1,44 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Table of names, keys and signatures of fields and methods.
+ * Same symbols appear in a lot of classes (e.g. "&lt;init&gt;()V" or "toString()Ljava/lang/String;"),
+ * whereas ASM creates new string for each of them, so that canonical instance is kept instead.
+ * Thread-safe.
+ */
+class AsmSymbolTable {
+
+  private final ConcurrentMap<String, String> symbols = new ConcurrentHashMap<String, String>();
+
+  public String intern(String symbol) {
+    String result = symbols.putIfAbsent(symbol, symbol);
+    return result == null ? symbol : result;
+  }
+
+  public int size() {
+    return symbols.size();
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+/**
+ * Thread-safe implementation of {@link AsmClassProvider}, which loads structure of classes from JAR files
+ * (i.e. classes from libraries) using {@link ClassSummaryCache} instead of parsing of their bytecode.
+ * Classes requested with {@link DETAIL_LEVEL#STRUCTURE_AND_CALLS} and classes from directories are loaded as by {@link ConcurrentAsmClassProvider}.
+ */
+public class CachingAsmClassProvider extends ConcurrentAsmClassProvider {
+
+  private final ClassLoader classLoader;
+  private final ClassSummaryCache cache;
+
+  public CachingAsmClassProvider(ClassLoader classLoader, ClassSummaryCache cache) {
+    super(classLoader);
+    this.classLoader = classLoader;
+    this.cache = cache;
+  }
+
+  @Override
+  protected void decorateAsmClassFromBytecode(AsmClass asmClass, DETAIL_LEVEL level) {
+    if (level != DETAIL_LEVEL.STRUCTURE_AND_CALLS) {
+      ClassSummary summary = getSummary(asmClass.getInternalName());
+      if (summary != null) {
+        summary.accept(new AsmClassVisitor(this, asmClass, level));
+        return;
+      }
+    }
+    super.decorateAsmClassFromBytecode(asmClass, level);
+  }
+
+  private ClassSummary getSummary(String internalName) {
+    URL url = classLoader.getResource(internalName + ".class");
+    if (url == null) {
+      return null;
+    }
+    File jarFile = getJarFile(url);
+    return jarFile == null ? null : cache.get(jarFile, internalName);
+  }
+
+  /**
+   * @return JAR file, which contains resource with given URL, or null if resource is not in a JAR file
+   */
+  @VisibleForTesting
+  static File getJarFile(URL url) {
+    if (!"jar".equals(url.getProtocol())) {
+      return null;
+    }
+    String path = url.getPath();
+    int separator = path.indexOf("!/");
+    if (separator < 0) {
+      return null;
+    }
+    String jarPath = path.substring(0, separator);
+    if (!jarPath.startsWith("file:")) {
+      // URL created by org.sonar.java.bytecode.loader.JarLoader
+      return new File(jarPath);
+    }
+    try {
+      return new File(new URI(jarPath));
+    } catch (URISyntaxException e) {
+      return null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+}
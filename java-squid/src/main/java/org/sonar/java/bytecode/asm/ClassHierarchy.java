@@ -0,0 +1,266 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of hierarchy of classes, which is built once after loading of bytecode and answers in constant time
+ * questions about depth of inheritance, number of children and subclasses.
+ * Contains given classes and all classes connected to them by inheritance (superclasses, interfaces and children),
+ * which are identified by dense ids, so that all relations are stored in arrays of primitives.
+ * Immutable, and so thread-safe.
+ */
+public final class ClassHierarchy {
+
+  private static final int NONE = -1;
+
+  private final Map<AsmClass, Integer> ids = Maps.newHashMap();
+  /**
+   * Id of superclass for each class, or {@link #NONE}.
+   */
+  private final int[] superClasses;
+  private final int[] depthsOfInheritance;
+  private final int[] numbersOfChildren;
+  /**
+   * Position of each class in pre-order traversal of tree of superclasses,
+   * so that subclasses of a class occupy range of positions of size {@link #subtreeSizes} right after it.
+   */
+  private final int[] preOrder;
+  private final int[] subtreeSizes;
+
+  public ClassHierarchy(Collection<AsmClass> classes) {
+    List<AsmClass> nodes = collect(classes);
+    int size = nodes.size();
+
+    superClasses = new int[size];
+    // Children in compressed form: children of class i are childIds[childStarts[i]] .. childIds[childStarts[i + 1] - 1]
+    int[] childStarts = new int[size + 1];
+    List<AsmClass> children = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      AsmClass asmClass = nodes.get(i);
+      superClasses[i] = asmClass.getSuperClass() == null ? NONE : ids.get(asmClass.getSuperClass());
+      childStarts[i] = children.size();
+      Set<AsmClass> classChildren = asmClass.getChildren();
+      if (classChildren != null) {
+        children.addAll(classChildren);
+      }
+    }
+    childStarts[size] = children.size();
+    int[] childIds = new int[children.size()];
+    for (int i = 0; i < childIds.length; i++) {
+      childIds[i] = ids.get(children.get(i));
+    }
+
+    depthsOfInheritance = computeDepthsOfInheritance(superClasses);
+    numbersOfChildren = computeNumbersOfChildren(childStarts, childIds);
+    subtreeSizes = new int[size];
+    preOrder = new int[size];
+    computePreOrder(superClasses, depthsOfInheritance, preOrder, subtreeSizes);
+  }
+
+  /**
+   * Breadth-first traversal of inheritance relations, which assigns ids in order of discovery.
+   */
+  private List<AsmClass> collect(Collection<AsmClass> classes) {
+    List<AsmClass> nodes = Lists.newArrayList();
+    for (AsmClass asmClass : classes) {
+      add(nodes, asmClass);
+    }
+    for (int i = 0; i < nodes.size(); i++) {
+      AsmClass asmClass = nodes.get(i);
+      add(nodes, asmClass.getSuperClass());
+      for (AsmClass implementedInterface : asmClass.getImplementedInterfaces()) {
+        add(nodes, implementedInterface);
+      }
+      Set<AsmClass> classChildren = asmClass.getChildren();
+      if (classChildren != null) {
+        for (AsmClass child : classChildren) {
+          add(nodes, child);
+        }
+      }
+    }
+    return nodes;
+  }
+
+  private void add(List<AsmClass> nodes, AsmClass asmClass) {
+    if (asmClass != null && !ids.containsKey(asmClass)) {
+      ids.put(asmClass, nodes.size());
+      nodes.add(asmClass);
+    }
+  }
+
+  private static int[] computeDepthsOfInheritance(int[] superClasses) {
+    int size = superClasses.length;
+    int[] depths = new int[size];
+    Arrays.fill(depths, NONE);
+    int[] path = new int[size];
+    for (int i = 0; i < size; i++) {
+      // Walk up to the first class with known depth, then assign depths on the way back
+      int pathLength = 0;
+      int current = i;
+      while (current != NONE && depths[current] == NONE && pathLength < size) {
+        path[pathLength++] = current;
+        current = superClasses[current];
+      }
+      // Depth is unknown only when superclasses form a cycle, which can appear only in inconsistent bytecode
+      int depth = current == NONE || depths[current] == NONE ? -1 : depths[current];
+      while (pathLength > 0) {
+        depth++;
+        depths[path[--pathLength]] = depth;
+      }
+    }
+    return depths;
+  }
+
+  /**
+   * Number of children is defined recursively as sum of numbers of children of direct children plus one for each direct child,
+   * so computed in reverse topological order of children relation.
+   */
+  private static int[] computeNumbersOfChildren(int[] childStarts, int[] childIds) {
+    int size = childStarts.length - 1;
+    int[] parentsCount = new int[size];
+    for (int childId : childIds) {
+      parentsCount[childId]++;
+    }
+    int[] order = new int[size];
+    int orderLength = 0;
+    for (int i = 0; i < size; i++) {
+      if (parentsCount[i] == 0) {
+        order[orderLength++] = i;
+      }
+    }
+    for (int k = 0; k < orderLength; k++) {
+      int current = order[k];
+      for (int j = childStarts[current]; j < childStarts[current + 1]; j++) {
+        if (--parentsCount[childIds[j]] == 0) {
+          order[orderLength++] = childIds[j];
+        }
+      }
+    }
+    // Classes on a cycle are never ordered and so have no children
+    int[] result = new int[size];
+    for (int k = orderLength - 1; k >= 0; k--) {
+      int current = order[k];
+      int noc = 0;
+      for (int j = childStarts[current]; j < childStarts[current + 1]; j++) {
+        noc += result[childIds[j]] + 1;
+      }
+      result[current] = noc;
+    }
+    return result;
+  }
+
+  /**
+   * Sizes of subtrees are computed from the deepest classes to the roots, and then positions are assigned from the roots to the deepest classes,
+   * each subclass taking the next free range inside of range of its superclass.
+   */
+  private static void computePreOrder(int[] superClasses, int[] depths, int[] preOrder, int[] subtreeSizes) {
+    int size = superClasses.length;
+    int[] byDepth = sortByDepth(depths);
+    for (int k = size - 1; k >= 0; k--) {
+      int current = byDepth[k];
+      subtreeSizes[current]++;
+      if (superClasses[current] != NONE) {
+        subtreeSizes[superClasses[current]] += subtreeSizes[current];
+      }
+    }
+    int[] nextFree = new int[size];
+    int nextRoot = 0;
+    for (int k = 0; k < size; k++) {
+      int current = byDepth[k];
+      int superClass = superClasses[current];
+      if (superClass == NONE) {
+        preOrder[current] = nextRoot;
+        nextRoot += subtreeSizes[current];
+      } else {
+        preOrder[current] = nextFree[superClass];
+        nextFree[superClass] += subtreeSizes[current];
+      }
+      nextFree[current] = preOrder[current] + 1;
+    }
+  }
+
+  private static int[] sortByDepth(int[] depths) {
+    int maxDepth = 0;
+    for (int depth : depths) {
+      maxDepth = Math.max(maxDepth, depth);
+    }
+    int[] starts = new int[maxDepth + 2];
+    for (int depth : depths) {
+      starts[depth + 1]++;
+    }
+    for (int d = 0; d <= maxDepth; d++) {
+      starts[d + 1] += starts[d];
+    }
+    int[] result = new int[depths.length];
+    for (int i = 0; i < depths.length; i++) {
+      result[starts[depths[i]]++] = i;
+    }
+    return result;
+  }
+
+  private int getId(AsmClass asmClass) {
+    Integer id = ids.get(asmClass);
+    if (id == null) {
+      throw new IllegalArgumentException("Class " + asmClass.getInternalName() + " is not part of hierarchy");
+    }
+    return id;
+  }
+
+  public boolean contains(AsmClass asmClass) {
+    return ids.containsKey(asmClass);
+  }
+
+  /**
+   * @return number of superclasses of given class, i.e. 0 for java.lang.Object and for classes without loaded superclass
+   */
+  public int getDepthOfInheritance(AsmClass asmClass) {
+    return depthsOfInheritance[getId(asmClass)];
+  }
+
+  /**
+   * @return same as {@link AsmClass#getNumberOfChildren()}
+   */
+  public int getNumberOfChildren(AsmClass asmClass) {
+    return numbersOfChildren[getId(asmClass)];
+  }
+
+  /**
+   * @return <code>true</code> if second class appears in chain of superclasses of first class
+   */
+  public boolean isSubclassOf(AsmClass asmClass, AsmClass superClass) {
+    int id = getId(asmClass);
+    int superClassId = getId(superClass);
+    return preOrder[superClassId] < preOrder[id] && preOrder[id] < preOrder[superClassId] + subtreeSizes[superClassId];
+  }
+
+  public int size() {
+    return superClasses.length;
+  }
+
+}
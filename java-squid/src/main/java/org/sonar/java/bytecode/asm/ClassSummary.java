@@ -0,0 +1,119 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.collect.Lists;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.commons.EmptyVisitor;
+
+import java.util.List;
+
+/**
+ * Everything what {@link AsmClassVisitor} uses to load class with {@link AsmClassProvider.DETAIL_LEVEL#STRUCTURE}:
+ * header of class with superclass and interfaces, and declarations of fields and methods.
+ * Can be {@link #accept(ClassVisitor) replayed} instead of parsing of bytecode.
+ */
+final class ClassSummary {
+
+  final String name;
+  final int access;
+  final String signature;
+  final String superName;
+  final String[] interfaces;
+  final List<Member> fields = Lists.newArrayList();
+  final List<Member> methods = Lists.newArrayList();
+
+  ClassSummary(String name, int access, String signature, String superName, String[] interfaces) {
+    this.name = name;
+    this.access = access;
+    this.signature = signature;
+    this.superName = superName;
+    this.interfaces = interfaces;
+  }
+
+  /**
+   * Makes same calls as {@link org.objectweb.asm.ClassReader}, which ignores code of methods and debug information.
+   * Visitors returned for fields and methods are ignored.
+   */
+  void accept(ClassVisitor visitor) {
+    visitor.visit(0, access, name, signature, superName, interfaces);
+    for (Member field : fields) {
+      visitor.visitField(field.access, field.name, field.desc, field.signature, null);
+    }
+    for (Member method : methods) {
+      visitor.visitMethod(method.access, method.name, method.desc, method.signature, method.exceptions);
+    }
+    visitor.visitEnd();
+  }
+
+  /**
+   * Declaration of field or method, exceptions are always null for field.
+   */
+  static final class Member {
+
+    final int access;
+    final String name;
+    final String desc;
+    final String signature;
+    final String[] exceptions;
+
+    Member(int access, String name, String desc, String signature, String[] exceptions) {
+      this.access = access;
+      this.name = name;
+      this.desc = desc;
+      this.signature = signature;
+      this.exceptions = exceptions;
+    }
+
+  }
+
+  /**
+   * Creates summary from bytecode.
+   */
+  static final class Builder extends EmptyVisitor {
+
+    private ClassSummary summary;
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+      summary = new ClassSummary(name, access, signature, superName, interfaces);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+      summary.fields.add(new Member(access, name, desc, signature, null));
+      return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      summary.methods.add(new Member(access, name, desc, signature, exceptions));
+      return null;
+    }
+
+    ClassSummary getSummary() {
+      return summary;
+    }
+
+  }
+
+}
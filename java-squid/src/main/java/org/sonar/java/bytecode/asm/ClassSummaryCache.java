@@ -0,0 +1,402 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.apache.commons.codec.binary.Hex;
+import org.objectweb.asm.ClassReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of {@link ClassSummary summaries} of classes of JAR files, which allows to avoid decompression and parsing
+ * of bytecode of libraries during each analysis. Directory can be shared between analyses of different projects.
+ * <p>
+ * One entry is stored for each JAR file, is created when one of its classes is requested for the first time, and is valid
+ * only for same path, same size and same checksum of JAR file (checksum is computed only when date of modification differs).
+ * Entry is kept in memory in serialized form as soon as one of its classes was requested, and summary of class is deserialized
+ * only on request, because typically only a small part of classes of libraries is used by project.
+ * Any I/O error leads to cache miss, and so to parsing of bytecode.
+ * </p>
+ */
+public class ClassSummaryCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClassSummaryCache.class);
+
+  /**
+   * Must be incremented on each change of format of entries or of content of {@link ClassSummary}.
+   */
+  private static final int VERSION = 1;
+  private static final String ENTRY_SUFFIX = ".summary";
+  private static final int NULL = -1;
+
+  private final File directory;
+  private final Map<File, Summaries> summariesByJar = Maps.newHashMap();
+
+  /**
+   * @param directory directory, which should be used exclusively by caches of this kind
+   */
+  public ClassSummaryCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return summary of given class from given JAR file, or null if there is no such class or if it can't be parsed
+   */
+  synchronized ClassSummary get(File jarFile, String internalName) {
+    Summaries summaries = summariesByJar.get(jarFile);
+    if (summaries == null) {
+      summaries = load(jarFile);
+      summariesByJar.put(jarFile, summaries);
+    }
+    try {
+      return summaries.get(internalName);
+    } catch (IOException e) {
+      LOG.warn("Corrupted cache entry for " + jarFile, e);
+      return null;
+    }
+  }
+
+  private Summaries load(File jarFile) {
+    File entry = new File(directory, getEntryName(jarFile));
+    if (entry.isFile()) {
+      Summaries summaries = read(entry, jarFile);
+      if (summaries != null) {
+        return summaries;
+      }
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(VERSION);
+      out.writeUTF(jarFile.getAbsolutePath());
+      out.writeLong(jarFile.length());
+      out.writeLong(jarFile.lastModified());
+      out.writeLong(Files.getChecksum(jarFile, new CRC32()));
+      int headerLength = out.size();
+      new Writer(out).write(summarize(jarFile));
+      out.close();
+      byte[] data = bytes.toByteArray();
+      write(entry, data);
+      return new Summaries(data, headerLength);
+    } catch (IOException e) {
+      LOG.warn("Unable to summarize classes of " + jarFile, e);
+      return Summaries.EMPTY;
+    }
+  }
+
+  private static List<ClassSummary> summarize(File jarFile) throws IOException {
+    List<ClassSummary> summaries = Lists.newArrayList();
+    JarFile jar = new JarFile(jarFile);
+    try {
+      Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          ClassSummary summary = summarize(jar, entry);
+          if (summary != null) {
+            summaries.add(summary);
+          }
+        }
+      }
+    } finally {
+      jar.close();
+    }
+    return summaries;
+  }
+
+  private static ClassSummary summarize(JarFile jar, JarEntry entry) throws IOException {
+    InputStream input = jar.getInputStream(entry);
+    try {
+      ClassSummary.Builder builder = new ClassSummary.Builder();
+      new ClassReader(input).accept(builder, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+      return builder.getSummary();
+    } catch (RuntimeException e) {
+      // Class can't be parsed (e.g. format of class file is not supported), so will be parsed on request to report problem
+      return null;
+    } finally {
+      Closeables.closeQuietly(input);
+    }
+  }
+
+  /**
+   * Entry is written into temporary file and then renamed, so concurrent analyses never see incomplete entry.
+   */
+  private void write(File entry, byte[] data) {
+    File tempFile = null;
+    try {
+      Files.createParentDirs(entry);
+      tempFile = File.createTempFile("summary", ".tmp", directory);
+      Files.write(data, tempFile);
+      if (!tempFile.renameTo(entry) && !(entry.delete() && tempFile.renameTo(entry))) {
+        LOG.warn("Unable to write cache entry " + entry);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write cache entry " + entry, e);
+    } finally {
+      if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+        LOG.warn("Unable to delete " + tempFile);
+      }
+    }
+  }
+
+  /**
+   * @return summaries, or null if entry is not valid for given JAR file
+   */
+  private static Summaries read(File entry, File jarFile) {
+    try {
+      byte[] data = Files.toByteArray(entry);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+      if (in.readInt() != VERSION
+        || !jarFile.getAbsolutePath().equals(in.readUTF())
+        || in.readLong() != jarFile.length()) {
+        return null;
+      }
+      long lastModified = in.readLong();
+      long checksum = in.readLong();
+      if (lastModified != jarFile.lastModified() && checksum != Files.getChecksum(jarFile, new CRC32())) {
+        return null;
+      }
+      return new Summaries(data, data.length - in.available());
+    } catch (IOException e) {
+      LOG.warn("Unable to read cache entry for " + jarFile, e);
+      return null;
+    } catch (RuntimeException e) {
+      LOG.warn("Corrupted cache entry for " + jarFile, e);
+      return null;
+    }
+  }
+
+  private static String getEntryName(File jarFile) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return new String(Hex.encodeHex(digest.digest(jarFile.getAbsolutePath().getBytes(Charsets.UTF_8.name())))) + ENTRY_SUFFIX;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Strings are written once into table, and referenced by their index in this table.
+   * Each class is preceded by index of its name and by its length, so can be skipped.
+   */
+  private static class Writer {
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = Maps.newLinkedHashMap();
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void write(List<ClassSummary> summaries) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream body = new DataOutputStream(bytes);
+      ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+      DataOutputStream classBody = new DataOutputStream(classBytes);
+      body.writeInt(summaries.size());
+      for (ClassSummary summary : summaries) {
+        classBytes.reset();
+        classBody.writeInt(summary.access);
+        classBody.writeInt(index(summary.signature));
+        classBody.writeInt(index(summary.superName));
+        writeStrings(classBody, summary.interfaces);
+        writeMembers(classBody, summary.fields);
+        writeMembers(classBody, summary.methods);
+        body.writeInt(index(summary.name));
+        body.writeInt(classBytes.size());
+        classBytes.writeTo(body);
+      }
+      body.close();
+
+      out.writeInt(strings.size());
+      for (String string : strings.keySet()) {
+        out.writeUTF(string);
+      }
+      bytes.writeTo(out);
+    }
+
+    private void writeMembers(DataOutputStream body, List<ClassSummary.Member> members) throws IOException {
+      body.writeInt(members.size());
+      for (ClassSummary.Member member : members) {
+        body.writeInt(member.access);
+        body.writeInt(index(member.name));
+        body.writeInt(index(member.desc));
+        body.writeInt(index(member.signature));
+        writeStrings(body, member.exceptions);
+      }
+    }
+
+    private void writeStrings(DataOutputStream body, String[] array) throws IOException {
+      if (array == null) {
+        body.writeInt(NULL);
+        return;
+      }
+      body.writeInt(array.length);
+      for (String string : array) {
+        body.writeInt(index(string));
+      }
+    }
+
+    private int index(String string) {
+      if (string == null) {
+        return NULL;
+      }
+      Integer index = strings.get(string);
+      if (index == null) {
+        index = strings.size();
+        strings.put(string, index);
+      }
+      return index;
+    }
+
+  }
+
+  /**
+   * Serialized summaries of classes of one JAR file, strings and classes are deserialized on demand.
+   */
+  private static class Summaries {
+
+    static final Summaries EMPTY = new Summaries();
+
+    private final Input input;
+    private final DataInputStream in;
+    private final int[] stringOffsets;
+    private final String[] strings;
+    private final Map<String, Integer> classOffsets;
+
+    private Summaries() {
+      input = null;
+      in = null;
+      stringOffsets = new int[0];
+      strings = new String[0];
+      classOffsets = Maps.newHashMap();
+    }
+
+    /**
+     * Reads only lengths of strings, lengths of classes and names of classes.
+     */
+    Summaries(byte[] data, int offset) throws IOException {
+      input = new Input(data, offset);
+      in = new DataInputStream(input);
+      stringOffsets = new int[in.readInt()];
+      strings = new String[stringOffsets.length];
+      for (int i = 0; i < stringOffsets.length; i++) {
+        stringOffsets[i] = input.getPosition();
+        in.skipBytes(in.readUnsignedShort());
+      }
+      int count = in.readInt();
+      classOffsets = Maps.newHashMapWithExpectedSize(count);
+      for (int i = 0; i < count; i++) {
+        int nameIndex = in.readInt();
+        int length = in.readInt();
+        classOffsets.put(readString(nameIndex), input.getPosition());
+        input.seek(input.getPosition() + length);
+      }
+    }
+
+    ClassSummary get(String internalName) throws IOException {
+      Integer offset = classOffsets.get(internalName);
+      if (offset == null) {
+        return null;
+      }
+      input.seek(offset);
+      ClassSummary summary = new ClassSummary(internalName, in.readInt(), readString(), readString(), readStrings());
+      readMembers(summary.fields);
+      readMembers(summary.methods);
+      return summary;
+    }
+
+    private void readMembers(List<ClassSummary.Member> members) throws IOException {
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        members.add(new ClassSummary.Member(in.readInt(), readString(), readString(), readString(), readStrings()));
+      }
+    }
+
+    private String[] readStrings() throws IOException {
+      int length = in.readInt();
+      if (length == NULL) {
+        return null;
+      }
+      String[] result = new String[length];
+      for (int i = 0; i < length; i++) {
+        result[i] = readString();
+      }
+      return result;
+    }
+
+    private String readString() throws IOException {
+      return readString(in.readInt());
+    }
+
+    private String readString(int index) throws IOException {
+      if (index == NULL) {
+        return null;
+      }
+      String result = strings[index];
+      if (result == null) {
+        int position = input.getPosition();
+        input.seek(stringOffsets[index]);
+        result = in.readUTF();
+        input.seek(position);
+        strings[index] = result;
+      }
+      return result;
+    }
+
+  }
+
+  /**
+   * Allows to change position in array of bytes.
+   */
+  private static class Input extends ByteArrayInputStream {
+
+    Input(byte[] data, int offset) {
+      super(data, offset, data.length - offset);
+    }
+
+    int getPosition() {
+      return pos;
+    }
+
+    void seek(int position) {
+      pos = position;
+    }
+
+  }
+
+}
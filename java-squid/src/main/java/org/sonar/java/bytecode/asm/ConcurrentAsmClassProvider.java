@@ -0,0 +1,123 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.MapMaker;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe implementation of {@link AsmClassProvider} with cache, which doesn't grow without bound.
+ * <p>
+ * Classes requested with {@link DETAIL_LEVEL#STRUCTURE_AND_CALLS} (i.e. classes of project) are pinned in cache,
+ * whereas others (i.e. classes from libraries) are softly referenced, so can be evicted under memory pressure
+ * as soon as they are not referenced by pinned classes, and loaded again when requested.
+ * </p>
+ */
+public class ConcurrentAsmClassProvider extends AsmClassProvider {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConcurrentAsmClassProvider.class);
+
+  private final ClassLoader classLoader;
+
+  private final ConcurrentMap<String, AsmClass> asmClassCache = new MapMaker().softValues().makeMap();
+
+  /**
+   * Holds strong references on classes, which should never be evicted from {@link #asmClassCache}.
+   */
+  private final ConcurrentMap<String, AsmClass> pinnedClasses = new ConcurrentHashMap<String, AsmClass>();
+
+  /**
+   * Loading of a class modifies other classes (e.g. superclass), so loads are serialized.
+   */
+  private final Object loadLock = new Object();
+
+  public ConcurrentAsmClassProvider(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+  }
+
+  @Override
+  public AsmClass getClass(String internalName, DETAIL_LEVEL level) {
+    if (internalName == null) {
+      throw new IllegalArgumentException("Internal name of class can't be null");
+    }
+    AsmClass asmClass = getAsmClassFromCacheOrCreateIt(internalName);
+    if (level.isGreaterThan(asmClass.getDetailLevel())) {
+      synchronized (loadLock) {
+        if (level.isGreaterThan(asmClass.getDetailLevel())) {
+          decorateAsmClassFromBytecode(asmClass, level);
+        }
+      }
+    }
+    if (level == DETAIL_LEVEL.STRUCTURE_AND_CALLS) {
+      pinnedClasses.putIfAbsent(internalName, asmClass);
+    }
+    return asmClass;
+  }
+
+  /**
+   * @return number of classes, which can't be evicted from cache
+   */
+  @VisibleForTesting
+  int getPinnedClassesCount() {
+    return pinnedClasses.size();
+  }
+
+  private AsmClass getAsmClassFromCacheOrCreateIt(String internalName) {
+    AsmClass asmClass = asmClassCache.get(internalName);
+    if (asmClass == null) {
+      AsmClass newAsmClass = new AsmClass(internalName, DETAIL_LEVEL.NOTHING);
+      asmClass = asmClassCache.putIfAbsent(internalName, newAsmClass);
+      if (asmClass == null) {
+        asmClass = newAsmClass;
+      }
+    }
+    return asmClass;
+  }
+
+  /**
+   * Invoked only by one thread at a time.
+   */
+  protected void decorateAsmClassFromBytecode(AsmClass asmClass, DETAIL_LEVEL level) {
+    InputStream input = null;
+    try {
+      AsmClassVisitor classVisitor = new AsmClassVisitor(this, asmClass, level);
+      input = classLoader.getResourceAsStream(asmClass.getInternalName() + ".class");
+      ClassReader asmReader = new ClassReader(input);
+      asmReader.accept(classVisitor, getParsingOptions(level));
+    } catch (IOException e) {
+      LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader.");
+    } catch (SecurityException e) {
+      LOG.warn("Class '" + asmClass.getInternalName()
+          + "' is not accessible through the ClassLoader. One signed jar seems to be corrupted.");
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+}
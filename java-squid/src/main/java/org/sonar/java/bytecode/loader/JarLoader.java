@@ -19,6 +19,8 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 import org.apache.commons.io.IOUtils;
 
 import java.io.File;
@@ -28,6 +30,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -71,7 +76,14 @@ class JarLoader implements Loader {
         return null;
       }
       is = jarFile.getInputStream(entry);
-      return IOUtils.toByteArray(is);
+      long size = entry.getSize();
+      if (size < 0) {
+        return IOUtils.toByteArray(is);
+      }
+      // Size is known, so bytes can be read directly into array of required size
+      byte[] bytes = new byte[(int) size];
+      ByteStreams.readFully(is, bytes);
+      return bytes;
     } catch (IOException e) {
       // TODO Godin: not sure that we should silently ignore exception here,
       // e.g. it can be thrown if file corrupted
@@ -81,6 +93,19 @@ class JarLoader implements Loader {
     }
   }
 
+  /**
+   * @return names of all entries in this JAR
+   * @throws IllegalStateException if loader has been closed
+   */
+  public List<String> getResourceNames() {
+    List<String> names = Lists.newArrayList();
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      names.add(entries.nextElement().getName());
+    }
+    return names;
+  }
+
   public void close() {
     try {
       jarFile.close();
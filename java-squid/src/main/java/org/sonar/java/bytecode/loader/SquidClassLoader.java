@@ -19,7 +19,9 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
 
 import java.io.Closeable;
 import java.io.File;
@@ -28,35 +30,71 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class loader, which is able to load classes from a list of JAR files and directories.
+ * Content of JAR files is indexed once, so that lookup of resource doesn't require to probe each of them.
  */
 public class SquidClassLoader extends ClassLoader implements Closeable {
 
   private final List<Loader> loaders;
 
+  /**
+   * Loaders of directories in order of classpath, which are candidates for resources not found in JAR files.
+   */
+  private final List<Loader> directoryLoaders;
+
+  /**
+   * Name of resource -> loaders, which might contain it: directories before first JAR file containing this resource, and this file.
+   * Lists are shared by all resources of the same JAR file.
+   */
+  private final Map<String, List<Loader>> jarIndex = Maps.newHashMap();
+
   /**
    * @param files ordered list of files and directories from which to load classes and resources
    */
   public SquidClassLoader(List<File> files) {
     super(null);
     loaders = new ArrayList<Loader>();
+    List<Loader> directories = new ArrayList<Loader>();
     for (File file : files) {
       if (file.exists()) {
         if (file.isDirectory()) {
-          loaders.add(new FileSystemLoader(file));
+          Loader loader = new FileSystemLoader(file);
+          loaders.add(loader);
+          directories.add(loader);
         } else if (file.getName().endsWith(".jar")) {
-          loaders.add(new JarLoader(file));
+          JarLoader jarLoader = new JarLoader(file);
+          loaders.add(jarLoader);
+          index(jarLoader, ImmutableList.<Loader>builder().addAll(directories).add(jarLoader).build());
         }
       }
     }
+    directoryLoaders = ImmutableList.copyOf(directories);
+  }
+
+  private void index(JarLoader jarLoader, List<Loader> candidates) {
+    for (String name : jarLoader.getResourceNames()) {
+      if (!jarIndex.containsKey(name)) {
+        jarIndex.put(name, candidates);
+      }
+    }
+  }
+
+  /**
+   * @return loaders, which might contain resource with given name, in order of classpath:
+   *         directories and at most one JAR file
+   */
+  private List<Loader> getLoaders(String name) {
+    List<Loader> candidates = jarIndex.get(name);
+    return candidates != null ? candidates : directoryLoaders;
   }
 
   @Override
   protected Class<?> findClass(String name) throws ClassNotFoundException {
     String resourceName = name.replace('.', '/') + ".class";
-    for (Loader loader : loaders) {
+    for (Loader loader : getLoaders(resourceName)) {
       byte[] classBytes = loader.loadBytes(resourceName);
       if (classBytes != null) {
         // TODO Godin: definePackage ?
@@ -68,7 +106,7 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
 
   @Override
   public URL findResource(String name) {
-    for (Loader loader : loaders) {
+    for (Loader loader : getLoaders(name)) {
       URL url = loader.findResource(name);
       if (url != null) {
         return url;
@@ -23,6 +23,7 @@ import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmEdge;
 import org.sonar.java.bytecode.asm.AsmField;
 import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.asm.ClassHierarchy;
 import org.sonar.java.signature.MethodSignature;
 import org.sonar.java.signature.MethodSignaturePrinter;
 import org.sonar.java.signature.MethodSignatureScanner;
@@ -35,6 +36,7 @@ import org.sonar.squid.indexer.SquidIndex;
 public abstract class BytecodeVisitor implements CodeVisitor {
 
   SquidIndex index;
+  ClassHierarchy classHierarchy;
 
   public void visitClass(AsmClass asmClass) {
   }
@@ -52,6 +54,17 @@ public abstract class BytecodeVisitor implements CodeVisitor {
   public void leaveClass(AsmClass asmClass) {
   }
 
+  /**
+   * Visitor, which returns <code>true</code>, can be notified about different classes concurrently.
+   * Such visitor must not keep state between callbacks in its fields,
+   * and is allowed to modify only measures of visited class and of its file.
+   *
+   * @return <code>false</code> by default
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
+
   protected final SourceClass getSourceClass(AsmClass asmClass) {
     return (SourceClass) index.search(asmClass.getInternalName());
   }
@@ -74,4 +87,15 @@ public abstract class BytecodeVisitor implements CodeVisitor {
     this.index = index;
   }
 
+  /**
+   * @return hierarchy of all visited classes
+   */
+  protected final ClassHierarchy getClassHierarchy() {
+    return classHierarchy;
+  }
+
+  public final void setClassHierarchy(ClassHierarchy classHierarchy) {
+    this.classHierarchy = classHierarchy;
+  }
+
 }
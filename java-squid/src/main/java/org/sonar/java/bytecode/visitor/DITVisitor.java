@@ -26,7 +26,7 @@ public class DITVisitor extends BytecodeVisitor {
 
   @Override
   public void visitClass(AsmClass asmClass) {
-    int dit = calculateDepthOfInheritance(asmClass);
+    int dit = getClassHierarchy().getDepthOfInheritance(asmClass);
 
     getSourceClass(asmClass).add(Metric.DIT, dit);
 
@@ -35,14 +35,9 @@ public class DITVisitor extends BytecodeVisitor {
     }
   }
 
-  private int calculateDepthOfInheritance(AsmClass asmClass) {
-    int dit = 0;
-    AsmClass superClass = asmClass.getSuperClass();
-    while (superClass != null) {
-      dit++;
-      superClass = superClass.getSuperClass();
-    }
-    return dit;
+  @Override
+  public boolean isThreadSafe() {
+    return true;
   }
 
 }
@@ -19,7 +19,6 @@
  */
 package org.sonar.java.bytecode.visitor;
 
-import org.sonar.graph.DirectedGraph;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmEdge;
 import org.sonar.squid.api.*;
@@ -28,9 +27,9 @@ import org.sonar.squid.measures.Metric;
 public class DependenciesVisitor extends BytecodeVisitor {
 
   private SourceClass fromSourceClass;
-  private final DirectedGraph<SourceCode, SourceCodeEdge> graph;
+  private final DependencyGraph graph;
 
-  public DependenciesVisitor(DirectedGraph<SourceCode, SourceCodeEdge> graph) {
+  public DependenciesVisitor(DependencyGraph graph) {
     this.graph = graph;
   }
 
@@ -57,40 +56,38 @@ public class DependenciesVisitor extends BytecodeVisitor {
   }
 
   private void link(SourceClass from, SourceClass to, SourceCodeEdgeUsage link) {
-    if (canWeLinkNodes(from, to) && graph.getEdge(from, to) == null) {
-      SourceCodeEdge edge = new SourceCodeEdge(from, to, link);
-      graph.addEdge(edge);
+    if (canWeLinkNodes(from, to) && graph.addEdge(from, to, link)) {
       from.add(Metric.CE, 1);
       to.add(Metric.CA, 1);
-      SourceCodeEdge fileEdge = createEdgeBetweenParents(SourceFile.class, from, to, edge);
-      createEdgeBetweenParents(SourcePackage.class, from, to, fileEdge);
+      if (createEdgeBetweenParents(SourceFile.class, from, to)) {
+        createEdgeBetweenParents(SourcePackage.class, from.getParent(SourceFile.class), to.getParent(SourceFile.class));
+      }
     }
   }
 
-  private SourceCodeEdge createEdgeBetweenParents(Class<? extends SourceCode> type, SourceClass from, SourceClass to,
-      SourceCodeEdge rootEdge) {
+  /**
+   * @return true if edge between parents was created, so that it should be added to root edges of upper level
+   */
+  private boolean createEdgeBetweenParents(Class<? extends SourceCode> type, SourceCode from, SourceCode to) {
     SourceCode fromParent = from.getParent(type);
     SourceCode toParent = to.getParent(type);
-    SourceCodeEdge parentEdge = null;
-    if (canWeLinkNodes(fromParent, toParent) && rootEdge != null) {
-      if (graph.getEdge(fromParent, toParent) == null) {
-        parentEdge = new SourceCodeEdge(fromParent, toParent, SourceCodeEdgeUsage.USES);
-        parentEdge.addRootEdge(rootEdge);
-        graph.addEdge(parentEdge);
-        fromParent.add(Metric.CE, 1);
+    if (!canWeLinkNodes(fromParent, toParent)) {
+      return false;
+    }
+    boolean created = graph.addEdge(fromParent, toParent, SourceCodeEdgeUsage.USES);
+    if (created) {
+      fromParent.add(Metric.CE, 1);
+      toParent.add(Metric.CA, 1);
+    } else {
+      if (!graph.hasAnEdgeFromRootNode(fromParent, toParent, from)) {
         toParent.add(Metric.CA, 1);
-      } else {
-        parentEdge = graph.getEdge(fromParent, toParent);
-        if (!parentEdge.hasAnEdgeFromRootNode(rootEdge.getFrom())) {
-          toParent.add(Metric.CA, 1);
-        }
-        if (!parentEdge.hasAnEdgeToRootNode(rootEdge.getTo())) {
-          fromParent.add(Metric.CE, 1);
-        }
-        parentEdge.addRootEdge(rootEdge);
+      }
+      if (!graph.hasAnEdgeToRootNode(fromParent, toParent, to)) {
+        fromParent.add(Metric.CE, 1);
       }
     }
-    return parentEdge;
+    graph.addRootEdge(fromParent, toParent, from, to);
+    return created;
   }
 
   private boolean canWeLinkNodes(SourceCode from, SourceCode to) {
@@ -0,0 +1,484 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.visitor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Ints;
+import org.sonar.graph.DirectedGraphAccessor;
+import org.sonar.squid.api.SourceClass;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeEdge;
+import org.sonar.squid.api.SourceCodeEdgeUsage;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourcePackage;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Graph of dependencies between classes, between files and between packages.
+ * Vertices of each of these levels are identified by dense ids, edges are stored in arrays of primitives,
+ * and edges of lower level, which form an edge of upper level (root edges), are stored as ranges of their ids.
+ * Instances of {@link SourceCodeEdge} are created only on demand, i.e. when edge is requested.
+ * Modifications are not thread-safe, but once graph is built, it can be read concurrently,
+ * given that modifications happen-before reads, e.g. when graph is passed to another thread by {@link java.util.concurrent.ExecutorService}.
+ */
+public final class DependencyGraph implements DirectedGraphAccessor<SourceCode, SourceCodeEdge> {
+
+  private static final int NONE = -1;
+  private static final SourceCodeEdgeUsage[] USAGES = SourceCodeEdgeUsage.values();
+
+  private final Level classes = new Level(null);
+  private final Level files = new Level(classes);
+  private final Level packages = new Level(files);
+
+  /**
+   * Adds edge between two classes, two files or two packages.
+   *
+   * @return <code>false</code> if such edge already exists
+   */
+  public boolean addEdge(SourceCode from, SourceCode to, SourceCodeEdgeUsage usage) {
+    Level level = getLevel(from);
+    Preconditions.checkArgument(level != null && level == getLevel(to), "Vertices must be classes, files or packages of the same kind");
+    return level.addEdge(level.getOrCreateId(from), level.getOrCreateId(to), usage) != NONE;
+  }
+
+  /**
+   * Adds edge between <code>rootFrom</code> and <code>rootTo</code> to root edges of edge between their parents <code>from</code> and <code>to</code>.
+   * Root edges must be added in the order of their creation.
+   */
+  public void addRootEdge(SourceCode from, SourceCode to, SourceCode rootFrom, SourceCode rootTo) {
+    Level level = getLevel(from);
+    Preconditions.checkArgument(level != null && level.lower != null, "Vertices must be files or packages");
+    int edge = level.getEdge(from, to);
+    Preconditions.checkArgument(edge != NONE, "Edge between %s and %s doesn't exist", from, to);
+    int rootEdge = level.lower.getEdge(rootFrom, rootTo);
+    Preconditions.checkArgument(rootEdge != NONE, "Edge between %s and %s doesn't exist", rootFrom, rootTo);
+    level.addRootEdge(edge, rootEdge);
+  }
+
+  /**
+   * @return <code>true</code> if edge between <code>from</code> and <code>to</code> has root edge, which starts at <code>rootFrom</code>
+   */
+  public boolean hasAnEdgeFromRootNode(SourceCode from, SourceCode to, SourceCode rootFrom) {
+    Level level = getLevel(from);
+    int edge = level == null ? NONE : level.getEdge(from, to);
+    return edge != NONE && level.hasAnEdgeFromRootNode(edge, rootFrom);
+  }
+
+  /**
+   * @return <code>true</code> if edge between <code>from</code> and <code>to</code> has root edge, which ends at <code>rootTo</code>
+   */
+  public boolean hasAnEdgeToRootNode(SourceCode from, SourceCode to, SourceCode rootTo) {
+    Level level = getLevel(from);
+    int edge = level == null ? NONE : level.getEdge(from, to);
+    return edge != NONE && level.hasAnEdgeToRootNode(edge, rootTo);
+  }
+
+  public SourceCodeEdge getEdge(SourceCode from, SourceCode to) {
+    Level level = getLevel(from);
+    if (level == null) {
+      return null;
+    }
+    int edge = level.getEdge(from, to);
+    return edge == NONE ? null : level.getSourceCodeEdge(edge);
+  }
+
+  public boolean hasEdge(SourceCode from, SourceCode to) {
+    Level level = getLevel(from);
+    return level != null && level.getEdge(from, to) != NONE;
+  }
+
+  public Set<SourceCode> getVertices() {
+    return Collections.unmodifiableSet(Sets.union(classes.ids.keySet(), Sets.union(files.ids.keySet(), packages.ids.keySet())));
+  }
+
+  public Collection<SourceCodeEdge> getOutgoingEdges(SourceCode from) {
+    Level level = getLevel(from);
+    Integer id = level == null ? null : level.ids.get(from);
+    if (id == null) {
+      return Collections.emptyList();
+    }
+    return level.getSourceCodeEdges(level.outgoingEdges[id], level.outgoingSizes[id]);
+  }
+
+  public Collection<SourceCodeEdge> getIncomingEdges(SourceCode to) {
+    Level level = getLevel(to);
+    Integer id = level == null ? null : level.ids.get(to);
+    if (id == null) {
+      return Collections.emptyList();
+    }
+    return level.getSourceCodeEdges(level.incomingEdges[id], level.incomingSizes[id]);
+  }
+
+  /**
+   * @return outgoing edges of given vertices
+   */
+  public List<SourceCodeEdge> getEdges(Collection<SourceCode> vertices) {
+    List<SourceCodeEdge> result = Lists.newArrayList();
+    for (SourceCode vertex : vertices) {
+      result.addAll(getOutgoingEdges(vertex));
+    }
+    return result;
+  }
+
+  private Level getLevel(SourceCode sourceCode) {
+    if (sourceCode instanceof SourceClass) {
+      return classes;
+    } else if (sourceCode instanceof SourceFile) {
+      return files;
+    } else if (sourceCode instanceof SourcePackage) {
+      return packages;
+    }
+    return null;
+  }
+
+  private static final class Level {
+
+    private final Level lower;
+
+    private final Map<SourceCode, Integer> ids = Maps.newHashMap();
+    private final List<SourceCode> vertices = Lists.newArrayList();
+    /**
+     * Ids of targets of outgoing edges of each vertex in ascending order, and ids of corresponding edges.
+     */
+    private int[][] outgoingTargets = new int[0][];
+    private int[][] outgoingEdges = new int[0][];
+    private int[] outgoingSizes = new int[0];
+    /**
+     * Ids of incoming edges of each vertex in the order of their creation.
+     */
+    private int[][] incomingEdges = new int[0][];
+    private int[] incomingSizes = new int[0];
+
+    private int edgesCount = 0;
+    private int[] edgeSources = new int[0];
+    private int[] edgeTargets = new int[0];
+    private byte[] edgeUsages = new byte[0];
+    /**
+     * Root edges of each edge as pairs of first id and id after the last one of each range.
+     */
+    private int[][] rootRanges = new int[0][];
+    private int[] rootRangesSizes = new int[0];
+    private int[] weights = new int[0];
+    /**
+     * Edge of upper level, which has this edge as root edge, or {@link #NONE}.
+     */
+    private int[] parentEdges = new int[0];
+    /**
+     * Created on demand, possibly by concurrent readers.
+     */
+    private AtomicReferenceArray<SourceCodeEdge> sourceCodeEdges = new AtomicReferenceArray<SourceCodeEdge>(0);
+
+    private Level upper;
+
+    Level(Level lower) {
+      this.lower = lower;
+      if (lower != null) {
+        lower.upper = this;
+      }
+    }
+
+    int getOrCreateId(SourceCode vertex) {
+      Integer id = ids.get(vertex);
+      if (id != null) {
+        return id;
+      }
+      int newId = vertices.size();
+      ids.put(vertex, newId);
+      vertices.add(vertex);
+      if (newId == outgoingSizes.length) {
+        int capacity = Math.max(16, newId * 2);
+        outgoingTargets = copyOf(outgoingTargets, capacity);
+        outgoingEdges = copyOf(outgoingEdges, capacity);
+        outgoingSizes = Ints.ensureCapacity(outgoingSizes, capacity, 0);
+        incomingEdges = copyOf(incomingEdges, capacity);
+        incomingSizes = Ints.ensureCapacity(incomingSizes, capacity, 0);
+      }
+      outgoingTargets[newId] = new int[2];
+      outgoingEdges[newId] = new int[2];
+      incomingEdges[newId] = new int[2];
+      return newId;
+    }
+
+    int getEdge(SourceCode from, SourceCode to) {
+      Integer fromId = ids.get(from);
+      Integer toId = ids.get(to);
+      if (fromId == null || toId == null) {
+        return NONE;
+      }
+      int index = binarySearch(outgoingTargets[fromId], outgoingSizes[fromId], toId);
+      return index < 0 ? NONE : outgoingEdges[fromId][index];
+    }
+
+    /**
+     * @return id of new edge, or {@link #NONE} if edge already exists
+     */
+    int addEdge(int from, int to, SourceCodeEdgeUsage usage) {
+      int size = outgoingSizes[from];
+      int index = binarySearch(outgoingTargets[from], size, to);
+      if (index >= 0) {
+        return NONE;
+      }
+      int edge = createEdge(from, to, usage);
+
+      // Keep targets sorted
+      index = -index - 1;
+      int[] targets = Ints.ensureCapacity(outgoingTargets[from], size + 1, size);
+      int[] edges = Ints.ensureCapacity(outgoingEdges[from], size + 1, size);
+      System.arraycopy(targets, index, targets, index + 1, size - index);
+      System.arraycopy(edges, index, edges, index + 1, size - index);
+      targets[index] = to;
+      edges[index] = edge;
+      outgoingTargets[from] = targets;
+      outgoingEdges[from] = edges;
+      outgoingSizes[from] = size + 1;
+
+      size = incomingSizes[to];
+      incomingEdges[to] = Ints.ensureCapacity(incomingEdges[to], size + 1, size);
+      incomingEdges[to][size] = edge;
+      incomingSizes[to] = size + 1;
+      return edge;
+    }
+
+    private int createEdge(int from, int to, SourceCodeEdgeUsage usage) {
+      int edge = edgesCount;
+      if (edge == edgeSources.length) {
+        int capacity = Math.max(16, edge * 2);
+        edgeSources = Ints.ensureCapacity(edgeSources, capacity, 0);
+        edgeTargets = Ints.ensureCapacity(edgeTargets, capacity, 0);
+        edgeUsages = Bytes.ensureCapacity(edgeUsages, capacity, 0);
+        rootRanges = copyOf(rootRanges, capacity);
+        rootRangesSizes = Ints.ensureCapacity(rootRangesSizes, capacity, 0);
+        weights = Ints.ensureCapacity(weights, capacity, 0);
+        parentEdges = Ints.ensureCapacity(parentEdges, capacity, 0);
+        AtomicReferenceArray<SourceCodeEdge> newSourceCodeEdges = new AtomicReferenceArray<SourceCodeEdge>(capacity);
+        for (int i = 0; i < edge; i++) {
+          newSourceCodeEdges.set(i, sourceCodeEdges.get(i));
+        }
+        sourceCodeEdges = newSourceCodeEdges;
+      }
+      edgeSources[edge] = from;
+      edgeTargets[edge] = to;
+      edgeUsages[edge] = (byte) usage.ordinal();
+      parentEdges[edge] = NONE;
+      edgesCount++;
+      return edge;
+    }
+
+    void addRootEdge(int edge, int rootEdge) {
+      if (isRootEdge(edge, rootEdge)) {
+        return;
+      }
+      int size = rootRangesSizes[edge];
+      if (size > 0) {
+        Preconditions.checkArgument(rootEdge >= rootRanges[edge][size - 1], "Root edges must be added in the order of their creation");
+        if (rootRanges[edge][size - 1] == rootEdge) {
+          // Extend last range
+          rootRanges[edge][size - 1]++;
+          weights[edge]++;
+          lower.parentEdges[rootEdge] = edge;
+          return;
+        }
+      }
+      int[] ranges = rootRanges[edge] == null ? new int[2] : Ints.ensureCapacity(rootRanges[edge], size + 2, size);
+      ranges[size] = rootEdge;
+      ranges[size + 1] = rootEdge + 1;
+      rootRanges[edge] = ranges;
+      rootRangesSizes[edge] = size + 2;
+      weights[edge]++;
+      lower.parentEdges[rootEdge] = edge;
+    }
+
+    boolean isRootEdge(int edge, int rootEdge) {
+      int[] ranges = rootRanges[edge];
+      int low = 0;
+      int high = rootRangesSizes[edge] / 2 - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (rootEdge < ranges[middle * 2]) {
+          high = middle - 1;
+        } else if (rootEdge >= ranges[middle * 2 + 1]) {
+          low = middle + 1;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Every root edge, which starts at <code>rootFrom</code>, is among outgoing edges of <code>rootFrom</code> in lower level.
+     */
+    boolean hasAnEdgeFromRootNode(int edge, SourceCode rootFrom) {
+      Integer id = lower == null ? null : lower.ids.get(rootFrom);
+      if (id == null) {
+        return false;
+      }
+      int[] edges = lower.outgoingEdges[id];
+      for (int i = 0; i < lower.outgoingSizes[id]; i++) {
+        if (isRootEdge(edge, edges[i])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean hasAnEdgeToRootNode(int edge, SourceCode rootTo) {
+      Integer id = lower == null ? null : lower.ids.get(rootTo);
+      if (id == null) {
+        return false;
+      }
+      int[] edges = lower.incomingEdges[id];
+      for (int i = 0; i < lower.incomingSizes[id]; i++) {
+        if (isRootEdge(edge, edges[i])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    SourceCodeEdge getSourceCodeEdge(int edge) {
+      SourceCodeEdge result = sourceCodeEdges.get(edge);
+      if (result == null) {
+        result = new LazySourceCodeEdge(this, edge);
+        if (!sourceCodeEdges.compareAndSet(edge, null, result)) {
+          result = sourceCodeEdges.get(edge);
+        }
+      }
+      return result;
+    }
+
+    List<SourceCodeEdge> getSourceCodeEdges(int[] edges, int size) {
+      List<SourceCodeEdge> result = Lists.newArrayListWithCapacity(size);
+      for (int i = 0; i < size; i++) {
+        result.add(getSourceCodeEdge(edges[i]));
+      }
+      return result;
+    }
+
+    Set<SourceCodeEdge> getRootEdges(int edge) {
+      Set<SourceCodeEdge> result = Sets.newLinkedHashSet();
+      int[] ranges = rootRanges[edge];
+      for (int i = 0; i < rootRangesSizes[edge]; i += 2) {
+        for (int rootEdge = ranges[i]; rootEdge < ranges[i + 1]; rootEdge++) {
+          result.add(lower.getSourceCodeEdge(rootEdge));
+        }
+      }
+      return result;
+    }
+
+    int getNumberOfRootFromNodes(int edge) {
+      Set<Integer> rootFromNodes = Sets.newHashSet();
+      int[] ranges = rootRanges[edge];
+      for (int i = 0; i < rootRangesSizes[edge]; i += 2) {
+        for (int rootEdge = ranges[i]; rootEdge < ranges[i + 1]; rootEdge++) {
+          rootFromNodes.add(lower.edgeSources[rootEdge]);
+        }
+      }
+      return rootFromNodes.size();
+    }
+
+    /**
+     * Same as {@link java.util.Arrays#binarySearch(int[], int, int, int)} with fromIndex equal to zero, which is not available in Java 5.
+     */
+    private static int binarySearch(int[] array, int size, int key) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int midValue = array[mid];
+        if (midValue < key) {
+          low = mid + 1;
+        } else if (midValue > key) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
+    private static <T> T[] copyOf(T[] array, int length) {
+      T[] result = ObjectArrays.newArray(array, length);
+      System.arraycopy(array, 0, result, 0, array.length);
+      return result;
+    }
+
+  }
+
+  /**
+   * View of edge stored in {@link Level}.
+   * Note that constructor of {@link SourceCodeEdge} allocates sets for root edges, which are left unused.
+   */
+  private static final class LazySourceCodeEdge extends SourceCodeEdge {
+
+    private final Level level;
+    private final int id;
+
+    LazySourceCodeEdge(Level level, int id) {
+      super(level.vertices.get(level.edgeSources[id]), level.vertices.get(level.edgeTargets[id]), USAGES[level.edgeUsages[id]]);
+      this.level = level;
+      this.id = id;
+    }
+
+    @Override
+    public boolean hasAnEdgeFromRootNode(SourceCode rootFrom) {
+      return level.hasAnEdgeFromRootNode(id, rootFrom);
+    }
+
+    @Override
+    public boolean hasAnEdgeToRootNode(SourceCode rootTo) {
+      return level.hasAnEdgeToRootNode(id, rootTo);
+    }
+
+    @Override
+    public Set<SourceCodeEdge> getRootEdges() {
+      return level.getRootEdges(id);
+    }
+
+    @Override
+    public int getNumberOfRootFromNodes() {
+      return level.getNumberOfRootFromNodes(id);
+    }
+
+    @Override
+    public int getWeight() {
+      return level.weights[id];
+    }
+
+    @Override
+    public SourceCodeEdge getParent() {
+      int parentEdge = level.parentEdges[id];
+      return parentEdge == NONE ? null : level.upper.getSourceCodeEdge(parentEdge);
+    }
+
+  }
+
+}
@@ -27,8 +27,6 @@ import java.util.*;
 
 public class LCOM4Visitor extends BytecodeVisitor {
 
-  private AsmClass asmClass;
-  private List<Set<AsmResource>> unrelatedBlocks = null;
   private final Set<String> fieldsToExcludeFromLcom4Calculation;
 
   public LCOM4Visitor(Set<String> fieldsToExcludeFromLcom4Calculation) {
@@ -36,19 +34,43 @@ public class LCOM4Visitor extends BytecodeVisitor {
   }
 
   @Override
-  public void visitClass(AsmClass asmClass) {
-    this.asmClass = asmClass;
-    unrelatedBlocks = new ArrayList<Set<AsmResource>>();
+  public void leaveClass(AsmClass asmClass) {
+    ResourceBlocks blocks = new ResourceBlocks(asmClass.getMethods().size() + asmClass.getFields().size());
+    for (AsmMethod asmMethod : asmClass.getMethods()) {
+      visitMethod(asmClass, asmMethod, blocks);
+    }
+    List<Set<AsmResource>> unrelatedBlocks = blocks.getNotIsolatedBlocks();
+
+    int lcom4 = unrelatedBlocks.size();
+    if (lcom4 == 0) {
+      lcom4 = 1;
+    }
+
+    getSourceClass(asmClass).add(Metric.LCOM4, lcom4);
+    getSourceClass(asmClass).addData(Metric.LCOM4_BLOCKS, unrelatedBlocks);
+
+    if (isMainPublicClassInFile(asmClass)) {
+      getSourceFile(asmClass).add(Metric.LCOM4, lcom4);
+      getSourceFile(asmClass).addData(Metric.LCOM4_BLOCKS, unrelatedBlocks);
+    }
   }
 
+  /**
+   * All computations are done in {@link #leaveClass(AsmClass)} from visited class.
+   */
   @Override
-  public void visitMethod(AsmMethod asmMethod) {
+  public boolean isThreadSafe() {
+    return true;
+  }
+
+  private void visitMethod(AsmClass asmClass, AsmMethod asmMethod, ResourceBlocks blocks) {
     if (isMethodElligibleForLCOM4Computation(asmMethod)) {
-      ensureBlockIsCreated(asmMethod);
-      for (AsmEdge edge : asmMethod.getOutgoingEdges()) {
-        if (isCallToInternalFieldOrMethod(edge) && isNotCallToExcludedFieldFromLcom4Calculation(edge.getTo())) {
-          AsmResource toResource = getAccessedFieldOrMethod(edge.getTo());
-          linkAsmResources(asmMethod, toResource);
+      int methodId = blocks.getOrCreateId(asmMethod);
+      for (int i = 0; i < asmMethod.getOutgoingEdgesCount(); i++) {
+        AsmResource to = asmMethod.getOutgoingEdgeTarget(i);
+        if (isCallToInternalFieldOrMethod(asmClass, asmMethod, i) && isNotCallToExcludedFieldFromLcom4Calculation(to)) {
+          AsmResource toResource = getAccessedFieldOrMethod(to);
+          blocks.union(methodId, blocks.getOrCreateId(toResource));
         }
       }
     }
@@ -75,70 +97,118 @@ public class LCOM4Visitor extends BytecodeVisitor {
         && !asmMethod.isAccessor() && asmMethod.isBodyLoaded();
   }
 
-  private void removeIsolatedMethodBlocks() {
-    Iterator<Set<AsmResource>> iterator = unrelatedBlocks.iterator();
-
-    while (iterator.hasNext()) {
-      Set<AsmResource> block = iterator.next();
-      if (block.size() == 1) {
-        iterator.remove();
-      }
-    }
-
+  private boolean isCallToInternalFieldOrMethod(AsmClass asmClass, AsmMethod asmMethod, int edgeIndex) {
+    SourceCodeEdgeUsage usage = asmMethod.getOutgoingEdgeUsage(edgeIndex);
+    return asmMethod.getOutgoingEdgeTargetClass(edgeIndex) == asmClass && (usage == SourceCodeEdgeUsage.CALLS_FIELD || usage == SourceCodeEdgeUsage.CALLS_METHOD);
   }
 
-  @Override
-  public void leaveClass(AsmClass asmClass) {
-    removeIsolatedMethodBlocks();
-
-    int lcom4 = unrelatedBlocks.size();
-    if (lcom4 == 0) {
-      lcom4 = 1;
+  /**
+   * Disjoint-set forest over dense identifiers of resources, see http://en.wikipedia.org/wiki/Disjoint-set_data_structure
+   * <p>
+   * Blocks are returned in order of their creation, where block of first argument of {@link #union(int, int)} survives,
+   * so that result is the same as with merge of sets.
+   * </p>
+   */
+  private static final class ResourceBlocks {
+
+    private final Map<AsmResource, Integer> ids = new HashMap<AsmResource, Integer>();
+    private AsmResource[] resources;
+    private int[] parent;
+    private int[] rank;
+    /**
+     * For each root - identifier of resource, which created surviving block.
+     */
+    private int[] creator;
+    private int size = 0;
+
+    ResourceBlocks(int initialCapacity) {
+      int capacity = Math.max(initialCapacity, 1);
+      resources = new AsmResource[capacity];
+      parent = new int[capacity];
+      rank = new int[capacity];
+      creator = new int[capacity];
     }
 
-    getSourceClass(asmClass).add(Metric.LCOM4, lcom4);
-    getSourceClass(asmClass).addData(Metric.LCOM4_BLOCKS, unrelatedBlocks);
-
-    if (isMainPublicClassInFile(asmClass)) {
-      getSourceFile(asmClass).add(Metric.LCOM4, lcom4);
-      getSourceFile(asmClass).addData(Metric.LCOM4_BLOCKS, unrelatedBlocks);
+    int getOrCreateId(AsmResource resource) {
+      Integer id = ids.get(resource);
+      if (id != null) {
+        return id;
+      }
+      if (size == parent.length) {
+        int capacity = size * 2;
+        AsmResource[] newResources = new AsmResource[capacity];
+        System.arraycopy(resources, 0, newResources, 0, size);
+        resources = newResources;
+        parent = copyOf(parent, capacity);
+        rank = copyOf(rank, capacity);
+        creator = copyOf(creator, capacity);
+      }
+      resources[size] = resource;
+      parent[size] = size;
+      creator[size] = size;
+      ids.put(resource, size);
+      return size++;
     }
-  }
-
-  private void ensureBlockIsCreated(AsmResource resource) {
-    getOrCreateResourceBlock(resource);
-  }
 
-  private void linkAsmResources(AsmResource resourceA, AsmResource resourceB) {
-    Set<AsmResource> blockA = getOrCreateResourceBlock(resourceA);
-    Set<AsmResource> blockB = getOrCreateResourceBlock(resourceB);
-
-    // getOrCreateResourceBlock() returns the same block instance if resourceA and resourceB are identical or already in the same block
-    // TODO: Avoid this violation by using a Disjoint Union Set which is also more efficient performance-wise
-    // See: http://en.wikipedia.org/wiki/Disjoint-set_data_structure
-    if (blockA == blockB) { // NOSONAR false-positive Compare Objects With Equals
-      return;
+    private static int[] copyOf(int[] array, int length) {
+      int[] result = new int[length];
+      System.arraycopy(array, 0, result, 0, array.length);
+      return result;
     }
 
-    blockA.addAll(blockB);
-    unrelatedBlocks.remove(blockB);
-  }
+    int find(int id) {
+      int i = id;
+      while (parent[i] != i) {
+        // path halving
+        parent[i] = parent[parent[i]];
+        i = parent[i];
+      }
+      return i;
+    }
 
-  private boolean isCallToInternalFieldOrMethod(AsmEdge edge) {
-    return edge.getTargetAsmClass() == asmClass && (edge.getUsage() == SourceCodeEdgeUsage.CALLS_FIELD || edge.getUsage() == SourceCodeEdgeUsage.CALLS_METHOD);
-  }
+    void union(int a, int b) {
+      int rootA = find(a);
+      int rootB = find(b);
+      if (rootA == rootB) {
+        return;
+      }
+      int survivor = creator[rootA];
+      if (rank[rootA] < rank[rootB]) {
+        parent[rootA] = rootB;
+        creator[rootB] = survivor;
+      } else {
+        parent[rootB] = rootA;
+        if (rank[rootA] == rank[rootB]) {
+          rank[rootA]++;
+        }
+      }
+    }
 
-  private Set<AsmResource> getOrCreateResourceBlock(AsmResource resource) {
-    for (Set<AsmResource> block : unrelatedBlocks) {
-      if (block.contains(resource)) {
-        return block;
+    /**
+     * @return blocks, which contain more than one resource
+     */
+    List<Set<AsmResource>> getNotIsolatedBlocks() {
+      // indexed by creator of block
+      List<Set<AsmResource>> blocks = new ArrayList<Set<AsmResource>>(Collections.<Set<AsmResource>> nCopies(size, null));
+      for (int i = 0; i < size; i++) {
+        int root = find(i);
+        int blockIndex = creator[root];
+        Set<AsmResource> block = blocks.get(blockIndex);
+        if (block == null) {
+          block = new HashSet<AsmResource>();
+          blocks.set(blockIndex, block);
+        }
+        block.add(resources[i]);
+      }
+      List<Set<AsmResource>> result = new ArrayList<Set<AsmResource>>();
+      for (Set<AsmResource> block : blocks) {
+        if (block != null && block.size() > 1) {
+          result.add(block);
+        }
       }
+      return result;
     }
 
-    Set<AsmResource> block = new HashSet<AsmResource>();
-    block.add(resource);
-    unrelatedBlocks.add(block);
-    return block;
   }
 
 }
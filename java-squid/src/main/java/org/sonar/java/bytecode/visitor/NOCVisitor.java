@@ -26,11 +26,17 @@ public class NOCVisitor extends BytecodeVisitor {
 
   @Override
   public void visitClass(AsmClass asmClass) {
-    getSourceClass(asmClass).add(Metric.NOC, asmClass.getNumberOfChildren());
+    int noc = getClassHierarchy().getNumberOfChildren(asmClass);
+    getSourceClass(asmClass).add(Metric.NOC, noc);
 
     if (isMainPublicClassInFile(asmClass)) {
-      getSourceFile(asmClass).add(Metric.NOC, asmClass.getNumberOfChildren());
+      getSourceFile(asmClass).add(Metric.NOC, noc);
     }
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
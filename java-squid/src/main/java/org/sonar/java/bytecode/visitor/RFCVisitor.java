@@ -20,8 +20,9 @@
 package org.sonar.java.bytecode.visitor;
 
 import org.sonar.java.bytecode.asm.AsmClass;
-import org.sonar.java.bytecode.asm.AsmEdge;
+import org.sonar.java.bytecode.asm.AsmField;
 import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.asm.AsmResource;
 import org.sonar.squid.api.SourceCodeEdgeUsage;
 import org.sonar.squid.measures.Metric;
 
@@ -30,34 +31,21 @@ import java.util.Set;
 
 public class RFCVisitor extends BytecodeVisitor {
 
-  private AsmClass asmClass;
-  private Set<AsmMethod> distinctCallToExternalMethods;
-  private int rfc = 0;
-
   @Override
-  public void visitClass(AsmClass asmClass) {
-    rfc = 0;
-    this.asmClass = asmClass;
-    distinctCallToExternalMethods = new HashSet<AsmMethod>();
-  }
-
-  @Override
-  public void visitMethod(AsmMethod asmMethod) {
-    if (asmMethod.isBodyLoaded() && !asmMethod.isAccessor()) {
-      rfc++;
+  public void leaveClass(AsmClass asmClass) {
+    int rfc = 0;
+    Set<AsmMethod> distinctCallToExternalMethods = new HashSet<AsmMethod>();
+    addCallsToExternalMethods(asmClass, asmClass, distinctCallToExternalMethods);
+    for (AsmMethod asmMethod : asmClass.getMethods()) {
+      if (asmMethod.isBodyLoaded() && !asmMethod.isAccessor()) {
+        rfc++;
+      }
+      addCallsToExternalMethods(asmClass, asmMethod, distinctCallToExternalMethods);
     }
-  }
-
-  @Override
-  public void visitEdge(AsmEdge edge) {
-    if (edge.getTargetAsmClass() != asmClass && edge.getUsage() == SourceCodeEdgeUsage.CALLS_METHOD
-        && !((AsmMethod) edge.getTo()).isAccessor()) {
-      distinctCallToExternalMethods.add((AsmMethod) edge.getTo());
+    for (AsmField asmField : asmClass.getFields()) {
+      addCallsToExternalMethods(asmClass, asmField, distinctCallToExternalMethods);
     }
-  }
 
-  @Override
-  public void leaveClass(AsmClass asmClass) {
     rfc += distinctCallToExternalMethods.size();
     getSourceClass(asmClass).add(Metric.RFC, rfc);
 
@@ -66,4 +54,21 @@ public class RFCVisitor extends BytecodeVisitor {
     }
   }
 
+  private static void addCallsToExternalMethods(AsmClass asmClass, AsmResource resource, Set<AsmMethod> distinctCallToExternalMethods) {
+    for (int i = 0; i < resource.getOutgoingEdgesCount(); i++) {
+      if (resource.getOutgoingEdgeTargetClass(i) != asmClass && resource.getOutgoingEdgeUsage(i) == SourceCodeEdgeUsage.CALLS_METHOD
+          && !((AsmMethod) resource.getOutgoingEdgeTarget(i)).isAccessor()) {
+        distinctCallToExternalMethods.add((AsmMethod) resource.getOutgoingEdgeTarget(i));
+      }
+    }
+  }
+
+  /**
+   * All computations are done in {@link #leaveClass(AsmClass)} from visited class.
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -0,0 +1,353 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.profiling;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.io.Files;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects cumulative wall-time, number of calls and allocated bytes for phases of analysis and for callbacks of visitors,
+ * as well as time of parsing of each file, and writes them as JSON report.
+ * <p>
+ * Allocated bytes are measured for current thread, and so are available only on JVMs, which provide
+ * <code>com.sun.management.ThreadMXBean</code>, otherwise they are reported as zero.
+ * </p>
+ * Thread-safe.
+ */
+public class Profiler {
+
+  private static final int DEFAULT_SLOWEST_FILES = 20;
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final Method GET_THREAD_ALLOCATED_BYTES = getThreadAllocatedBytesMethod();
+  private static final long MEASUREMENT_ALLOCATED_BYTES = getMeasurementAllocatedBytes();
+
+  private final Map<String, Counter> phases = Maps.newLinkedHashMap();
+  private final Map<String, Counter> callbacks = Maps.newHashMap();
+  private final Map<Object, String> visitorNames = new IdentityHashMap<Object, String>();
+  private final Multiset<String> visitorLabels = HashMultiset.create();
+  private final Counter files = new Counter("files");
+  private final int slowestFilesLimit;
+  private final PriorityQueue<Counter> slowestFiles = new PriorityQueue<Counter>(11, Counter.BY_TIME);
+
+  public Profiler() {
+    this(DEFAULT_SLOWEST_FILES);
+  }
+
+  /**
+   * @param slowestFilesLimit number of slowest files to keep in report
+   */
+  public Profiler(int slowestFilesLimit) {
+    this.slowestFilesLimit = slowestFilesLimit;
+  }
+
+  /**
+   * Starts measurement of phase, measurements of phases with same name are accumulated.
+   */
+  public Phase start(String phaseName) {
+    Counter counter;
+    synchronized (phases) {
+      counter = phases.get(phaseName);
+      if (counter == null) {
+        counter = new Counter(phaseName);
+        phases.put(phaseName, counter);
+      }
+    }
+    return new Phase(counter);
+  }
+
+  /**
+   * @return counter for given callback of given visitor, which is distinct for each instance of visitor,
+   * so that several checks of same class (e.g. XPath rules) are reported separately
+   */
+  public Counter getCallbackCounter(Object visitor, String callback) {
+    synchronized (callbacks) {
+      String name = getVisitorName(visitor) + "#" + callback;
+      Counter counter = callbacks.get(name);
+      if (counter == null) {
+        counter = new Counter(name);
+        callbacks.put(name, counter);
+      }
+      return counter;
+    }
+  }
+
+  /**
+   * Name of visitor consists of name of its class, result of overridden {@link Object#toString()} if any
+   * (e.g. XPath query of XPath check, because all of them have the same class),
+   * and index of instance among visitors with the same name.
+   */
+  private String getVisitorName(Object visitor) {
+    String name = visitorNames.get(visitor);
+    if (name == null) {
+      String label = visitor.getClass().getName();
+      String description = getDescription(visitor);
+      if (description != null) {
+        label += "(" + description + ")";
+      }
+      int previousInstances = visitorLabels.add(label, 1);
+      name = previousInstances == 0 ? label : label + "[" + (previousInstances + 1) + "]";
+      visitorNames.put(visitor, name);
+    }
+    return name;
+  }
+
+  @Nullable
+  private static String getDescription(Object visitor) {
+    try {
+      if (visitor.getClass().getMethod("toString").getDeclaringClass() != Object.class) {
+        return visitor.toString();
+      }
+    } catch (NoSuchMethodException e) {
+      // Can't happen, as declared by Object
+    }
+    return null;
+  }
+
+  /**
+   * Records time of parsing of given file, which was started at given time and number of allocated bytes of current thread.
+   */
+  public void addFile(File file, long startTime, long startAllocatedBytes) {
+    Counter fileCounter = new Counter(file.getPath());
+    fileCounter.add(startTime, startAllocatedBytes);
+    files.add(fileCounter.getTime(), fileCounter.getAllocatedBytes(), 1);
+    synchronized (slowestFiles) {
+      slowestFiles.add(fileCounter);
+      if (slowestFiles.size() > slowestFilesLimit) {
+        slowestFiles.poll();
+      }
+    }
+  }
+
+  public void writeReport(File file) throws IOException {
+    Files.createParentDirs(file);
+    Files.write(toJson(), file, Charsets.UTF_8);
+  }
+
+  String toJson() {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n\"phases\": ");
+    synchronized (phases) {
+      appendCounters(json, phases.values());
+    }
+    json.append(",\n\"callbacks\": ");
+    List<Counter> sortedCallbacks;
+    synchronized (callbacks) {
+      sortedCallbacks = Lists.newArrayList(callbacks.values());
+    }
+    Collections.sort(sortedCallbacks, Collections.reverseOrder(Counter.BY_TIME));
+    appendCounters(json, sortedCallbacks);
+    json.append(",\n\"files\": ");
+    appendCounter(json, files);
+    json.append(",\n\"slowestFiles\": ");
+    List<Counter> sortedFiles;
+    synchronized (slowestFiles) {
+      sortedFiles = Lists.newArrayList(slowestFiles);
+    }
+    Collections.sort(sortedFiles, Collections.reverseOrder(Counter.BY_TIME));
+    appendCounters(json, sortedFiles);
+    json.append("\n}\n");
+    return json.toString();
+  }
+
+  private static void appendCounters(StringBuilder json, Collection<Counter> counters) {
+    json.append('[');
+    boolean first = true;
+    for (Counter counter : counters) {
+      if (counter.getCalls() == 0) {
+        // Callback, which is not used by visitor
+        continue;
+      }
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      json.append("\n  ");
+      appendCounter(json, counter);
+    }
+    json.append(']');
+  }
+
+  private static void appendCounter(StringBuilder json, Counter counter) {
+    json.append("{\"name\": ");
+    appendString(json, counter.getName());
+    json.append(", \"calls\": ").append(counter.getCalls());
+    json.append(", \"timeMs\": ").append(counter.getTime() / 1000000);
+    json.append(", \"allocatedBytes\": ").append(counter.getAllocatedBytes());
+    json.append('}');
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < ' ') {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+
+  /**
+   * @return number of bytes allocated by current thread since its start, or zero if not supported by JVM
+   */
+  public static long getCurrentThreadAllocatedBytes() {
+    if (GET_THREAD_ALLOCATED_BYTES == null) {
+      return 0;
+    }
+    try {
+      long result = (Long) GET_THREAD_ALLOCATED_BYTES.invoke(THREAD_MX_BEAN, Thread.currentThread().getId());
+      // Negative value means that measurement is disabled
+      return Math.max(0, result);
+    } catch (Exception e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Measurement itself allocates (at least result of reflective call), so this amount should be subtracted from each measurement.
+   */
+  private static long getMeasurementAllocatedBytes() {
+    long result = Long.MAX_VALUE;
+    for (int i = 0; i < 100; i++) {
+      long start = getCurrentThreadAllocatedBytes();
+      result = Math.min(result, getCurrentThreadAllocatedBytes() - start);
+    }
+    return result;
+  }
+
+  @Nullable
+  private static Method getThreadAllocatedBytesMethod() {
+    try {
+      // Extension of HotSpot, which is not available at compile time on all JDKs
+      Class<?> extendedThreadMXBean = Class.forName("com.sun.management.ThreadMXBean");
+      if (extendedThreadMXBean.isInstance(THREAD_MX_BEAN)) {
+        return extendedThreadMXBean.getMethod("getThreadAllocatedBytes", long.class);
+      }
+    } catch (ClassNotFoundException e) {
+      // not supported
+    } catch (NoSuchMethodException e) {
+      // not supported
+    }
+    return null;
+  }
+
+  public static class Counter {
+
+    static final Comparator<Counter> BY_TIME = new Comparator<Counter>() {
+      public int compare(Counter o1, Counter o2) {
+        long t1 = o1.getTime();
+        long t2 = o2.getTime();
+        return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+      }
+    };
+
+    private final String name;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong time = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    Counter(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Accounts one call, which was started at given {@link System#nanoTime() time}
+     * and given number of {@link Profiler#getCurrentThreadAllocatedBytes() allocated bytes} of current thread.
+     */
+    public void add(long startTime, long startAllocatedBytes) {
+      long endTime = System.nanoTime();
+      long endAllocatedBytes = getCurrentThreadAllocatedBytes();
+      add(endTime - startTime, Math.max(0, endAllocatedBytes - startAllocatedBytes - MEASUREMENT_ALLOCATED_BYTES), 1);
+    }
+
+    void add(long time, long allocatedBytes, long calls) {
+      this.time.addAndGet(time);
+      this.allocatedBytes.addAndGet(allocatedBytes);
+      this.calls.addAndGet(calls);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getCalls() {
+      return calls.get();
+    }
+
+    /**
+     * @return cumulative time in nanoseconds
+     */
+    public long getTime() {
+      return time.get();
+    }
+
+    public long getAllocatedBytes() {
+      return allocatedBytes.get();
+    }
+
+  }
+
+  public static final class Phase {
+
+    private final Counter counter;
+    private final long startTime;
+    private final long startAllocatedBytes;
+
+    private Phase(Counter counter) {
+      this.counter = counter;
+      this.startAllocatedBytes = getCurrentThreadAllocatedBytes();
+      this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Ends measurement of this phase. Allocated bytes are accounted only for thread, which started this phase.
+     */
+    public void stop() {
+      counter.add(startTime, startAllocatedBytes);
+    }
+
+  }
+
+}
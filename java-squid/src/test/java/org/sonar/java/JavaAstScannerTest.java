@@ -21,22 +21,40 @@ package org.sonar.java;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.resources.InputFile;
 import org.sonar.api.resources.InputFileUtils;
 import org.sonar.java.ast.AstScanner;
+import org.sonar.java.ast.api.JavaGrammar;
 import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.visitors.TokenOnlyVisitor;
+import org.sonar.java.profiling.Profiler;
+import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourcePackage;
 import org.sonar.squid.api.SourceProject;
 import org.sonar.squid.indexer.QueryByType;
+import org.sonar.squid.measures.Metric;
 
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 
 public class JavaAstScannerTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void files() {
     AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8));
@@ -48,6 +66,189 @@ public class JavaAstScannerTest {
     assertThat(project.getInt(JavaMetric.FILES)).isEqualTo(2);
   }
 
+  @Test
+  public void parallel() {
+    File baseDir = new File("src/main/java");
+    List<InputFile> inputFiles = InputFileUtils.create(baseDir, FileUtils.listFiles(baseDir, new String[] {"java"}, true));
+
+    AstScanner sequentialScanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8));
+    sequentialScanner.scan(inputFiles);
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setParallelism(4);
+    AstScanner parallelScanner = JavaAstScanner.create(conf);
+    parallelScanner.scan(inputFiles);
+
+    Collection<SourceCode> files = sequentialScanner.getIndex().search(new QueryByType(SourceFile.class));
+    assertThat(parallelScanner.getIndex().search(new QueryByType(SourceFile.class)).size()).isEqualTo(files.size());
+    for (SourceCode file : files) {
+      SourceCode parallelFile = parallelScanner.getIndex().search(file.getKey());
+      for (JavaMetric metric : JavaMetric.values()) {
+        assertThat(parallelFile.getDouble(metric)).as(file.getKey() + " " + metric).isEqualTo(file.getDouble(metric));
+      }
+    }
+  }
+
+  @Test
+  public void cache() throws Exception {
+    File baseDir = new File("src/main/java");
+    List<InputFile> inputFiles = InputFileUtils.create(baseDir, FileUtils.listFiles(baseDir, new String[] {"java"}, true));
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setCacheDirectory(temporaryFolder.newFolder());
+
+    FileCounter counter = new FileCounter();
+    AstScanner scanner = JavaAstScanner.create(conf, counter);
+    scanner.scan(inputFiles);
+    assertThat(counter.files).isEqualTo(inputFiles.size());
+
+    counter = new FileCounter();
+    AstScanner cachedScanner = JavaAstScanner.create(conf, counter);
+    cachedScanner.scan(inputFiles);
+    assertThat(counter.files).isEqualTo(0);
+
+    Collection<SourceCode> sourceCodes = scanner.getIndex().search();
+    assertThat(cachedScanner.getIndex().search()).hasSize(sourceCodes.size());
+    for (SourceCode sourceCode : sourceCodes) {
+      SourceCode cachedSourceCode = cachedScanner.getIndex().search(sourceCode.getKey());
+      assertThat(cachedSourceCode.getClass()).isEqualTo(sourceCode.getClass());
+      assertThat(cachedSourceCode.getStartAtLine()).isEqualTo(sourceCode.getStartAtLine());
+      assertThat(cachedSourceCode.getEndAtLine()).isEqualTo(sourceCode.getEndAtLine());
+      for (JavaMetric metric : JavaMetric.values()) {
+        assertThat(cachedSourceCode.getDouble(metric)).as(sourceCode.getKey() + " " + metric).isEqualTo(sourceCode.getDouble(metric));
+      }
+      for (Metric metric : Metric.values()) {
+        assertThat(cachedSourceCode.getDouble(metric)).as(sourceCode.getKey() + " " + metric).isEqualTo(sourceCode.getDouble(metric));
+      }
+    }
+  }
+
+  @Test
+  public void corrupted_cache() throws Exception {
+    File baseDir = new File("src/test/files/metrics");
+    List<InputFile> inputFiles = InputFileUtils.create(baseDir, ImmutableList.of(new File("src/test/files/metrics/Lines.java")));
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    File cacheDirectory = temporaryFolder.newFolder();
+    conf.setCacheDirectory(cacheDirectory);
+    JavaAstScanner.create(conf).scan(inputFiles);
+
+    // Truncate end of data, while keeping header of entry
+    File[] entries = cacheDirectory.listFiles();
+    assertThat(entries).hasSize(1);
+    RandomAccessFile entry = new RandomAccessFile(entries[0], "rw");
+    entry.setLength(entry.length() - 4);
+    entry.close();
+
+    FileCounter counter = new FileCounter();
+    AstScanner scanner = JavaAstScanner.create(conf, counter);
+    scanner.scan(inputFiles);
+    assertThat(counter.files).isEqualTo(1);
+    assertThat(scanner.getIndex().search(new QueryByType(SourceFile.class))).hasSize(1);
+    SourceProject project = (SourceProject) scanner.getIndex().search(new QueryByType(SourceProject.class)).iterator().next();
+    assertThat(project.getInt(JavaMetric.FILES)).isEqualTo(1);
+  }
+
+  @Test
+  public void tokens() {
+    File baseDir = new File("src/main/java");
+    List<InputFile> inputFiles = InputFileUtils.create(baseDir, FileUtils.listFiles(baseDir, new String[] {"java"}, true));
+
+    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8));
+    scanner.scan(inputFiles);
+    FileCounter counter = new FileCounter();
+    AstScanner tokensScanner = JavaAstScanner.createForTokens(new JavaConfiguration(Charsets.UTF_8), Collections.<SquidAstVisitor<JavaGrammar>> singletonList(counter));
+    tokensScanner.scan(inputFiles);
+    assertThat(counter.files).isEqualTo(inputFiles.size());
+
+    Collection<SourceCode> files = scanner.getIndex().search(new QueryByType(SourceFile.class));
+    assertThat(tokensScanner.getIndex().search(new QueryByType(SourceFile.class)).size()).isEqualTo(files.size());
+    for (SourceCode file : files) {
+      SourceFile tokensFile = (SourceFile) tokensScanner.getIndex().search(file.getKey());
+      assertThat(tokensFile.getParent(SourcePackage.class).getKey()).isEqualTo(file.getParent(SourcePackage.class).getKey());
+      for (JavaMetric metric : TOKEN_METRICS) {
+        assertThat(tokensFile.getInt(metric)).as(file.getKey() + " " + metric).isEqualTo(file.getInt(metric));
+      }
+      assertThat(tokensFile.getNoSonarTagLines()).isEqualTo(((SourceFile) file).getNoSonarTagLines());
+    }
+  }
+
+  private static final JavaMetric[] TOKEN_METRICS = {
+    JavaMetric.LINES,
+    JavaMetric.LINES_OF_CODE,
+    JavaMetric.COMMENT_LINES_WITHOUT_HEADER,
+    JavaMetric.COMMENT_BLANK_LINES};
+
+  private static class FileCounter extends SquidAstVisitor<JavaGrammar> implements TokenOnlyVisitor {
+    private int files;
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      files++;
+    }
+  }
+
+  @Test
+  public void timeout() throws Exception {
+    File baseDir = temporaryFolder.newFolder();
+    File file = new File(baseDir, "Huge.java");
+    StringBuilder sb = new StringBuilder("class Huge {\n");
+    for (int i = 0; i < 10000; i++) {
+      sb.append("  int method").append(i).append("(int a) { return a * (a + ").append(i).append(") - method").append(i).append("(a); }\n");
+    }
+    Files.write(sb.append("}\n"), file, Charsets.UTF_8);
+    List<InputFile> inputFiles = ImmutableList.of(InputFileUtils.create(baseDir, file));
+    File quarantineFile = new File(temporaryFolder.getRoot(), "quarantine.txt");
+
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setParseTimeout(10);
+    conf.setQuarantineFile(quarantineFile);
+    conf.setParallelism(2);
+    AstScanner scanner = JavaAstScanner.create(conf);
+    scanner.scan(inputFiles);
+    SourceCode sourceFile = scanner.getIndex().search("Huge.java");
+    assertThat(sourceFile.getInt(JavaMetric.LINES)).isEqualTo(10003);
+    assertThat(sourceFile.getInt(JavaMetric.LINES_OF_CODE)).isEqualTo(10002);
+    assertThat(sourceFile.getInt(JavaMetric.CLASSES)).isEqualTo(0);
+    assertThat(Files.toString(quarantineFile, Charsets.UTF_8)).contains(file.getAbsolutePath());
+
+    // File in quarantine is not parsed even without timeout
+    conf.setParseTimeout(0);
+    scanner = JavaAstScanner.create(conf);
+    scanner.scan(inputFiles);
+    sourceFile = scanner.getIndex().search("Huge.java");
+    assertThat(sourceFile.getInt(JavaMetric.LINES_OF_CODE)).isEqualTo(10002);
+    assertThat(sourceFile.getInt(JavaMetric.CLASSES)).isEqualTo(0);
+    assertThat(Files.toString(quarantineFile, Charsets.UTF_8)).contains(file.getAbsolutePath());
+
+    // Modified file leaves quarantine
+    Files.append("// modified\n", file, Charsets.UTF_8);
+    scanner = JavaAstScanner.create(conf);
+    scanner.scan(inputFiles);
+    sourceFile = scanner.getIndex().search("Huge.java");
+    assertThat(sourceFile.getInt(JavaMetric.CLASSES)).isEqualTo(1);
+    assertThat(sourceFile.getInt(JavaMetric.METHODS)).isEqualTo(10000);
+    assertThat(Files.toString(quarantineFile, Charsets.UTF_8)).isEmpty();
+  }
+
+  @Test
+  public void profiling() throws Exception {
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setParallelism(2);
+    AstScanner scanner = JavaAstScanner.create(conf);
+    Profiler profiler = new Profiler();
+    scanner.setProfiler(profiler);
+    File baseDir = new File("src/test/files/metrics");
+    scanner.scan(InputFileUtils.create(baseDir,
+        ImmutableList.of(new File("src/test/files/metrics/Lines.java"), new File("src/test/files/metrics/LinesOfCode.java"))));
+
+    File report = new File(temporaryFolder.getRoot(), "report.json");
+    profiler.writeReport(report);
+    assertThat(Files.toString(report, Charsets.UTF_8))
+        .contains("Lines.java")
+        .contains("LinesOfCode.java")
+        .contains("{\"name\": \"org.sonar.java.ast.visitors.ClassVisitor#visitNode\", \"calls\": 2,")
+        .contains("{\"name\": \"org.sonar.java.ast.visitors.ClassVisitor#visitFile\", \"calls\": 2,")
+        .contains("org.sonar.java.ast.visitors.LinesOfCodeVisitor#visitToken");
+  }
+
   @Test
   public void lines() {
     SourceFile file = JavaAstScanner.scanSingleFile(new File("src/test/files/metrics/Lines.java"));
@@ -0,0 +1,129 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.parser;
+
+import org.junit.Test;
+import org.sonar.java.ast.lexer.FloatLiteralChannel;
+import org.sonar.java.ast.lexer.IntegerLiteralChannel;
+import org.sonar.java.ast.parser.TerminalMatchers.TerminalMatcher;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TerminalMatchersTest {
+
+  private static final String NUMBERS = "019_xXbB.eEpP+-fFdDlLa";
+
+  @Test
+  public void whitespace() {
+    check(TerminalMatchers.whitespace(), "\\s*+", " \t\n\u000B\f\r\u00A0a");
+  }
+
+  @Test(expected = ParsingInterruptedException.class)
+  public void whitespace_should_allow_to_interrupt_parsing() {
+    Thread.currentThread().interrupt();
+    try {
+      TerminalMatchers.whitespace().matchLength(" ");
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  public void comments() {
+    check(TerminalMatchers.inlineComment(), "//[^\\n\\r]*+", "/*\n\ra");
+    check(TerminalMatchers.multilineComment(), "/\\*[\\s\\S]*?\\*\\/", "/*\n\ra");
+  }
+
+  @Test
+  public void identifiers() {
+    String alphabet = "aZ_$09.\u00E9\u0660\u200B\uD835\uDC00\uD800 ";
+    check(TerminalMatchers.javaIdentifier(), "\\p{javaJavaIdentifierStart}++\\p{javaJavaIdentifierPart}*+", alphabet);
+    check(TerminalMatchers.javaIdentifierPart(), "\\p{javaJavaIdentifierPart}", alphabet);
+  }
+
+  @Test
+  public void keywords() {
+    String alphabet = "finaloy_1\u00E9 ";
+    TerminalMatcher identifier = TerminalMatchers.identifier("if", "finally", "final", "for");
+    String regexp = "(?!(?:if|finally|final|for)(?!\\p{javaJavaIdentifierPart}))\\p{javaJavaIdentifierStart}++\\p{javaJavaIdentifierPart}*+";
+    check(identifier, regexp, alphabet);
+    for (String input : new String[] {"finally", "finally ", "finallyy", "final", "final(", "finall", "for_", "for", "if1", "if"}) {
+      checkOne(identifier, Pattern.compile(regexp).matcher(""), input);
+    }
+    check(TerminalMatchers.identifier(), "\\p{javaJavaIdentifierStart}++\\p{javaJavaIdentifierPart}*+", alphabet);
+    check(TerminalMatchers.keyword("final"), "final(?!\\p{javaJavaIdentifierPart})", alphabet);
+  }
+
+  @Test
+  public void quoted_literals() {
+    check(TerminalMatchers.characterLiteral(), "'([^'\\\\]*+(\\\\[\\s\\S])?+)*+'", "'\"\\a\n");
+    check(TerminalMatchers.stringLiteral(), "\"([^\"\\\\]*+(\\\\[\\s\\S])?+)*+\"", "'\"\\a\n");
+  }
+
+  @Test
+  public void floating_point_literals() {
+    check(TerminalMatchers.floatLiteral(), FloatLiteralChannel.FLOATING_LITERAL_WITHOUT_SUFFIX + "[fF]|[0-9][0-9_]*+[fF]", NUMBERS);
+    check(TerminalMatchers.doubleLiteral(), FloatLiteralChannel.FLOATING_LITERAL_WITHOUT_SUFFIX + "[dD]?+|[0-9][0-9_]*+[dD]", NUMBERS);
+  }
+
+  @Test
+  public void integer_literals() {
+    check(TerminalMatchers.longLiteral(), IntegerLiteralChannel.INTEGER_LITERAL + "[lL]", NUMBERS);
+    check(TerminalMatchers.integerLiteral(), IntegerLiteralChannel.INTEGER_LITERAL, NUMBERS);
+  }
+
+  /**
+   * Compares matcher with regular expression on all strings up to 4 characters and on random longer strings.
+   */
+  private static void check(TerminalMatcher terminalMatcher, String regexp, String alphabet) {
+    Matcher matcher = Pattern.compile(regexp).matcher("");
+    checkAll(terminalMatcher, matcher, alphabet, "", 4);
+    Random random = new Random(0);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      sb.setLength(0);
+      int length = 5 + random.nextInt(10);
+      for (int j = 0; j < length; j++) {
+        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      checkOne(terminalMatcher, matcher, sb.toString());
+    }
+  }
+
+  private static void checkAll(TerminalMatcher terminalMatcher, Matcher matcher, String alphabet, String prefix, int length) {
+    checkOne(terminalMatcher, matcher, prefix);
+    if (length > 0) {
+      for (int i = 0; i < alphabet.length(); i++) {
+        checkAll(terminalMatcher, matcher, alphabet, prefix + alphabet.charAt(i), length - 1);
+      }
+    }
+  }
+
+  private static void checkOne(TerminalMatcher terminalMatcher, Matcher matcher, String input) {
+    matcher.reset(input);
+    int expected = matcher.lookingAt() ? matcher.end() : -1;
+    assertThat(terminalMatcher.matchLength(input)).as(input).isEqualTo(expected);
+  }
+
+}
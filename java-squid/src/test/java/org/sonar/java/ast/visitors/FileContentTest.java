@@ -0,0 +1,74 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FileContentTest {
+
+  @Test
+  public void empty() {
+    FileContent content = new FileContent("");
+    assertThat(content.getLinesCount()).isEqualTo(1);
+    assertThat(content.getLineOffset(1)).isEqualTo(0);
+    assertThat(content.getLine(1)).isEqualTo("");
+  }
+
+  @Test
+  public void line_terminators() {
+    FileContent content = new FileContent("a\nbb\r\nccc\rd\n");
+    assertThat(content.getLinesCount()).isEqualTo(5);
+    assertThat(content.getLineOffset(1)).isEqualTo(0);
+    assertThat(content.getLineOffset(2)).isEqualTo(2);
+    assertThat(content.getLineOffset(3)).isEqualTo(6);
+    assertThat(content.getLineOffset(4)).isEqualTo(10);
+    assertThat(content.getLineOffset(5)).isEqualTo(12);
+    assertThat(content.getLine(1)).isEqualTo("a");
+    assertThat(content.getLine(2)).isEqualTo("bb");
+    assertThat(content.getLine(3)).isEqualTo("ccc");
+    assertThat(content.getLine(4)).isEqualTo("d");
+    assertThat(content.getLine(5)).isEqualTo("");
+  }
+
+  @Test
+  public void same_lines_as_split() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("line").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+      if (i % 7 == 0) {
+        sb.append('\r');
+      }
+    }
+    String[] lines = sb.toString().split("(\r)?\n|\r", -1);
+    FileContent content = new FileContent(sb.toString());
+    assertThat(content.getLinesCount()).isEqualTo(lines.length);
+    for (int i = 0; i < lines.length; i++) {
+      assertThat(content.getLine(i + 1)).isEqualTo(lines[i]);
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void wrong_line() {
+    new FileContent("a").getLineOffset(2);
+  }
+
+}
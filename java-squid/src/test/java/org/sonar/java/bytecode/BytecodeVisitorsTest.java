@@ -21,18 +21,20 @@ package org.sonar.java.bytecode;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
-import org.sonar.graph.DirectedGraph;
 import org.sonar.java.JavaConfiguration;
 import org.sonar.java.JavaSquid;
 import org.sonar.java.bytecode.asm.AsmResource;
+import org.sonar.java.bytecode.visitor.DependencyGraph;
+import org.sonar.squid.api.SourceClass;
 import org.sonar.squid.api.SourceCode;
-import org.sonar.squid.api.SourceCodeEdge;
 import org.sonar.squid.api.SourceCodeEdgeUsage;
+import org.sonar.squid.indexer.QueryByType;
 import org.sonar.squid.indexer.SquidIndex;
 import org.sonar.squid.measures.Metric;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -42,7 +44,7 @@ import static org.fest.assertions.Assertions.assertThat;
 public class BytecodeVisitorsTest {
 
   private static SquidIndex index;
-  private static DirectedGraph<SourceCode, SourceCodeEdge> graph;
+  private static DependencyGraph graph;
 
   static SourceCode todo;
   static SourceCode fixme;
@@ -215,4 +217,23 @@ public class BytecodeVisitorsTest {
     assertThat(graph.getEdge(sourceFile.getParent(), tagException.getParent()).getUsage()).isEqualTo(SourceCodeEdgeUsage.USES);
   }
 
+  @Test
+  public void parallel() {
+    JavaConfiguration conf = new JavaConfiguration(Charset.forName("UTF-8"));
+    conf.setParallelism(4);
+    JavaSquid squid = new JavaSquid(conf);
+    squid.scanDirectories(
+        Collections.singleton(new File("src/test/files/bytecode/src")),
+        Collections.singleton(new File("src/test/files/bytecode/bin")));
+
+    Collection<SourceCode> classes = index.search(new QueryByType(SourceClass.class));
+    assertThat(classes).isNotEmpty();
+    for (SourceCode sourceCode : classes) {
+      SourceCode actual = squid.search(sourceCode.getKey());
+      for (Metric metric : new Metric[] {Metric.DIT, Metric.RFC, Metric.NOC, Metric.LCOM4, Metric.CA, Metric.CE}) {
+        assertThat(actual.getInt(metric)).as(sourceCode.getKey() + " " + metric).isEqualTo(sourceCode.getInt(metric));
+      }
+    }
+  }
+
 }
@@ -20,6 +20,7 @@
 package org.sonar.java.bytecode.asm;
 
 import org.junit.Test;
+import org.objectweb.asm.ClassReader;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -32,4 +33,12 @@ public class AsmClassProviderTest {
     assertThat(DETAIL_LEVEL.STRUCTURE.isGreaterThan(DETAIL_LEVEL.STRUCTURE_AND_CALLS)).isFalse();
   }
 
+  @Test
+  public void should_skip_code_unless_calls_requested() {
+    int skipAll = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+    assertThat(AsmClassProvider.getParsingOptions(DETAIL_LEVEL.NOTHING)).isEqualTo(skipAll);
+    assertThat(AsmClassProvider.getParsingOptions(DETAIL_LEVEL.STRUCTURE)).isEqualTo(skipAll);
+    assertThat(AsmClassProvider.getParsingOptions(DETAIL_LEVEL.STRUCTURE_AND_CALLS)).isEqualTo(0);
+  }
+
 }
@@ -20,6 +20,7 @@
 package org.sonar.java.bytecode.asm;
 
 import org.junit.Test;
+import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -43,6 +44,43 @@ public class AsmClassTest {
     assertThat(asmClass.getMethod("toString()Ljava/lang/String;")).isNotNull();
   }
 
+  @Test
+  public void should_resolve_method_in_superclasses_and_interfaces() {
+    AsmClass interfaceClass = new AsmClass("Interface", DETAIL_LEVEL.STRUCTURE);
+    AsmMethod interfaceMethod = declareMethod(interfaceClass, "run()V");
+    AsmClass superClass = new AsmClass("Super", DETAIL_LEVEL.STRUCTURE);
+    AsmMethod superMethod = declareMethod(superClass, "toString()Ljava/lang/String;");
+    AsmClass asmClass = new AsmClass("Sub", DETAIL_LEVEL.STRUCTURE);
+    asmClass.setSuperClass(superClass);
+    asmClass.addInterface(interfaceClass);
+    asmClass.getMethodOrCreateIt("toString()Ljava/lang/String;");
+
+    assertThat(asmClass.resolveMethod("toString()Ljava/lang/String;")).isSameAs(superMethod);
+    assertThat(asmClass.resolveMethod("run()V")).isSameAs(interfaceMethod);
+    assertThat(asmClass.resolveMethod("unknown()V")).isNull();
+
+    AsmClass otherClass = new AsmClass("Other", DETAIL_LEVEL.STRUCTURE);
+    otherClass.setSuperClass(superClass);
+    AsmMethod overridingMethod = declareMethod(otherClass, "toString()Ljava/lang/String;");
+    assertThat(otherClass.resolveMethod("toString()Ljava/lang/String;")).isSameAs(overridingMethod);
+  }
+
+  @Test
+  public void should_not_memoize_resolution_before_loading() {
+    AsmClass asmClass = new AsmClass("Class", DETAIL_LEVEL.NOTHING);
+    assertThat(asmClass.resolveMethod("run()V")).isNull();
+
+    AsmMethod method = declareMethod(asmClass, "run()V");
+    asmClass.setDetailLevel(DETAIL_LEVEL.STRUCTURE);
+    assertThat(asmClass.resolveMethod("run()V")).isSameAs(method);
+  }
+
+  private static AsmMethod declareMethod(AsmClass asmClass, String key) {
+    AsmMethod method = asmClass.getMethodOrCreateIt(key);
+    method.setBodyLoaded(true);
+    return method;
+  }
+
   @Test
   public void testEqualsAndHashcode() {
     assertThat(new AsmClass("java/lang/String")).isEqualTo(new AsmClass("java/lang/String"));
@@ -43,6 +43,16 @@ public class AsmMethodTest {
   public void testAsmMethod() {
     AsmMethod method = new AsmMethod(new AsmClass("java/lang/String"), "toString()Ljava/lang/String;");
     assertThat(method.getName()).isEqualTo("toString");
+    assertThat(method.isConstructor()).isFalse();
+  }
+
+  @Test
+  public void testConstructor() {
+    assertThat(new AsmMethod(stringClass, "<init>", "()V").getName()).isEqualTo("<init>");
+    assertThat(new AsmMethod(stringClass, "<init>()V").isConstructor()).isTrue();
+    assertThat(new AsmMethod(stringClass, "<init>()V").isStaticConstructor()).isTrue();
+    assertThat(new AsmMethod(stringClass, "<clinit>()V").isConstructor()).isTrue();
+    assertThat(new AsmMethod(stringClass, "<clinit>()V").isStaticConstructor()).isFalse();
   }
 
   @Test
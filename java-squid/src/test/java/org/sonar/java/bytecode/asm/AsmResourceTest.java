@@ -0,0 +1,81 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import org.junit.Test;
+import org.sonar.squid.api.SourceCodeEdgeUsage;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AsmResourceTest {
+
+  private AsmClass asmClass = new AsmClass("tags/File");
+  private AsmClass stringClass = new AsmClass("java/lang/String");
+  private AsmMethod method = new AsmMethod(asmClass, "read()V");
+  private AsmField field = new AsmField(asmClass, "path");
+
+  @Test
+  public void should_store_edges() {
+    method.addEdge(field, SourceCodeEdgeUsage.CALLS_FIELD, 10);
+    method.addEdge(stringClass, SourceCodeEdgeUsage.USES, 11);
+
+    assertThat(method.getOutgoingEdgesCount()).isEqualTo(2);
+    assertThat(method.getOutgoingEdgeTarget(0)).isSameAs(field);
+    assertThat(method.getOutgoingEdgeUsage(0)).isEqualTo(SourceCodeEdgeUsage.CALLS_FIELD);
+    assertThat(method.getOutgoingEdgeLine(0)).isEqualTo(10);
+    assertThat(method.getOutgoingEdgeTargetClass(0)).isSameAs(asmClass);
+    assertThat(method.getOutgoingEdgeTargetClass(1)).isSameAs(stringClass);
+    assertThat(field.isUsed()).isTrue();
+
+    AsmEdge edge = method.getOutgoingEdges().iterator().next();
+    assertThat(edge.getFrom()).isSameAs(method);
+    assertThat(edge.getTo()).isSameAs(field);
+    assertThat(edge.getUsage()).isEqualTo(SourceCodeEdgeUsage.CALLS_FIELD);
+    assertThat(edge.getSourceLineNumber()).isEqualTo(10);
+
+    edge = method.getOutgoingEdge(1);
+    assertThat(edge.getFrom()).isSameAs(method);
+    assertThat(edge.getTo()).isSameAs(stringClass);
+    assertThat(edge.getTargetAsmClass()).isSameAs(stringClass);
+  }
+
+  @Test
+  public void should_ignore_duplicated_edges() {
+    method.addEdge(field, SourceCodeEdgeUsage.CALLS_FIELD, 10);
+    method.addEdge(stringClass, SourceCodeEdgeUsage.USES, 10);
+    method.addEdge(field, SourceCodeEdgeUsage.CALLS_FIELD, 10);
+    assertThat(method.getOutgoingEdgesCount()).isEqualTo(2);
+
+    method.addEdge(field, SourceCodeEdgeUsage.CALLS_FIELD, 11);
+    assertThat(method.getOutgoingEdgesCount()).isEqualTo(3);
+    assertThat(method.getCallsToField()).containsExactly(field, field);
+  }
+
+  @Test
+  public void should_grow() {
+    for (int i = 0; i < 100; i++) {
+      method.addEdge(new AsmClass("Class" + i), SourceCodeEdgeUsage.USES, 0);
+    }
+    assertThat(method.getOutgoingEdgesCount()).isEqualTo(100);
+    assertThat(method.getOutgoingEdges()).hasSize(100);
+    assertThat(method.getDistinctUsedAsmClasses()).hasSize(100);
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CachingAsmClassProviderTest {
+
+  private static final String[] CLASSES = {"tags/SourceFile", "tags/Tag", "tags/TagException", "tags/TagName"};
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File jar;
+  private File cacheDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    jar = createJar(temp.newFile("tags.jar"), new File("src/test/files/bytecode/bin/tags"));
+    cacheDirectory = temp.newFolder("cache");
+  }
+
+  @Test
+  public void should_load_same_structure_as_from_bytecode() {
+    AsmClassProvider expected = new ConcurrentAsmClassProvider(ClassLoaderBuilder.create(jar));
+    AsmClassProvider actual = new CachingAsmClassProvider(ClassLoaderBuilder.create(jar), new ClassSummaryCache(cacheDirectory));
+    for (String internalName : CLASSES) {
+      assertThat(describe(actual.getClass(internalName, DETAIL_LEVEL.STRUCTURE)))
+          .isEqualTo(describe(expected.getClass(internalName, DETAIL_LEVEL.STRUCTURE)));
+    }
+    assertThat(cacheDirectory.list()).isNotEmpty();
+
+    // Summaries are read from cache entries
+    actual = new CachingAsmClassProvider(ClassLoaderBuilder.create(jar), new ClassSummaryCache(cacheDirectory));
+    for (String internalName : CLASSES) {
+      assertThat(describe(actual.getClass(internalName, DETAIL_LEVEL.STRUCTURE)))
+          .isEqualTo(describe(expected.getClass(internalName, DETAIL_LEVEL.STRUCTURE)));
+    }
+  }
+
+  @Test
+  public void should_load_calls_from_bytecode() {
+    AsmClassProvider asmClassProvider = new CachingAsmClassProvider(ClassLoaderBuilder.create(jar), new ClassSummaryCache(cacheDirectory));
+    AsmClass asmClass = asmClassProvider.getClass("tags/SourceFile", DETAIL_LEVEL.STRUCTURE);
+    assertThat(asmClass.getMethod("readSourceFile()V").getCallsToMethod()).isEmpty();
+    asmClassProvider.getClass("tags/SourceFile", DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    assertThat(asmClass.getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    assertThat(asmClass.getMethod("readSourceFile()V").getCallsToMethod()).hasSize(2);
+  }
+
+  @Test
+  public void should_find_jar_file() throws Exception {
+    assertThat(CachingAsmClassProvider.getJarFile(ClassLoaderBuilder.create(jar).getResource("tags/Tag.class")))
+        .isEqualTo(jar.getAbsoluteFile());
+    assertThat(CachingAsmClassProvider.getJarFile(new URL("jar:" + jar.toURI() + "!/tags/Tag.class")))
+        .isEqualTo(jar.getAbsoluteFile());
+    assertThat(CachingAsmClassProvider.getJarFile(new File("src/test/files/bytecode/bin/tags/Tag.class").toURI().toURL())).isNull();
+  }
+
+  static File createJar(File jar, File classesDirectory) throws IOException {
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      for (File file : classesDirectory.listFiles()) {
+        if (file.isFile()) {
+          out.putNextEntry(new JarEntry(classesDirectory.getName() + "/" + file.getName()));
+          Files.copy(file, out);
+        }
+      }
+    } finally {
+      out.close();
+    }
+    return jar;
+  }
+
+  private static String describe(AsmClass asmClass) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(asmClass.getInternalName()).append(' ').append(asmClass.getDetailLevel()).append(describe((AsmResource) asmClass));
+    sb.append(" extends ").append(asmClass.getSuperClass() == null ? null : asmClass.getSuperClass().getInternalName()).append('\n');
+    List<String> members = Lists.newArrayList();
+    for (AsmField field : asmClass.getFields()) {
+      members.add(field.getName() + describe(field));
+    }
+    for (AsmMethod method : asmClass.getMethods()) {
+      members.add(method.getKey() + " " + method.getSignature() + " inherited=" + method.isInherited() + describe(method));
+    }
+    Collections.sort(members);
+    for (String member : members) {
+      sb.append(member).append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static String describe(AsmResource resource) {
+    List<String> names = Lists.newArrayList();
+    for (AsmClass asmClass : resource.getDistinctUsedAsmClasses()) {
+      names.add(asmClass.getInternalName());
+    }
+    for (AsmClass asmClass : resource.getImplementedInterfaces()) {
+      names.add("implements " + asmClass.getInternalName());
+    }
+    Collections.sort(names);
+    return " abstract=" + resource.isAbstract() + " interface=" + resource.isInterface() + " static=" + resource.isStatic()
+      + " private=" + resource.isPrivate() + " protected=" + resource.isProtected() + " deprecated=" + resource.isDeprecated()
+      + " uses=" + names;
+  }
+
+}
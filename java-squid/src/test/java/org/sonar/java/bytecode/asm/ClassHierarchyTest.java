@@ -0,0 +1,99 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import org.junit.Test;
+import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClassHierarchyTest {
+
+  private final AsmClass object = new AsmClass("java/lang/Object", DETAIL_LEVEL.STRUCTURE);
+  private final AsmClass runnable = new AsmClass("java/lang/Runnable", DETAIL_LEVEL.STRUCTURE);
+  private final AsmClass base = createClass("Base", object);
+  private final AsmClass middle = createClass("Middle", base);
+  private final AsmClass leaf = createClass("Leaf", middle);
+  private final AsmClass other = createClass("Other", base);
+
+  @Test
+  public void should_include_superclasses_interfaces_and_children() {
+    middle.addInterface(runnable);
+    ClassHierarchy hierarchy = new ClassHierarchy(Collections.singleton(middle));
+
+    assertThat(hierarchy.size()).isEqualTo(6);
+    assertThat(hierarchy.contains(runnable)).isTrue();
+    assertThat(hierarchy.contains(other)).isTrue();
+  }
+
+  @Test
+  public void should_compute_depth_of_inheritance() {
+    ClassHierarchy hierarchy = new ClassHierarchy(Arrays.asList(leaf, object));
+
+    assertThat(hierarchy.getDepthOfInheritance(object)).isEqualTo(0);
+    assertThat(hierarchy.getDepthOfInheritance(base)).isEqualTo(1);
+    assertThat(hierarchy.getDepthOfInheritance(middle)).isEqualTo(2);
+    assertThat(hierarchy.getDepthOfInheritance(leaf)).isEqualTo(3);
+    assertThat(hierarchy.getDepthOfInheritance(other)).isEqualTo(2);
+  }
+
+  @Test
+  public void should_compute_number_of_children_as_class() {
+    AsmClass runnableLeaf = createClass("RunnableLeaf", middle);
+    middle.addInterface(runnable);
+    runnableLeaf.addInterface(runnable);
+    ClassHierarchy hierarchy = new ClassHierarchy(Collections.singleton(leaf));
+
+    for (AsmClass asmClass : Arrays.asList(object, runnable, base, middle, leaf, other, runnableLeaf)) {
+      assertThat(hierarchy.getNumberOfChildren(asmClass)).as(asmClass.getInternalName()).isEqualTo(asmClass.getNumberOfChildren());
+    }
+    assertThat(hierarchy.getNumberOfChildren(base)).isEqualTo(4);
+    // RunnableLeaf is counted twice, directly and as child of Middle
+    assertThat(hierarchy.getNumberOfChildren(runnable)).isEqualTo(4);
+  }
+
+  @Test
+  public void should_check_subclasses() {
+    ClassHierarchy hierarchy = new ClassHierarchy(Collections.singleton(base));
+
+    assertThat(hierarchy.isSubclassOf(leaf, base)).isTrue();
+    assertThat(hierarchy.isSubclassOf(leaf, object)).isTrue();
+    assertThat(hierarchy.isSubclassOf(other, base)).isTrue();
+    assertThat(hierarchy.isSubclassOf(leaf, other)).isFalse();
+    assertThat(hierarchy.isSubclassOf(other, middle)).isFalse();
+    assertThat(hierarchy.isSubclassOf(base, leaf)).isFalse();
+    assertThat(hierarchy.isSubclassOf(base, base)).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_on_unknown_class() {
+    new ClassHierarchy(Collections.singleton(leaf)).getDepthOfInheritance(new AsmClass("Unknown"));
+  }
+
+  private static AsmClass createClass(String internalName, AsmClass superClass) {
+    AsmClass asmClass = new AsmClass(internalName, DETAIL_LEVEL.STRUCTURE);
+    asmClass.setSuperClass(superClass);
+    return asmClass;
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClassSummaryCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File jar;
+  private File cacheDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    jar = CachingAsmClassProviderTest.createJar(temp.newFile("tags.jar"), new File("src/test/files/bytecode/bin/tags"));
+    cacheDirectory = temp.newFolder("cache");
+  }
+
+  @Test
+  public void should_summarize_classes() {
+    ClassSummary summary = new ClassSummaryCache(cacheDirectory).get(jar, "tags/SourceFile");
+    assertThat(summary.name).isEqualTo("tags/SourceFile");
+    assertThat(summary.superName).isEqualTo("tags/File");
+    assertThat(summary.interfaces).isEmpty();
+
+    summary = new ClassSummaryCache(cacheDirectory).get(jar, "tags/Tag");
+    assertThat(summary.interfaces).containsOnly("tags/Comment");
+    assertThat(summary.methods).hasSize(2);
+    assertThat(summary.methods.get(0).name).isEqualTo("getName");
+    assertThat(summary.methods.get(0).desc).isEqualTo("()Ltags/TagName;");
+    assertThat(summary.methods.get(1).signature).isEqualTo("()Ljava/util/Collection<Ltags/Line;>;");
+
+    assertThat(new ClassSummaryCache(cacheDirectory).get(jar, "tags/Unknown")).isNull();
+  }
+
+  @Test
+  public void should_invalidate_entry_when_jar_changed() throws IOException {
+    new ClassSummaryCache(cacheDirectory).get(jar, "tags/Tag");
+    File[] entries = cacheDirectory.listFiles();
+    assertThat(entries).hasSize(1);
+    long entrySize = entries[0].length();
+
+    File otherClasses = temp.newFolder("tags");
+    FileUtils.copyFile(new File("src/test/files/bytecode/bin/tags/Tag.class"), new File(otherClasses, "Tag.class"));
+    CachingAsmClassProviderTest.createJar(jar, otherClasses);
+
+    ClassSummaryCache cache = new ClassSummaryCache(cacheDirectory);
+    assertThat(cache.get(jar, "tags/Tag")).isNotNull();
+    assertThat(cache.get(jar, "tags/SourceFile")).isNull();
+    assertThat(cacheDirectory.listFiles()).hasSize(1);
+    assertThat(cacheDirectory.listFiles()[0].length()).isLessThan(entrySize);
+  }
+
+  @Test
+  public void should_ignore_corrupted_entry() throws IOException {
+    new ClassSummaryCache(cacheDirectory).get(jar, "tags/Tag");
+    File entry = cacheDirectory.listFiles()[0];
+    FileUtils.writeByteArrayToFile(entry, new byte[] {0, 0, 0, 1, 0});
+
+    assertThat(new ClassSummaryCache(cacheDirectory).get(jar, "tags/Tag")).isNotNull();
+  }
+
+}
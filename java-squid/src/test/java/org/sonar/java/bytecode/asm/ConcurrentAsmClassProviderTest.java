@@ -0,0 +1,112 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import org.junit.Test;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ConcurrentAsmClassProviderTest {
+
+  private ConcurrentAsmClassProvider asmClassProvider = new ConcurrentAsmClassProvider(ClassLoaderBuilder.create(new File("src/test/files/bytecode/bin/")));
+
+  @Test
+  public void should_load_class() {
+    AsmClass asmClass = asmClassProvider.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    assertThat(asmClass.getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    assertThat(asmClass.getMethods()).isNotEmpty();
+    assertThat(asmClassProvider.getClass("tags/Line")).isSameAs(asmClass);
+  }
+
+  @Test
+  public void should_increase_detail_level() {
+    AsmClass asmClass = asmClassProvider.getClass("tags/Line", DETAIL_LEVEL.NOTHING);
+    assertThat(asmClass.getDetailLevel()).isEqualTo(DETAIL_LEVEL.NOTHING);
+    assertThat(asmClass.getMethods()).isEmpty();
+
+    assertThat(asmClassProvider.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE)).isSameAs(asmClass);
+    assertThat(asmClass.getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE);
+    assertThat(asmClass.getMethods()).isNotEmpty();
+  }
+
+  @Test
+  public void should_load_calls_only_for_structure_and_calls() {
+    AsmClass asmClass = asmClassProvider.getClass("tags/SourceFile", DETAIL_LEVEL.STRUCTURE);
+    AsmMethod readSourceFileMethod = asmClass.getMethod("readSourceFile()V");
+    assertThat(readSourceFileMethod.getCallsToMethod()).isEmpty();
+    assertThat(readSourceFileMethod.getCallsToField()).isEmpty();
+
+    assertThat(asmClassProvider.getClass("tags/SourceFile", DETAIL_LEVEL.STRUCTURE_AND_CALLS)).isSameAs(asmClass);
+    assertThat(asmClass.getMethod("readSourceFile()V")).isSameAs(readSourceFileMethod);
+    assertThat(readSourceFileMethod.getCallsToMethod()).hasSize(2);
+    assertThat(readSourceFileMethod.getCallsToField()).hasSize(1);
+  }
+
+  @Test
+  public void should_pin_only_classes_with_calls() {
+    asmClassProvider.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE);
+    assertThat(asmClassProvider.getPinnedClassesCount()).isEqualTo(0);
+    asmClassProvider.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    assertThat(asmClassProvider.getPinnedClassesCount()).isEqualTo(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_when_name_is_null() {
+    asmClassProvider.getClass(null, DETAIL_LEVEL.NOTHING);
+  }
+
+  @Test
+  public void should_be_thread_safe() throws Exception {
+    final String[] names = {"tags/Line", "tags/File", "tags/SourceFile", "tags/Tag", "tags/TagName", "tags/Comment"};
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<AsmClass[]>> futures = executor.invokeAll(Collections.nCopies(8, new Callable<AsmClass[]>() {
+        public AsmClass[] call() {
+          AsmClass[] result = new AsmClass[names.length];
+          for (int i = 0; i < names.length; i++) {
+            result[i] = asmClassProvider.getClass(names[i], DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+          }
+          return result;
+        }
+      }));
+      AsmClass[] expected = futures.get(0).get();
+      for (Future<AsmClass[]> future : futures) {
+        AsmClass[] actual = future.get();
+        for (int i = 0; i < names.length; i++) {
+          assertThat(actual[i]).isSameAs(expected[i]);
+          assertThat(actual[i].getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -118,6 +118,20 @@ public class SquidClassLoaderTest {
     assertThat(Iterators.forEnumeration(classLoader.findResources("notfound"))).hasSize(0);
   }
 
+  @Test
+  public void shouldRespectOrderOfClasspath() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Arrays.asList(jar, dir, jar));
+
+    assertThat(classLoader.loadClass("tags.TagName")).isNotNull();
+    assertThat(classLoader.loadClass("org.sonar.tests.Hello")).isNotNull();
+    assertThat(classLoader.findResource("org/sonar/tests/Hello.class").getFile()).startsWith(jar.getAbsolutePath() + "!/");
+    assertThat(classLoader.findResource("tags/TagName.class").getProtocol()).isEqualTo("file");
+    assertThat(classLoader.findResource("org/sonar/tests/")).isNotNull();
+    assertThat(Iterators.forEnumeration(classLoader.findResources("org/sonar/tests/Hello.class"))).hasSize(2);
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/hello.jar");
@@ -0,0 +1,270 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.visitor;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.squid.api.SourceClass;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeEdge;
+import org.sonar.squid.api.SourceCodeEdgeUsage;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourceMethod;
+import org.sonar.squid.api.SourcePackage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DependencyGraphTest {
+
+  private final DependencyGraph graph = new DependencyGraph();
+
+  private final SourcePackage packageA = new SourcePackage("a");
+  private final SourcePackage packageB = new SourcePackage("b");
+  private final SourceFile fileA = createFile(packageA, "a/A.java");
+  private final SourceFile fileB = createFile(packageB, "b/B.java");
+  private final SourceClass classA1 = createClass(fileA, "a/A1");
+  private final SourceClass classA2 = createClass(fileA, "a/A2");
+  private final SourceClass classB = createClass(fileB, "b/B");
+
+  @Test
+  public void should_add_edge() {
+    assertThat(graph.addEdge(classA1, classB, SourceCodeEdgeUsage.EXTENDS)).isTrue();
+    assertThat(graph.addEdge(classA1, classB, SourceCodeEdgeUsage.USES)).isFalse();
+
+    SourceCodeEdge edge = graph.getEdge(classA1, classB);
+    assertThat(edge.getFrom()).isSameAs(classA1);
+    assertThat(edge.getTo()).isSameAs(classB);
+    assertThat(edge.getUsage()).isEqualTo(SourceCodeEdgeUsage.EXTENDS);
+    assertThat(edge.getWeight()).isEqualTo(0);
+    assertThat(edge.getRootEdges()).isEmpty();
+    assertThat(edge).isSameAs(graph.getEdge(classA1, classB));
+
+    assertThat(graph.hasEdge(classA1, classB)).isTrue();
+    assertThat(graph.hasEdge(classB, classA1)).isFalse();
+    assertThat(graph.getEdge(classB, classA1)).isNull();
+    assertThat(graph.getVertices()).containsOnly(classA1, classB);
+  }
+
+  @Test
+  public void should_keep_outgoing_and_incoming_edges() {
+    graph.addEdge(classB, classA2, SourceCodeEdgeUsage.USES);
+    graph.addEdge(classB, classA1, SourceCodeEdgeUsage.USES);
+    graph.addEdge(classA1, classA2, SourceCodeEdgeUsage.USES);
+
+    assertThat(graph.getOutgoingEdges(classB)).containsOnly(graph.getEdge(classB, classA1), graph.getEdge(classB, classA2));
+    assertThat(graph.getIncomingEdges(classA2)).containsOnly(graph.getEdge(classB, classA2), graph.getEdge(classA1, classA2));
+    assertThat(graph.getOutgoingEdges(classA2)).isEmpty();
+    assertThat(graph.getEdges(Arrays.<SourceCode> asList(classA1, classB))).hasSize(3);
+  }
+
+  @Test
+  public void should_store_root_edges() {
+    graph.addEdge(classA1, classB, SourceCodeEdgeUsage.USES);
+    graph.addEdge(fileA, fileB, SourceCodeEdgeUsage.USES);
+    graph.addRootEdge(fileA, fileB, classA1, classB);
+    graph.addEdge(classA2, classB, SourceCodeEdgeUsage.USES);
+    graph.addEdge(classB, classA1, SourceCodeEdgeUsage.USES);
+    graph.addRootEdge(fileA, fileB, classA2, classB);
+    graph.addRootEdge(fileA, fileB, classA2, classB);
+
+    SourceCodeEdge edge = graph.getEdge(fileA, fileB);
+    assertThat(edge.getWeight()).isEqualTo(2);
+    assertThat(edge.getRootEdges()).containsOnly(graph.getEdge(classA1, classB), graph.getEdge(classA2, classB));
+    assertThat(edge.getNumberOfRootFromNodes()).isEqualTo(2);
+    assertThat(edge.hasAnEdgeFromRootNode(classA1)).isTrue();
+    assertThat(edge.hasAnEdgeToRootNode(classB)).isTrue();
+    assertThat(edge.hasAnEdgeToRootNode(classA1)).isFalse();
+    assertThat(graph.hasAnEdgeFromRootNode(fileA, fileB, classA2)).isTrue();
+    assertThat(graph.hasAnEdgeFromRootNode(fileA, fileB, classB)).isFalse();
+    assertThat(graph.getEdge(classA2, classB).getParent()).isSameAs(edge);
+    assertThat(graph.getEdge(classB, classA1).getParent()).isNull();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_when_root_edges_not_in_order_of_creation() {
+    graph.addEdge(classA1, classB, SourceCodeEdgeUsage.USES);
+    graph.addEdge(classA2, classB, SourceCodeEdgeUsage.USES);
+    graph.addEdge(fileA, fileB, SourceCodeEdgeUsage.USES);
+    graph.addRootEdge(fileA, fileB, classA2, classB);
+    graph.addRootEdge(fileA, fileB, classA1, classB);
+  }
+
+  @Test
+  public void should_not_mix_levels() {
+    graph.addEdge(classA1, classB, SourceCodeEdgeUsage.USES);
+    SourceMethod method = new SourceMethod(classA1, "method()V", 1);
+
+    assertThat(graph.getEdge(classA1, fileB)).isNull();
+    assertThat(graph.getEdge(method, classB)).isNull();
+    assertThat(graph.getOutgoingEdges(method)).isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_when_vertices_of_different_levels() {
+    graph.addEdge(classA1, fileB, SourceCodeEdgeUsage.USES);
+  }
+
+  /**
+   * Builds the same dependencies as {@link DependenciesVisitor} into a {@link DirectedGraph} of {@link SourceCodeEdge},
+   * as it was done before introduction of {@link DependencyGraph}, and compares all edges of both graphs.
+   */
+  @Test
+  public void should_be_equivalent_to_directed_graph() {
+    List<SourceClass> classes = Lists.newArrayList();
+    for (int p = 0; p < 4; p++) {
+      SourcePackage sourcePackage = new SourcePackage("p" + p);
+      for (int f = 0; f < 3; f++) {
+        SourceFile file = createFile(sourcePackage, "p" + p + "/F" + f + ".java");
+        for (int c = 0; c < 3; c++) {
+          classes.add(createClass(file, "p" + p + "/F" + f + "$C" + c));
+        }
+      }
+    }
+    DirectedGraph<SourceCode, SourceCodeEdge> directedGraph = new DirectedGraph<SourceCode, SourceCodeEdge>();
+    Random random = new Random(42);
+    for (int i = 0; i < 500; i++) {
+      SourceClass from = classes.get(random.nextInt(classes.size()));
+      SourceClass to = classes.get(random.nextInt(classes.size()));
+      SourceCodeEdgeUsage usage = SourceCodeEdgeUsage.values()[random.nextInt(SourceCodeEdgeUsage.values().length)];
+      if (!from.equals(to) && directedGraph.getEdge(from, to) == null) {
+        SourceCodeEdge edge = new SourceCodeEdge(from, to, usage);
+        directedGraph.addEdge(edge);
+        SourceCodeEdge fileEdge = addParentEdge(directedGraph, SourceFile.class, edge);
+        addParentEdge(directedGraph, SourcePackage.class, fileEdge);
+      }
+      if (!from.equals(to) && graph.addEdge(from, to, usage) && addParentEdge(graph, from, to)) {
+        addParentEdge(graph, from.getParent(SourceFile.class), to.getParent(SourceFile.class));
+      }
+    }
+
+    assertThat(graph.getVertices()).isEqualTo(directedGraph.getVertices());
+    assertThat(describe(graph.getEdges(graph.getVertices()))).isEqualTo(describe(directedGraph.getEdges(directedGraph.getVertices())));
+    for (SourceCode vertex : directedGraph.getVertices()) {
+      assertThat(describe(graph.getOutgoingEdges(vertex))).isEqualTo(describe(directedGraph.getOutgoingEdges(vertex)));
+      assertThat(describe(graph.getIncomingEdges(vertex))).isEqualTo(describe(directedGraph.getIncomingEdges(vertex)));
+    }
+  }
+
+  @Test
+  public void should_return_same_edges_to_concurrent_readers() throws Exception {
+    List<SourceCode> classes = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      classes.add(createClass(fileA, "a/A$" + i));
+    }
+    for (int i = 1; i < classes.size(); i++) {
+      graph.addEdge(classes.get(i - 1), classes.get(i), SourceCodeEdgeUsage.USES);
+      graph.addEdge(classes.get(i), classes.get(0), SourceCodeEdgeUsage.USES);
+    }
+    final Collection<SourceCode> vertices = graph.getVertices();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<List<SourceCodeEdge>>> futures = Lists.newArrayList();
+    for (int i = 0; i < 4; i++) {
+      futures.add(executor.submit(new Callable<List<SourceCodeEdge>>() {
+        public List<SourceCodeEdge> call() {
+          return graph.getEdges(vertices);
+        }
+      }));
+    }
+    executor.shutdown();
+
+    List<SourceCodeEdge> expected = futures.get(0).get();
+    assertThat(expected).hasSize(198);
+    for (Future<List<SourceCodeEdge>> future : futures) {
+      List<SourceCodeEdge> edges = future.get();
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(edges.get(i)).isSameAs(expected.get(i));
+      }
+    }
+  }
+
+  private static SourceCodeEdge addParentEdge(DirectedGraph<SourceCode, SourceCodeEdge> directedGraph, Class<? extends SourceCode> type, SourceCodeEdge rootEdge) {
+    if (rootEdge == null) {
+      return null;
+    }
+    SourceCode fromParent = rootEdge.getFrom().getParent(type);
+    SourceCode toParent = rootEdge.getTo().getParent(type);
+    if (fromParent.equals(toParent)) {
+      return null;
+    }
+    SourceCodeEdge parentEdge = directedGraph.getEdge(fromParent, toParent);
+    if (parentEdge == null) {
+      parentEdge = new SourceCodeEdge(fromParent, toParent, SourceCodeEdgeUsage.USES);
+      directedGraph.addEdge(parentEdge);
+    }
+    parentEdge.addRootEdge(rootEdge);
+    return parentEdge;
+  }
+
+  private static boolean addParentEdge(DependencyGraph graph, SourceCode from, SourceCode to) {
+    Class<? extends SourceCode> type = from instanceof SourceClass ? SourceFile.class : SourcePackage.class;
+    SourceCode fromParent = from.getParent(type);
+    SourceCode toParent = to.getParent(type);
+    if (fromParent.equals(toParent)) {
+      return false;
+    }
+    boolean created = graph.addEdge(fromParent, toParent, SourceCodeEdgeUsage.USES);
+    graph.addRootEdge(fromParent, toParent, from, to);
+    return created;
+  }
+
+  private static List<String> describe(Collection<SourceCodeEdge> edges) {
+    List<String> result = Lists.newArrayList();
+    for (SourceCodeEdge edge : edges) {
+      List<String> rootEdges = Lists.newArrayList();
+      for (SourceCodeEdge rootEdge : edge.getRootEdges()) {
+        rootEdges.add(rootEdge.getFrom().getKey() + "->" + rootEdge.getTo().getKey() + " " + rootEdge.getUsage());
+      }
+      Collections.sort(rootEdges);
+      SourceCodeEdge parent = edge.getParent();
+      result.add(edge.getFrom().getKey() + "->" + edge.getTo().getKey() + " " + edge.getUsage()
+        + " weight=" + edge.getWeight()
+        + " rootFromNodes=" + edge.getNumberOfRootFromNodes()
+        + " parent=" + (parent == null ? null : parent.getFrom().getKey() + "->" + parent.getTo().getKey())
+        + " " + rootEdges);
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  private static SourceFile createFile(SourcePackage sourcePackage, String key) {
+    SourceFile file = new SourceFile(key);
+    sourcePackage.addChild(file);
+    return file;
+  }
+
+  private static SourceClass createClass(SourceFile file, String key) {
+    SourceClass sourceClass = new SourceClass(key);
+    file.addChild(sourceClass);
+    return sourceClass;
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.profiling;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProfilerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void phases_should_be_accumulated() {
+    Profiler profiler = new Profiler();
+    profiler.start("first").stop();
+    profiler.start("second").stop();
+    profiler.start("first").stop();
+
+    assertThat(profiler.toJson())
+        .contains("{\"name\": \"first\", \"calls\": 2,")
+        .contains("{\"name\": \"second\", \"calls\": 1,");
+    assertThat(profiler.toJson().indexOf("first")).isLessThan(profiler.toJson().indexOf("second"));
+  }
+
+  @Test
+  public void callback_counters_should_be_distinct_for_each_visitor() {
+    Profiler profiler = new Profiler();
+    Object visitor = new Object();
+    Object otherVisitor = new Object();
+    Profiler.Counter counter = profiler.getCallbackCounter(visitor, "visitNode");
+    assertThat(counter.getName()).isEqualTo("java.lang.Object#visitNode");
+    assertThat(profiler.getCallbackCounter(visitor, "visitNode")).isSameAs(counter);
+    assertThat(profiler.getCallbackCounter(visitor, "leaveNode")).isNotSameAs(counter);
+    Profiler.Counter otherCounter = profiler.getCallbackCounter(otherVisitor, "visitNode");
+    assertThat(otherCounter).isNotSameAs(counter);
+    assertThat(otherCounter.getName()).isEqualTo("java.lang.Object[2]#visitNode");
+
+    counter.add(System.nanoTime(), Profiler.getCurrentThreadAllocatedBytes());
+    counter.add(System.nanoTime(), Profiler.getCurrentThreadAllocatedBytes());
+    assertThat(counter.getCalls()).isEqualTo(2);
+    assertThat(otherCounter.getCalls()).isEqualTo(0);
+    assertThat(counter.getTime()).isGreaterThanOrEqualTo(0);
+    assertThat(counter.getAllocatedBytes()).isGreaterThanOrEqualTo(0);
+  }
+
+  @Test
+  public void callback_counters_should_be_named_after_description_of_visitor() {
+    Profiler profiler = new Profiler();
+    assertThat(profiler.getCallbackCounter("//IDENTIFIER", "visitNode").getName()).isEqualTo("java.lang.String(//IDENTIFIER)#visitNode");
+    assertThat(profiler.getCallbackCounter("//IDENTIFIER", "visitNode").getName()).isEqualTo("java.lang.String(//IDENTIFIER)#visitNode");
+    assertThat(profiler.getCallbackCounter("//STATEMENT", "visitNode").getName()).isEqualTo("java.lang.String(//STATEMENT)#visitNode");
+  }
+
+  @Test
+  public void allocated_bytes() {
+    long start = Profiler.getCurrentThreadAllocatedBytes();
+    byte[] bytes = new byte[1024 * 1024];
+    assertThat(bytes.length).isEqualTo(1024 * 1024);
+    long end = Profiler.getCurrentThreadAllocatedBytes();
+    if (start > 0) {
+      assertThat(end - start).isGreaterThanOrEqualTo(1024 * 1024);
+    } else {
+      // Not supported by JVM
+      assertThat(end).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void should_keep_only_slowest_files() {
+    Profiler profiler = new Profiler(2);
+    long now = System.nanoTime();
+    profiler.addFile(new File("fast"), now, 0);
+    profiler.addFile(new File("slowest"), now - 3000000000L, 0);
+    profiler.addFile(new File("slow"), now - 2000000000L, 0);
+
+    String json = profiler.toJson();
+    assertThat(json).contains("\"files\": {\"name\": \"files\", \"calls\": 3,");
+    assertThat(json).excludes("\"fast\"");
+    assertThat(json.indexOf("\"slowest\"")).isLessThan(json.indexOf("\"slow\""));
+  }
+
+  @Test
+  public void should_escape_names() throws Exception {
+    Profiler profiler = new Profiler();
+    profiler.addFile(new File("dir\\\"file\"\n"), System.nanoTime(), 0);
+    File report = new File(temporaryFolder.getRoot(), "dir/report.json");
+    profiler.writeReport(report);
+
+    assertThat(Files.toString(report, Charsets.UTF_8)).contains("\"dir\\\\\\\"file\\\"\\u000a\"");
+  }
+
+}
@@ -21,11 +21,12 @@ package org.sonar.plugins.jacoco;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang.StringUtils;
 import org.jacoco.core.analysis.*;
-import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.SessionInfoStore;
 import org.jacoco.core.runtime.WildcardMatcher;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.measures.CoverageMeasuresBuilder;
@@ -34,17 +35,35 @@ import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.ResourceUtils;
 import org.sonar.api.utils.SonarException;
+import org.sonar.plugins.jacoco.ClassFilesCache.ClassFile;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author Evgeny Mandrikov
  */
 public abstract class AbstractAnalyzer {
 
+  /**
+   * Below this number of classes per thread, concurrent analysis doesn't pay off.
+   */
+  static final int MIN_CLASSES_PER_THREAD = 100;
+
+  private final ClassFilesCache classFilesCache;
+
+  public AbstractAnalyzer(ClassFilesCache classFilesCache) {
+    this.classFilesCache = classFilesCache;
+  }
+
   public final void analyse(Project project, SensorContext context) {
     final File buildOutputDir = project.getFileSystem().getBuildOutputDir();
     if (!buildOutputDir.exists()) {
@@ -52,33 +71,30 @@ public abstract class AbstractAnalyzer {
       return;
     }
     String path = getReportPath(project);
-    File jacocoExecutionData = project.getFileSystem().resolvePath(path);
+    List<File> reports = ExecutionDataLoader.resolve(project.getFileSystem(), path);
+    if (reports.isEmpty()) {
+      JaCoCoUtils.LOG.info("Project coverage is set to 0% as no JaCoCo execution data has been dumped: {}", path);
+    }
 
     WildcardMatcher excludes = new WildcardMatcher(Strings.nullToEmpty(getExcludes(project)));
-    try {
-      readExecutionData(jacocoExecutionData, buildOutputDir, context, excludes);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
+    readExecutionData(ExecutionDataLoader.load(reports), buildOutputDir, context, excludes);
   }
 
   public final void readExecutionData(File jacocoExecutionData, File buildOutputDir, SensorContext context, WildcardMatcher excludes) throws IOException {
-    SessionInfoStore sessionInfoStore = new SessionInfoStore();
-    ExecutionDataStore executionDataStore = new ExecutionDataStore();
-
+    List<File> reports;
     if (jacocoExecutionData == null || !jacocoExecutionData.exists() || !jacocoExecutionData.isFile()) {
       JaCoCoUtils.LOG.info("Project coverage is set to 0% as no JaCoCo execution data has been dumped: {}", jacocoExecutionData);
+      reports = Collections.emptyList();
     } else {
-      JaCoCoUtils.LOG.info("Analysing {}", jacocoExecutionData);
-      ExecutionDataReader reader = new ExecutionDataReader(new FileInputStream(jacocoExecutionData));
-      reader.setSessionInfoVisitor(sessionInfoStore);
-      reader.setExecutionDataVisitor(executionDataStore);
-      reader.read();
+      reports = Collections.singletonList(jacocoExecutionData);
     }
+    readExecutionData(ExecutionDataLoader.load(reports), buildOutputDir, context, excludes);
+  }
 
-    CoverageBuilder coverageBuilder = new CoverageBuilder();
-    Analyzer analyzer = new Analyzer(executionDataStore, coverageBuilder);
-    analyzeAll(analyzer, buildOutputDir);
+  private void readExecutionData(ExecutionDataStore executionDataStore, File buildOutputDir, SensorContext context, WildcardMatcher excludes) {
+    List<ClassFile> classFiles = classFilesCache.getClassFiles(buildOutputDir);
+    int parallelism = Math.min(Runtime.getRuntime().availableProcessors(), classFiles.size() / MIN_CLASSES_PER_THREAD);
+    CoverageBuilder coverageBuilder = analyzeAll(executionDataStore, classFiles, parallelism);
 
     int analyzedResources = 0;
     for (ISourceFileCoverage coverage : coverageBuilder.getSourceFiles()) {
@@ -121,20 +137,63 @@ public abstract class AbstractAnalyzer {
   }
 
   /**
-   * Copied from {@link Analyzer#analyzeAll(File)} in order to add logging.
+   * Splits classes between threads, each of which has its own {@link CoverageBuilder},
+   * and merges their results into the one returned.
    */
-  private void analyzeAll(Analyzer analyzer, File file) {
-    if (file.isDirectory()) {
-      for (File f : file.listFiles()) {
-        analyzeAll(analyzer, f);
+  @VisibleForTesting
+  static CoverageBuilder analyzeAll(final ExecutionDataStore executionDataStore, List<ClassFile> classFiles, int parallelism) {
+    if (parallelism <= 1) {
+      return analyze(executionDataStore, classFiles);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("jacoco-analyzer-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      List<Future<CoverageBuilder>> futures = Lists.newArrayList();
+      int partitionSize = (classFiles.size() + parallelism - 1) / parallelism;
+      for (final List<ClassFile> partition : Lists.partition(classFiles, partitionSize)) {
+        futures.add(executor.submit(new Callable<CoverageBuilder>() {
+          public CoverageBuilder call() {
+            return analyze(executionDataStore, partition);
+          }
+        }));
       }
-    } else if (file.getName().endsWith(".class")) {
+      // Classes of the same source file can be analysed by different threads, so source files are rebuilt from classes
+      CoverageBuilder coverageBuilder = new CoverageBuilder();
+      for (Future<CoverageBuilder> future : futures) {
+        for (IClassCoverage classCoverage : future.get().getClasses()) {
+          try {
+            coverageBuilder.visitCoverage(classCoverage);
+          } catch (Exception e) {
+            // Same as in sequential analysis, e.g. for different classes with the same name
+            JaCoCoUtils.LOG.warn("Exception during analysis of class " + classCoverage.getName(), e);
+          }
+        }
+      }
+      return coverageBuilder;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while analysing classes", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static CoverageBuilder analyze(ExecutionDataStore executionDataStore, List<ClassFile> classFiles) {
+    CoverageBuilder coverageBuilder = new CoverageBuilder();
+    Analyzer analyzer = new Analyzer(executionDataStore, coverageBuilder);
+    for (ClassFile classFile : classFiles) {
       try {
-        analyzer.analyzeAll(file);
+        analyzer.analyzeClass(classFile.getBytes());
       } catch (Exception e) {
-        JaCoCoUtils.LOG.warn("Exception during analysis of file " + file.getAbsolutePath(), e);
+        JaCoCoUtils.LOG.warn("Exception during analysis of file " + classFile.getFile().getAbsolutePath(), e);
       }
     }
+    return coverageBuilder;
   }
 
   private void analyzeFile(JavaFile resource, ISourceFileCoverage coverage, SensorContext context) {
@@ -171,6 +230,9 @@ public abstract class AbstractAnalyzer {
 
   protected abstract void saveMeasures(SensorContext context, JavaFile resource, Collection<Measure> measures);
 
+  /**
+   * @return comma-separated list of paths to files with execution data, which may contain wildcards
+   */
   protected abstract String getReportPath(Project project);
 
   protected abstract String getExcludes(Project project);
@@ -0,0 +1,105 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.sonar.api.BatchExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps content of class files from build output directory, so that it is read only once for all sensors of a project.
+ * <p>
+ * Memory of the size of all class files is retained from the first request until all consumers, declared by
+ * {@link #acquire(Object)} before analysis, have called {@link #release(Object)}.
+ * Without declared consumers, content is released after each use.
+ * </p>
+ */
+public class ClassFilesCache implements BatchExtension {
+
+  private final Map<File, List<ClassFile>> classFilesByDirectory = Maps.newHashMap();
+  private final Set<Object> consumers = Sets.newHashSet();
+
+  /**
+   * Declares that given consumer is going to request class files, so that they are kept until it releases them.
+   */
+  synchronized void acquire(Object consumer) {
+    consumers.add(consumer);
+  }
+
+  synchronized void release(Object consumer) {
+    consumers.remove(consumer);
+    if (consumers.isEmpty()) {
+      classFilesByDirectory.clear();
+    }
+  }
+
+  synchronized List<ClassFile> getClassFiles(File directory) {
+    List<ClassFile> classFiles = classFilesByDirectory.get(directory);
+    if (classFiles == null) {
+      List<ClassFile> result = Lists.newArrayList();
+      read(directory, result);
+      classFiles = Collections.unmodifiableList(result);
+      classFilesByDirectory.put(directory, classFiles);
+    }
+    return classFiles;
+  }
+
+  private static void read(File file, List<ClassFile> classFiles) {
+    if (file.isDirectory()) {
+      for (File f : file.listFiles()) {
+        read(f, classFiles);
+      }
+    } else if (file.getName().endsWith(".class")) {
+      try {
+        classFiles.add(new ClassFile(file, Files.toByteArray(file)));
+      } catch (IOException e) {
+        JaCoCoUtils.LOG.warn("Unable to read file " + file.getAbsolutePath(), e);
+      }
+    }
+  }
+
+  static final class ClassFile {
+    private final File file;
+    private final byte[] bytes;
+
+    ClassFile(File file, byte[] bytes) {
+      this.file = file;
+      this.bytes = bytes;
+    }
+
+    File getFile() {
+      return file;
+    }
+
+    byte[] getBytes() {
+      return bytes;
+    }
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.api.utils.SonarException;
+import org.sonar.api.utils.WildcardPattern;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Finds files with execution data and merges their content in memory.
+ */
+final class ExecutionDataLoader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private ExecutionDataLoader() {
+  }
+
+  /**
+   * @param reportPaths comma-separated list of paths (absolute or relative), which may contain wildcards (*, ** and ?)
+   * @return existing files in the order of paths, and sorted for each path with wildcards
+   */
+  static List<File> resolve(ProjectFileSystem fileSystem, String reportPaths) {
+    List<File> result = Lists.newArrayList();
+    for (String reportPath : StringUtils.split(StringUtils.defaultString(reportPaths), ',')) {
+      reportPath = FilenameUtils.separatorsToUnix(reportPath.trim());
+      if (StringUtils.containsNone(reportPath, "*?")) {
+        File report = fileSystem.resolvePath(reportPath);
+        if (report != null && report.isFile()) {
+          result.add(report);
+        }
+      } else {
+        result.addAll(resolvePattern(fileSystem, reportPath));
+      }
+    }
+    return result;
+  }
+
+  private static List<File> resolvePattern(ProjectFileSystem fileSystem, String reportPath) {
+    // Directory before first wildcard is the root of search
+    String beforeWildcard = reportPath.substring(0, StringUtils.indexOfAny(reportPath, "*?"));
+    String baseDirectoryPath = beforeWildcard.substring(0, Math.max(0, beforeWildcard.lastIndexOf('/')));
+    File baseDirectory = StringUtils.isEmpty(baseDirectoryPath) && !reportPath.startsWith("/")
+        ? fileSystem.getBasedir()
+        : fileSystem.resolvePath(StringUtils.isEmpty(baseDirectoryPath) ? "/" : baseDirectoryPath);
+    if (baseDirectory == null || !baseDirectory.isDirectory()) {
+      return Collections.emptyList();
+    }
+    if (baseDirectory.getAbsoluteFile().getParentFile() == null) {
+      throw new SonarException("Search of JaCoCo reports from root of file system is not allowed: " + reportPath);
+    }
+    String pattern = reportPath.substring(baseDirectoryPath.length()).replaceFirst("^/", "");
+    // Patterns of segments of path, null for "**", which matches any number of directories
+    List<WildcardPattern> segmentPatterns = Lists.newArrayList();
+    for (String segment : StringUtils.split(pattern, '/')) {
+      segmentPatterns.add("**".equals(segment) ? null : WildcardPattern.create(segment, "/"));
+    }
+    Set<File> result = Sets.newTreeSet();
+    collect(baseDirectory, segmentPatterns, 0, result);
+    return Lists.newArrayList(result);
+  }
+
+  /**
+   * Descends only into directories, which match segments of pattern, instead of listing all files under base directory.
+   */
+  private static void collect(File directory, List<WildcardPattern> segmentPatterns, int index, Set<File> result) {
+    WildcardPattern segmentPattern = segmentPatterns.get(index);
+    boolean last = index == segmentPatterns.size() - 1;
+    File[] children = directory.listFiles();
+    if (children == null) {
+      return;
+    }
+    if (segmentPattern == null) {
+      if (last) {
+        result.addAll(FileUtils.listFiles(directory, null, true));
+        return;
+      }
+      collect(directory, segmentPatterns, index + 1, result);
+      for (File child : children) {
+        if (child.isDirectory()) {
+          collect(child, segmentPatterns, index, result);
+        }
+      }
+      return;
+    }
+    for (File child : children) {
+      if (segmentPattern.match(child.getName())) {
+        if (last) {
+          if (child.isFile()) {
+            result.add(child);
+          }
+        } else if (child.isDirectory()) {
+          collect(child, segmentPatterns, index + 1, result);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads given files concurrently, when there are several of them, and merges execution data of the same classes.
+   */
+  static ExecutionDataStore load(Collection<File> reports) {
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    int parallelism = Math.min(reports.size(), Runtime.getRuntime().availableProcessors());
+    if (parallelism <= 1) {
+      for (File report : reports) {
+        read(report).accept(executionDataStore);
+      }
+      return executionDataStore;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("jacoco-reader-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      List<Future<ExecutionDataStore>> futures = Lists.newArrayList();
+      for (final File report : reports) {
+        futures.add(executor.submit(new Callable<ExecutionDataStore>() {
+          public ExecutionDataStore call() {
+            return read(report);
+          }
+        }));
+      }
+      // Merge in the order of files, so that result doesn't depend on scheduling
+      for (Future<ExecutionDataStore> future : futures) {
+        future.get().accept(executionDataStore);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while reading JaCoCo execution data", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return executionDataStore;
+  }
+
+  private static ExecutionDataStore read(File report) {
+    JaCoCoUtils.LOG.info("Analysing {}", report);
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    InputStream inputStream = null;
+    try {
+      inputStream = new BufferedInputStream(new FileInputStream(report), BUFFER_SIZE);
+      ExecutionDataReader reader = new ExecutionDataReader(inputStream);
+      reader.setSessionInfoVisitor(new SessionInfoStore());
+      reader.setExecutionDataVisitor(executionDataStore);
+      reader.read();
+    } catch (IOException e) {
+      throw new SonarException(String.format("Unable to read %s", report.getAbsolutePath()), e);
+    } finally {
+      Closeables.closeQuietly(inputStream);
+    }
+    return executionDataStore;
+  }
+
+}
@@ -34,20 +34,34 @@ import java.util.Collection;
  */
 public class JaCoCoItSensor implements Sensor {
   private JacocoConfiguration configuration;
+  private final ClassFilesCache classFilesCache;
 
-  public JaCoCoItSensor(JacocoConfiguration configuration) {
+  public JaCoCoItSensor(JacocoConfiguration configuration, ClassFilesCache classFilesCache) {
     this.configuration = configuration;
+    this.classFilesCache = classFilesCache;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
-    return configuration.isEnabled(project) && StringUtils.isNotBlank(configuration.getItReportPath());
+    boolean enabled = configuration.isEnabled(project) && StringUtils.isNotBlank(configuration.getItReportPath());
+    if (enabled) {
+      classFilesCache.acquire(this);
+    }
+    return enabled;
   }
 
   public void analyse(Project project, SensorContext context) {
-    new ITAnalyzer().analyse(project, context);
+    try {
+      new ITAnalyzer().analyse(project, context);
+    } finally {
+      classFilesCache.release(this);
+    }
   }
 
   class ITAnalyzer extends AbstractAnalyzer {
+    ITAnalyzer() {
+      super(classFilesCache);
+    }
+
     @Override
     protected String getReportPath(Project project) {
       return configuration.getItReportPath();
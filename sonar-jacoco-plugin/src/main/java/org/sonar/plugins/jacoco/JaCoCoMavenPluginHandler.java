@@ -71,7 +71,7 @@ public class JaCoCoMavenPluginHandler implements MavenPluginHandler {
 
   public void configure(Project project, MavenPlugin plugin) {
     // See SONARPLUGINS-600
-    String destfilePath = configuration.getReportPath();
+    String destfilePath = configuration.getDestFile();
     File destfile = project.getFileSystem().resolvePath(destfilePath);
     if (destfile.exists() && destfile.isFile()) {
       JaCoCoUtils.LOG.info("Deleting {}", destfile);
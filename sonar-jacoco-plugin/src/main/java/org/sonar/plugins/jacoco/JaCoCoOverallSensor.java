@@ -19,12 +19,7 @@
  */
 package org.sonar.plugins.jacoco;
 
-import com.google.common.io.Closeables;
 import org.apache.commons.lang.StringUtils;
-import org.jacoco.core.data.ExecutionDataReader;
-import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.ExecutionDataWriter;
-import org.jacoco.core.data.SessionInfoStore;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.measures.CoreMetrics;
@@ -32,94 +27,49 @@ import org.sonar.api.measures.Measure;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.ProjectFileSystem;
-import org.sonar.api.utils.SonarException;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.Collection;
 
 public class JaCoCoOverallSensor implements Sensor {
-  public static final String JACOCO_OVERALL = "jacoco-overall.exec";
-
   private final JacocoConfiguration configuration;
+  private final ClassFilesCache classFilesCache;
 
-  public JaCoCoOverallSensor(JacocoConfiguration configuration) {
+  public JaCoCoOverallSensor(JacocoConfiguration configuration, ClassFilesCache classFilesCache) {
     this.configuration = configuration;
+    this.classFilesCache = classFilesCache;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
-    return configuration.isEnabled(project) && StringUtils.isNotBlank(configuration.getItReportPath());
-  }
-
-  public void analyse(Project project, SensorContext context) {
-    ProjectFileSystem fs = project.getFileSystem();
-
-    File reportUTs = fs.resolvePath(configuration.getReportPath());
-    File reportITs = fs.resolvePath(configuration.getItReportPath());
-    if ((!reportUTs.exists()) || (!reportITs.exists())) {
-      return;
+    boolean enabled = configuration.isEnabled(project) && StringUtils.isNotBlank(configuration.getItReportPath());
+    if (enabled) {
+      classFilesCache.acquire(this);
     }
-
-    File reportOverall = new File(fs.getSonarWorkingDirectory(), JACOCO_OVERALL);
-    reportOverall.getParentFile().mkdirs();
-
-    mergeReports(reportOverall, reportUTs, reportITs);
-
-    new OverallAnalyzer(reportOverall).analyse(project, context);
+    return enabled;
   }
 
-  private void mergeReports(File reportOverall, File... reports) {
-    SessionInfoStore infoStore = new SessionInfoStore();
-    ExecutionDataStore dataStore = new ExecutionDataStore();
-
-    loadSourceFiles(infoStore, dataStore, reports);
-
-    BufferedOutputStream outputStream = null;
+  public void analyse(Project project, SensorContext context) {
     try {
-      outputStream = new BufferedOutputStream(new FileOutputStream(reportOverall));
-      ExecutionDataWriter dataWriter = new ExecutionDataWriter(outputStream);
+      ProjectFileSystem fs = project.getFileSystem();
+      if (ExecutionDataLoader.resolve(fs, configuration.getReportPath()).isEmpty()
+        || ExecutionDataLoader.resolve(fs, configuration.getItReportPath()).isEmpty()) {
+        return;
+      }
 
-      infoStore.accept(dataWriter);
-      dataStore.accept(dataWriter);
-    } catch (IOException e) {
-      throw new SonarException(String.format("Unable to write overall coverage report %s", reportOverall.getAbsolutePath()), e);
+      // Execution data of unit and integration tests are merged in memory by analyzer
+      new OverallAnalyzer().analyse(project, context);
     } finally {
-      Closeables.closeQuietly(outputStream);
-    }
-  }
-
-  private void loadSourceFiles(SessionInfoStore infoStore, ExecutionDataStore dataStore, File... reports) {
-    for (File report : reports) {
-      InputStream resourceStream = null;
-      try {
-        resourceStream = new BufferedInputStream(new FileInputStream(report));
-        ExecutionDataReader reader = new ExecutionDataReader(resourceStream);
-        reader.setSessionInfoVisitor(infoStore);
-        reader.setExecutionDataVisitor(dataStore);
-        reader.read();
-      } catch (IOException e) {
-        throw new SonarException(String.format("Unable to read %s", report.getAbsolutePath()), e);
-      } finally {
-        Closeables.closeQuietly(resourceStream);
-      }
+      classFilesCache.release(this);
     }
   }
 
   class OverallAnalyzer extends AbstractAnalyzer {
-    private final File report;
-
-    OverallAnalyzer(File report) {
-      this.report = report;
+    OverallAnalyzer() {
+      super(classFilesCache);
     }
 
     @Override
     protected String getReportPath(Project project) {
-      return report.getAbsolutePath();
+      return configuration.getReportPath() + "," + configuration.getItReportPath();
     }
 
     @Override
@@ -35,6 +35,7 @@ public class JaCoCoPlugin extends SonarPlugin {
         // Maven
         JacocoMavenInitializer.class,
         JaCoCoMavenPluginHandler.class,
+        ClassFilesCache.class,
         // Unit tests
         JaCoCoSensor.class,
         // Integration tests
@@ -34,20 +34,34 @@ import java.util.Collection;
 public class JaCoCoSensor implements Sensor, CoverageExtension {
 
   private JacocoConfiguration configuration;
+  private final ClassFilesCache classFilesCache;
 
-  public JaCoCoSensor(JacocoConfiguration configuration) {
+  public JaCoCoSensor(JacocoConfiguration configuration, ClassFilesCache classFilesCache) {
     this.configuration = configuration;
+    this.classFilesCache = classFilesCache;
   }
 
   public void analyse(Project project, SensorContext context) {
-    new UnitTestsAnalyzer().analyse(project, context);
+    try {
+      new UnitTestsAnalyzer().analyse(project, context);
+    } finally {
+      classFilesCache.release(this);
+    }
   }
 
   public boolean shouldExecuteOnProject(Project project) {
-    return configuration.isEnabled(project);
+    boolean enabled = configuration.isEnabled(project);
+    if (enabled) {
+      classFilesCache.acquire(this);
+    }
+    return enabled;
   }
 
   class UnitTestsAnalyzer extends AbstractAnalyzer {
+    UnitTestsAnalyzer() {
+      super(classFilesCache);
+    }
+
     @Override
     protected String getReportPath(Project project) {
       return configuration.getReportPath();
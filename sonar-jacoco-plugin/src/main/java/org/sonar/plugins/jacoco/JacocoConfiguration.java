@@ -27,6 +27,7 @@ import org.sonar.api.Property;
 import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.SonarException;
 import org.sonar.plugins.java.api.JavaSettings;
 
 @Properties({
@@ -34,7 +35,9 @@ import org.sonar.plugins.java.api.JavaSettings;
         key = JacocoConfiguration.REPORT_PATH_PROPERTY,
         name = "File with execution data",
         defaultValue = JacocoConfiguration.REPORT_PATH_DEFAULT_VALUE,
-        description = "Path (absolute or relative) to the file with execution data.",
+        description = "Path (absolute or relative) to the file with execution data." +
+            " Several comma-separated paths, which may use wildcard characters (*, ** and ?), can be given to merge files with execution data," +
+            " in which case JaCoCo agent launched by Sonar writes to the first one without wildcards.",
         global = false,
         module = true,
         project = true
@@ -75,7 +78,8 @@ import org.sonar.plugins.java.api.JavaSettings;
         key = JacocoConfiguration.IT_REPORT_PATH_PROPERTY,
         name = "File with execution data for integration tests",
         defaultValue = JacocoConfiguration.IT_REPORT_PATH_DEFAULT_VALUE,
-        description = "Path (absolute or relative) to the file with execution data.",
+        description = "Path (absolute or relative) to the file with execution data." +
+            " Several comma-separated paths, which may use wildcard characters (*, ** and ?), can be given to merge files with execution data.",
         global = false,
         module = true,
         project = true
@@ -130,13 +134,31 @@ public class JacocoConfiguration implements BatchExtension {
     return settings.getString(REPORT_PATH_PROPERTY);
   }
 
+  /**
+   * @return first of paths given by {@link #getReportPath()} without wildcards, which is used as destination file for JaCoCo agent
+   * @throws SonarException if all paths contain wildcards
+   */
+  public String getDestFile() {
+    String[] reportPaths = settings.getStringArray(REPORT_PATH_PROPERTY);
+    if (reportPaths.length == 0) {
+      return null;
+    }
+    for (String reportPath : reportPaths) {
+      if (StringUtils.containsNone(reportPath, "*?")) {
+        return reportPath;
+      }
+    }
+    throw new SonarException("Property " + REPORT_PATH_PROPERTY + " must contain a path without wildcards to be used as destination file of JaCoCo agent: "
+      + getReportPath());
+  }
+
   public String getItReportPath() {
     return settings.getString(IT_REPORT_PATH_PROPERTY);
   }
 
   public String getJvmArgument() {
     AgentOptions options = new AgentOptions();
-    options.setDestfile(getReportPath());
+    options.setDestfile(getDestFile());
     String includes = settings.getString(INCLUDES_PROPERTY);
     if (StringUtils.isNotBlank(includes)) {
       options.setIncludes(includes);
@@ -19,13 +19,24 @@
  */
 package org.sonar.plugins.jacoco;
 
+import com.google.common.collect.Lists;
+import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Resource;
+import org.sonar.plugins.jacoco.ClassFilesCache.ClassFile;
+
+import java.io.File;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -80,6 +91,43 @@ public class AbstractAnalyzerTest {
     assertThat(resource).isNull();
   }
 
+  @Test
+  public void should_merge_coverage_of_classes_analysed_concurrently() {
+    int numberOfClasses = AbstractAnalyzer.MIN_CLASSES_PER_THREAD * 2 + 1;
+    List<ClassFile> classFiles = Lists.newArrayList();
+    for (int i = 0; i < numberOfClasses; i++) {
+      classFiles.add(new ClassFile(new File("C" + i + ".class"), createClass("org/example/C" + i, 1)));
+    }
+    // Different class with the same name, e.g. stale copy, is analysed by another thread
+    classFiles.add(new ClassFile(new File("stale/C0.class"), createClass("org/example/C0", 2)));
+
+    CoverageBuilder concurrent = AbstractAnalyzer.analyzeAll(new ExecutionDataStore(), classFiles, 2);
+    CoverageBuilder sequential = AbstractAnalyzer.analyzeAll(new ExecutionDataStore(), classFiles, 1);
+
+    assertThat(concurrent.getClasses()).hasSize(numberOfClasses);
+    assertThat(concurrent.getSourceFiles()).hasSize(numberOfClasses);
+    assertThat(sequential.getClasses()).hasSize(numberOfClasses);
+    assertThat(sequential.getSourceFiles()).hasSize(numberOfClasses);
+  }
+
+  private static byte[] createClass(String name, int line) {
+    ClassWriter classWriter = new ClassWriter(0);
+    classWriter.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+    classWriter.visitSource(name.substring(name.lastIndexOf('/') + 1) + ".java", null);
+    MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    methodVisitor.visitCode();
+    Label label = new Label();
+    methodVisitor.visitLabel(label);
+    methodVisitor.visitLineNumber(line, label);
+    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+    methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+    methodVisitor.visitInsn(Opcodes.RETURN);
+    methodVisitor.visitMaxs(1, 1);
+    methodVisitor.visitEnd();
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
   static Answer<Resource> sameResource() {
     return new Answer<Resource>() {
       public Resource answer(InvocationOnMock invocation) {
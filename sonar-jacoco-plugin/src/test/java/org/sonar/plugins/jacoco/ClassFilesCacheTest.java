@@ -0,0 +1,75 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.plugins.jacoco.ClassFilesCache.ClassFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClassFilesCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final ClassFilesCache cache = new ClassFilesCache();
+
+  @Test
+  public void should_read_class_files_of_directory_once() throws IOException {
+    File directory = temp.newFolder("classes");
+    File classFile = new File(directory, "org/example/Hello.class");
+    Files.createParentDirs(classFile);
+    Files.write(new byte[] {1, 2, 3}, classFile);
+    Files.write(new byte[] {4}, new File(directory, "org/example/hello.properties"));
+
+    List<ClassFile> classFiles = cache.getClassFiles(directory);
+
+    assertThat(classFiles).hasSize(1);
+    assertThat(classFiles.get(0).getFile()).isEqualTo(classFile);
+    assertThat(classFiles.get(0).getBytes()).isEqualTo(new byte[] {1, 2, 3});
+
+    Files.write(new byte[] {5}, new File(directory, "org/example/Other.class"));
+    assertThat(cache.getClassFiles(directory)).isSameAs(classFiles);
+  }
+
+  @Test
+  public void should_release_class_files_when_last_consumer_is_done() throws IOException {
+    File directory = temp.newFolder("classes");
+    Files.write(new byte[] {1}, new File(directory, "Hello.class"));
+    Object consumer = new Object();
+    Object otherConsumer = new Object();
+    cache.acquire(consumer);
+    cache.acquire(otherConsumer);
+
+    List<ClassFile> classFiles = cache.getClassFiles(directory);
+    cache.release(consumer);
+    assertThat(cache.getClassFiles(directory)).isSameAs(classFiles);
+    cache.release(otherConsumer);
+    assertThat(cache.getClassFiles(directory)).isNotSameAs(classFiles);
+  }
+
+}
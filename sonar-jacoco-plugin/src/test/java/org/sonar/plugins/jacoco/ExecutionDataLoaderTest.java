@@ -0,0 +1,92 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.api.utils.SonarException;
+import org.sonar.test.TestUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExecutionDataLoaderTest {
+
+  private final ProjectFileSystem fileSystem = mock(ProjectFileSystem.class);
+  private File baseDir;
+  private File utReport;
+  private File itReport;
+
+  @Before
+  public void setUp() {
+    baseDir = TestUtils.getResource("/org/sonar/plugins/jacoco/");
+    utReport = new File(baseDir, "JaCoCoOverallSensorTest/ut.exec");
+    itReport = new File(baseDir, "JaCoCoOverallSensorTest/it.exec");
+    when(fileSystem.getBasedir()).thenReturn(baseDir);
+    when(fileSystem.resolvePath("JaCoCoOverallSensorTest/ut.exec")).thenReturn(utReport);
+    when(fileSystem.resolvePath("JaCoCoOverallSensorTest/it.exec")).thenReturn(itReport);
+    when(fileSystem.resolvePath("not.found.exec")).thenReturn(new File(baseDir, "not.found.exec"));
+    when(fileSystem.resolvePath("JaCoCoOverallSensorTest")).thenReturn(new File(baseDir, "JaCoCoOverallSensorTest"));
+  }
+
+  @Test
+  public void should_resolve_list_of_paths() {
+    assertThat(ExecutionDataLoader.resolve(fileSystem, "JaCoCoOverallSensorTest/ut.exec, not.found.exec,JaCoCoOverallSensorTest/it.exec"))
+        .containsExactly(utReport, itReport);
+    assertThat(ExecutionDataLoader.resolve(fileSystem, null)).isEmpty();
+  }
+
+  @Test
+  public void should_resolve_paths_with_wildcards() {
+    assertThat(ExecutionDataLoader.resolve(fileSystem, "JaCoCoOverallSensorTest/*.exec")).containsExactly(itReport, utReport);
+    assertThat(ExecutionDataLoader.resolve(fileSystem, "**/ut.e?ec")).containsExactly(utReport);
+    assertThat(ExecutionDataLoader.resolve(fileSystem, "JaCoCoOverall*/**/*.exec")).containsExactly(itReport, utReport);
+    assertThat(ExecutionDataLoader.resolve(fileSystem, "*.exec")).isEmpty();
+    assertThat(ExecutionDataLoader.resolve(fileSystem, "not.found/*.exec")).isEmpty();
+  }
+
+  @Test(expected = SonarException.class)
+  public void should_not_search_from_root_of_file_system() {
+    when(fileSystem.resolvePath("/")).thenReturn(new File("/"));
+
+    ExecutionDataLoader.resolve(fileSystem, "/**/*.exec");
+  }
+
+  @Test
+  public void should_merge_execution_data() {
+    ExecutionDataStore executionDataStore = ExecutionDataLoader.load(Arrays.asList(utReport, itReport));
+
+    assertThat(executionDataStore.contains("com/sonar/coverages/HelloWorld")).isTrue();
+    assertThat(ExecutionDataLoader.load(Collections.<File> emptyList()).getContents()).isEmpty();
+  }
+
+  @Test(expected = SonarException.class)
+  public void should_fail_when_unable_to_read() {
+    ExecutionDataLoader.load(Arrays.asList(utReport, new File(baseDir, "not.found.exec")));
+  }
+
+}
@@ -66,7 +66,7 @@ public class JaCoCoItSensorTest {
   @Before
   public void setUp() {
     configuration = mock(JacocoConfiguration.class);
-    sensor = new JaCoCoItSensor(configuration);
+    sensor = new JaCoCoItSensor(configuration, new ClassFilesCache());
   }
 
   @Test
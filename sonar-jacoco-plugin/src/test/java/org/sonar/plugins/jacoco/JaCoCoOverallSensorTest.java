@@ -38,6 +38,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -48,7 +49,7 @@ public class JaCoCoOverallSensorTest {
   private final SensorContext context = mock(SensorContext.class);
   private final ProjectFileSystem pfs = mock(ProjectFileSystem.class);
   private final Project project = mock(Project.class);
-  private final JaCoCoOverallSensor sensor = new JaCoCoOverallSensor(configuration);
+  private final JaCoCoOverallSensor sensor = new JaCoCoOverallSensor(configuration, new ClassFilesCache());
 
   @Test
   public void should_execute_if_report_path_is_set() {
@@ -81,8 +82,6 @@ public class JaCoCoOverallSensorTest {
     when(pfs.getBuildOutputDir()).thenReturn(outputDir);
     when(pfs.resolvePath("ut.exec")).thenReturn(new File(outputDir, "ut.exec"));
     when(pfs.resolvePath("it.exec")).thenReturn(new File(outputDir, "it.exec"));
-    when(pfs.getSonarWorkingDirectory()).thenReturn(new File("target/sonar"));
-    when(pfs.resolvePath(new File("target/sonar/jacoco-overall.exec").getAbsolutePath())).thenReturn(new File("target/sonar/jacoco-overall.exec"));
 
     sensor.analyse(project, context);
 
@@ -95,6 +94,9 @@ public class JaCoCoOverallSensorTest {
     verify(context).saveMeasure(eq(resource), argThat(new IsMeasure(CoreMetrics.OVERALL_CONDITIONS_BY_LINE, "14=2")));
     verify(context).saveMeasure(eq(resource), argThat(new IsMeasure(CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE, (String) null)));
     verifyNoMoreInteractions(context);
+    // Execution data is merged in memory
+    verify(pfs, never()).getSonarWorkingDirectory();
+    assertThat(new File(outputDir, "jacoco-overall.exec")).doesNotExist();
   }
 
   @Test
@@ -70,7 +70,7 @@ public class JaCoCoSensorTest {
   @Before
   public void setUp() {
     configuration = mock(JacocoConfiguration.class);
-    sensor = new JaCoCoSensor(configuration);
+    sensor = new JaCoCoSensor(configuration, new ClassFilesCache());
   }
 
   @Test
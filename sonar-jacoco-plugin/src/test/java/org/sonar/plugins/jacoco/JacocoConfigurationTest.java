@@ -25,6 +25,7 @@ import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.SonarException;
 import org.sonar.plugins.java.api.JavaSettings;
 
 import java.io.File;
@@ -132,6 +133,28 @@ public class JacocoConfigurationTest {
     assertThat(jacocoSettings.getJvmArgument()).isEqualTo("-javaagent:jacocoagent.jar=destfile=jacoco.exec,excludes=*_javassist_*");
   }
 
+  @Test
+  public void should_use_first_report_path_as_destfile() {
+    settings.setProperty(JacocoConfiguration.REPORT_PATH_PROPERTY, "jacoco.exec, shards/*.exec");
+
+    assertThat(jacocoSettings.getDestFile()).isEqualTo("jacoco.exec");
+    assertThat(jacocoSettings.getJvmArgument()).isEqualTo("-javaagent:jacocoagent.jar=destfile=jacoco.exec,excludes=*_javassist_*");
+  }
+
+  @Test
+  public void should_skip_report_paths_with_wildcards_for_destfile() {
+    settings.setProperty(JacocoConfiguration.REPORT_PATH_PROPERTY, "shards/*.exec, target/jacoco.exec");
+
+    assertThat(jacocoSettings.getDestFile()).isEqualTo("target/jacoco.exec");
+  }
+
+  @Test(expected = SonarException.class)
+  public void should_fail_when_all_report_paths_have_wildcards() {
+    settings.setProperty(JacocoConfiguration.REPORT_PATH_PROPERTY, "shards/*.exec, jacoco-?.exec");
+
+    jacocoSettings.getJvmArgument();
+  }
+
   @Test
   public void shouldSetIncludesAndExcludes() {
     settings.setProperty(JacocoConfiguration.INCLUDES_PROPERTY, "org.sonar.*");
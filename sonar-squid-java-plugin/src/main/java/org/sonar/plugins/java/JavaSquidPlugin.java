@@ -47,6 +47,98 @@ import java.util.List;
     project = true,
     global = true,
     category = CoreProperties.CATEGORY_JAVA),
+  @Property(
+    key = JavaSquidPlugin.SQUID_PARALLELISM_PROPERTY,
+    defaultValue = JavaSquidPlugin.SQUID_PARALLELISM_DEFAULT_VALUE + "",
+    name = "Number of analysis threads",
+    description = "Number of threads used by Squid to parse source files and to compute metrics from bytecode. " +
+        "Results of analysis do not depend on this value.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = JavaSquidPlugin.SQUID_CACHE_PROPERTY,
+    defaultValue = JavaSquidPlugin.SQUID_CACHE_DEFAULT_VALUE + "",
+    name = "Incremental analysis",
+    description = "Flag whether Squid should keep results of analysis of source files in the working directory, " +
+        "so that files which were not changed since previous analysis are not parsed again.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA,
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = JavaSquidPlugin.SQUID_CLASSPATH_CACHE_PROPERTY,
+    name = "Classpath cache directory",
+    description = "Directory, where Squid should keep summaries of classes from libraries, " +
+        "so that bytecode of libraries is not parsed again during subsequent analyses. " +
+        "Can be shared by all projects analysed on the same machine. Leave empty to disable.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA),
+  @Property(
+    key = JavaSquidPlugin.SQUID_PARSE_TIMEOUT_PROPERTY,
+    defaultValue = JavaSquidPlugin.SQUID_PARSE_TIMEOUT_DEFAULT_VALUE + "",
+    name = "Parsing timeout",
+    description = "Maximal time in seconds to parse one source file, or 0 for no limit. " +
+        "Only lines and comments are computed for files, which exceed this limit, and such files are not parsed " +
+        "during subsequent analyses until they are modified.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = JavaSquidPlugin.SQUID_PROFILING_PROPERTY,
+    defaultValue = JavaSquidPlugin.SQUID_PROFILING_DEFAULT_VALUE + "",
+    name = "Profiling",
+    description = "Flag whether Squid should measure time and memory allocations of parsing and of each visitor and check, " +
+        "and write them into file " + JavaSquidPlugin.SQUID_PROFILING_REPORT + " in the working directory. Slows down analysis.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA,
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = JavaSquidPlugin.SQUID_FAST_PACKAGE_CYCLES_PROPERTY,
+    defaultValue = JavaSquidPlugin.SQUID_FAST_PACKAGE_CYCLES_DEFAULT_VALUE + "",
+    name = "Fast detection of package cycles",
+    description = "Flag whether Squid should approximate dependencies to remove in order to break cycles between packages " +
+        "instead of enumerating cycles, which can be very long for tangled projects. " +
+        "In this case number of package cycles is not reported.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA,
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = JavaSquidPlugin.SQUID_MAX_PACKAGE_CYCLES_PROPERTY,
+    defaultValue = JavaSquidPlugin.SQUID_MAX_PACKAGE_CYCLES_DEFAULT_VALUE + "",
+    name = "Maximal number of package cycles",
+    description = "Maximal number of cycles between packages to enumerate, or 0 for no limit. " +
+        "When exceeded, detection of package cycles falls back to fast mode.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = JavaSquidPlugin.SQUID_PACKAGE_CYCLES_TIMEOUT_PROPERTY,
+    defaultValue = JavaSquidPlugin.SQUID_PACKAGE_CYCLES_TIMEOUT_DEFAULT_VALUE + "",
+    name = "Timeout of detection of package cycles",
+    description = "Maximal time in seconds to enumerate cycles between packages, or 0 for no limit. " +
+        "When exceeded, detection of package cycles falls back to fast mode.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = JavaSquidPlugin.SQUID_SPARSE_DSM_PROPERTY,
+    defaultValue = JavaSquidPlugin.SQUID_SPARSE_DSM_DEFAULT_VALUE + "",
+    name = "Sparse dependency matrix",
+    description = "Flag whether Squid should save dependency matrices of project and packages in sparse format, " +
+        "which lists only dependencies instead of all pairs of packages or files. " +
+        "Reduces size of matrices of large projects, but such matrices can be displayed only by viewers, which support this format.",
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_JAVA,
+    type = PropertyType.BOOLEAN),
   @Property(
     key = CoreProperties.DESIGN_SKIP_DESIGN_PROPERTY,
     defaultValue = "" + CoreProperties.DESIGN_SKIP_DESIGN_DEFAULT_VALUE,
@@ -64,6 +156,33 @@ public class JavaSquidPlugin extends SonarPlugin {
   public static final String FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION = "sonar.squid.fieldsToExcludeFromLcom4Computation";
   public static final String FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION_DEFAULT_VALUE = "LOG, logger";
 
+  public static final String SQUID_PARALLELISM_PROPERTY = "sonar.squid.parallelism";
+  public static final int SQUID_PARALLELISM_DEFAULT_VALUE = 1;
+
+  public static final String SQUID_CACHE_PROPERTY = "sonar.squid.cache";
+  public static final boolean SQUID_CACHE_DEFAULT_VALUE = false;
+
+  public static final String SQUID_CLASSPATH_CACHE_PROPERTY = "sonar.squid.classpathCache";
+
+  public static final String SQUID_PARSE_TIMEOUT_PROPERTY = "sonar.squid.parseTimeout";
+  public static final int SQUID_PARSE_TIMEOUT_DEFAULT_VALUE = 300;
+
+  public static final String SQUID_FAST_PACKAGE_CYCLES_PROPERTY = "sonar.squid.fastPackageCycles";
+  public static final boolean SQUID_FAST_PACKAGE_CYCLES_DEFAULT_VALUE = false;
+
+  public static final String SQUID_MAX_PACKAGE_CYCLES_PROPERTY = "sonar.squid.maxPackageCycles";
+  public static final int SQUID_MAX_PACKAGE_CYCLES_DEFAULT_VALUE = 0;
+
+  public static final String SQUID_PACKAGE_CYCLES_TIMEOUT_PROPERTY = "sonar.squid.packageCyclesTimeout";
+  public static final int SQUID_PACKAGE_CYCLES_TIMEOUT_DEFAULT_VALUE = 300;
+
+  public static final String SQUID_SPARSE_DSM_PROPERTY = "sonar.squid.sparseDsm";
+  public static final boolean SQUID_SPARSE_DSM_DEFAULT_VALUE = false;
+
+  public static final String SQUID_PROFILING_PROPERTY = "sonar.squid.profiling";
+  public static final boolean SQUID_PROFILING_DEFAULT_VALUE = false;
+  public static final String SQUID_PROFILING_REPORT = "squid-profiling.json";
+
   public List<?> getExtensions() {
     return ImmutableList.of(
         JavaSourceImporter.class,
@@ -29,6 +29,7 @@ import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.InputFile;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.SonarException;
 import org.sonar.java.JavaConfiguration;
 import org.sonar.java.JavaSquid;
 import org.sonar.java.api.JavaUtils;
@@ -36,6 +37,7 @@ import org.sonar.java.checks.CheckList;
 import org.sonar.squid.api.CodeVisitor;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Collections;
@@ -74,6 +76,23 @@ public class JavaSquidSensor implements Sensor {
     squid.scan(sourceFiles, getBytecodeFiles(project));
 
     new Bridges(squid).save(context, project, annotationCheckFactory, noSonarFilter);
+
+    if (isProfiling(project)) {
+      writeProfilingReport(squid, project);
+    }
+  }
+
+  private static boolean isProfiling(Project project) {
+    return project.getConfiguration().getBoolean(JavaSquidPlugin.SQUID_PROFILING_PROPERTY, JavaSquidPlugin.SQUID_PROFILING_DEFAULT_VALUE);
+  }
+
+  private static void writeProfilingReport(JavaSquid squid, Project project) {
+    File report = new File(project.getFileSystem().getSonarWorkingDirectory(), JavaSquidPlugin.SQUID_PROFILING_REPORT);
+    try {
+      squid.getProfiler().writeReport(report);
+    } catch (IOException e) {
+      throw new SonarException("Unable to write profiling report : '" + report.getAbsolutePath() + "'", e);
+    }
   }
 
   private List<InputFile> getSourceFiles(Project project) {
@@ -94,10 +113,29 @@ public class JavaSquidSensor implements Sensor {
     String fieldNamesToExcludeFromLcom4Computation = project.getConfiguration().getString(
         JavaSquidPlugin.FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION,
         JavaSquidPlugin.FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION_DEFAULT_VALUE);
+    int parallelism = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_PARALLELISM_PROPERTY,
+        JavaSquidPlugin.SQUID_PARALLELISM_DEFAULT_VALUE);
     Charset charset = project.getFileSystem().getSourceCharset();
 
     JavaConfiguration conf = new JavaConfiguration(charset);
     conf.setAnalyzePropertyAccessors(analyzePropertyAccessors);
+    conf.setParallelism(Math.max(1, parallelism));
+    if (project.getConfiguration().getBoolean(JavaSquidPlugin.SQUID_CACHE_PROPERTY, JavaSquidPlugin.SQUID_CACHE_DEFAULT_VALUE)) {
+      conf.setCacheDirectory(new File(project.getFileSystem().getSonarWorkingDirectory(), "squid-cache"));
+    }
+    String classpathCache = project.getConfiguration().getString(JavaSquidPlugin.SQUID_CLASSPATH_CACHE_PROPERTY);
+    if (StringUtils.isNotBlank(classpathCache)) {
+      conf.setClassSummaryCacheDirectory(new File(classpathCache));
+    }
+    int parseTimeout = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_PARSE_TIMEOUT_PROPERTY,
+        JavaSquidPlugin.SQUID_PARSE_TIMEOUT_DEFAULT_VALUE);
+    if (parseTimeout > 0) {
+      conf.setParseTimeout(parseTimeout * 1000L);
+      conf.setQuarantineFile(new File(project.getFileSystem().getSonarWorkingDirectory(), "squid-quarantine.txt"));
+    }
+    conf.setProfiling(isProfiling(project));
     for (String fieldName : StringUtils.split(fieldNamesToExcludeFromLcom4Computation, ',')) {
       if (StringUtils.isNotBlank(fieldName)) {
         conf.addFieldToExcludeFromLcom4Calculation(fieldName);
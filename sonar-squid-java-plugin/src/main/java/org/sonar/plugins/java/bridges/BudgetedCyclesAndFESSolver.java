@@ -0,0 +1,98 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.Sets;
+import org.sonar.graph.Cycle;
+import org.sonar.graph.CycleDetector;
+import org.sonar.graph.DirectedGraphAccessor;
+import org.sonar.graph.Edge;
+import org.sonar.graph.MinimumFeedbackEdgeSetSolver;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Same as {@link org.sonar.graph.IncrementalCyclesAndFESSolver}, but stops between iterations, when number of found cycles
+ * or elapsed time exceeds given budget, because enumeration of cycles may take exponential time on very tangled graphs.
+ * Results are available only if budget was not exceeded.
+ */
+public class BudgetedCyclesAndFESSolver<V> {
+
+  private static final int MAX_SEARCH_DEPTH_AT_FIRST_ITERATION = 3;
+  private static final int MAX_CYCLES_TO_FIND_BY_ITERATION = 100;
+
+  private final Set<Cycle> cycles = Sets.newHashSet();
+  private MinimumFeedbackEdgeSetSolver solver;
+  private boolean budgetExceeded = false;
+
+  /**
+   * @param maxCycles maximal number of cycles to find, or 0 for no limit
+   * @param timeout maximal time in milliseconds, or 0 for no limit
+   */
+  public BudgetedCyclesAndFESSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices, int maxCycles, long timeout) {
+    long deadline = System.currentTimeMillis() + timeout;
+
+    CycleDetector<V> cycleDetector = new CycleDetector<V>(graph, vertices);
+    cycleDetector.detectCyclesWithMaxSearchDepth(MAX_SEARCH_DEPTH_AT_FIRST_ITERATION);
+    cycles.addAll(cycleDetector.getCycles());
+    solver = new MinimumFeedbackEdgeSetSolver(cycles);
+    Set<Edge> edgesToExclude = solver.getEdges();
+
+    do {
+      if ((maxCycles > 0 && cycles.size() > maxCycles) || (timeout > 0 && System.currentTimeMillis() > deadline)) {
+        budgetExceeded = true;
+        solver = null;
+        return;
+      }
+      cycleDetector = new CycleDetector<V>(graph, vertices, edgesToExclude);
+      cycleDetector.detectCyclesWithUpperLimit(MAX_CYCLES_TO_FIND_BY_ITERATION);
+      cycles.addAll(cycleDetector.getCycles());
+      solver = new MinimumFeedbackEdgeSetSolver(cycles);
+      edgesToExclude = solver.getEdges();
+    } while (!cycleDetector.getCycles().isEmpty());
+  }
+
+  public boolean isBudgetExceeded() {
+    return budgetExceeded;
+  }
+
+  public Set<Cycle> getCycles() {
+    checkResults();
+    return cycles;
+  }
+
+  public Set<Edge> getFeedbackEdgeSet() {
+    checkResults();
+    return solver.getEdges();
+  }
+
+  public int getWeightOfFeedbackEdgeSet() {
+    checkResults();
+    return solver.getWeightOfFeedbackEdgeSet();
+  }
+
+  private void checkResults() {
+    if (budgetExceeded) {
+      throw new IllegalStateException("Budget was exceeded, so results are not available");
+    }
+  }
+
+}
@@ -19,6 +19,11 @@
  */
 package org.sonar.plugins.java.bridges;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.SensorContext;
@@ -35,14 +40,24 @@ import org.sonar.api.utils.TimeProfiler;
 import org.sonar.graph.*;
 import org.sonar.java.JavaSquid;
 import org.sonar.java.checks.CycleBetweenPackagesCheck;
+import org.sonar.java.profiling.Profiler;
+import org.sonar.plugins.java.JavaSquidPlugin;
+import org.sonar.squid.api.AnalysisException;
 import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceCodeEdge;
 import org.sonar.squid.api.SourcePackage;
 import org.sonar.squid.api.SourceProject;
+import org.sonar.squid.indexer.QueryByType;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DesignBridge extends Bridge {
 
@@ -53,40 +68,83 @@ public class DesignBridge extends Bridge {
    */
   private DependencyIndex dependencyIndex = new DependencyIndex();
 
+  /*
+   * Designs of files of all packages, which are computed on first call of onPackage() and removed once saved.
+   */
+  private Map<SourceCode, FileDesign> fileDesigns;
+
+  private boolean sparseDsm = JavaSquidPlugin.SQUID_SPARSE_DSM_DEFAULT_VALUE;
+  private boolean fastPackageCycles = JavaSquidPlugin.SQUID_FAST_PACKAGE_CYCLES_DEFAULT_VALUE;
+  private int maxPackageCycles = JavaSquidPlugin.SQUID_MAX_PACKAGE_CYCLES_DEFAULT_VALUE;
+  private int packageCyclesTimeout = JavaSquidPlugin.SQUID_PACKAGE_CYCLES_TIMEOUT_DEFAULT_VALUE;
+
   protected DesignBridge() {
     super(true);
   }
 
   @Override
   public void onProject(SourceProject squidProject, Project sonarProject) {
+    Configuration configuration = sonarProject.getConfiguration();
+    sparseDsm = configuration.getBoolean(JavaSquidPlugin.SQUID_SPARSE_DSM_PROPERTY, JavaSquidPlugin.SQUID_SPARSE_DSM_DEFAULT_VALUE);
+    fastPackageCycles = configuration.getBoolean(JavaSquidPlugin.SQUID_FAST_PACKAGE_CYCLES_PROPERTY, JavaSquidPlugin.SQUID_FAST_PACKAGE_CYCLES_DEFAULT_VALUE);
+    maxPackageCycles = configuration.getInt(JavaSquidPlugin.SQUID_MAX_PACKAGE_CYCLES_PROPERTY, JavaSquidPlugin.SQUID_MAX_PACKAGE_CYCLES_DEFAULT_VALUE);
+    packageCyclesTimeout = configuration.getInt(JavaSquidPlugin.SQUID_PACKAGE_CYCLES_TIMEOUT_PROPERTY, JavaSquidPlugin.SQUID_PACKAGE_CYCLES_TIMEOUT_DEFAULT_VALUE);
     Set<SourceCode> squidPackages = squidProject.getChildren();
     if (squidPackages != null && !squidPackages.isEmpty()) {
       TimeProfiler profiler = new TimeProfiler(LOG).start("Package design analysis");
+      Profiler.Phase phase = squid.getProfiler().start("Package design analysis");
       LOG.debug("{} packages to analyze", squidPackages.size());
 
       savePackageDependencies(squidPackages);
 
-      IncrementalCyclesAndFESSolver<SourceCode> cyclesAndFESSolver = new IncrementalCyclesAndFESSolver<SourceCode>(squid, squidPackages);
-      LOG.debug("{} cycles", cyclesAndFESSolver.getCycles().size());
-
-      Set<Edge> feedbackEdges = cyclesAndFESSolver.getFeedbackEdgeSet();
+      int cycles;
+      Set<Edge> feedbackEdges;
+      int tangles;
+      BudgetedCyclesAndFESSolver<SourceCode> cyclesAndFESSolver = null;
+      if (!fastPackageCycles) {
+        cyclesAndFESSolver = new BudgetedCyclesAndFESSolver<SourceCode>(squid, squidPackages, maxPackageCycles, packageCyclesTimeout * 1000L);
+        if (cyclesAndFESSolver.isBudgetExceeded()) {
+          LOG.warn("Too many cycles between packages to enumerate, so fast detection of package cycles is used");
+        }
+      }
+      if (cyclesAndFESSolver != null && !cyclesAndFESSolver.isBudgetExceeded()) {
+        cycles = cyclesAndFESSolver.getCycles().size();
+        LOG.debug("{} cycles", cycles);
+        feedbackEdges = cyclesAndFESSolver.getFeedbackEdgeSet();
+        tangles = cyclesAndFESSolver.getWeightOfFeedbackEdgeSet();
+      } else {
+        FastFeedbackEdgeSetSolver<SourceCode> fastSolver = new FastFeedbackEdgeSetSolver<SourceCode>(squid, squidPackages);
+        // Cycles are not enumerated, so their number is unknown and not saved
+        cycles = -1;
+        LOG.info("{} groups of packages with cycles, the largest one contains {} packages", fastSolver.getComponents().size(), getLargestSize(fastSolver.getComponents()));
+        feedbackEdges = fastSolver.getFeedbackEdgeSet();
+        tangles = fastSolver.getWeightOfFeedbackEdgeSet();
+      }
       LOG.debug("{} feedback edges", feedbackEdges.size());
-      int tangles = cyclesAndFESSolver.getWeightOfFeedbackEdgeSet();
 
       saveViolations(feedbackEdges);
-      savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_CYCLES, cyclesAndFESSolver.getCycles().size());
+      savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_CYCLES, cycles);
       savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_FEEDBACK_EDGES, feedbackEdges.size());
       savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_TANGLES, tangles);
       savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_EDGES_WEIGHT, getEdgesWeight(squidPackages));
 
-      String dsmJson = serializeDsm(squid, squidPackages, feedbackEdges);
+      String dsmJson = serializeDsm(squidPackages, feedbackEdges);
       Measure dsmMeasure = new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson).setPersistenceMode(PersistenceMode.DATABASE);
       context.saveMeasure(sonarProject, dsmMeasure);
 
+      phase.stop();
       profiler.stop();
     }
   }
 
+  private static int getLargestSize(List<Set<SourceCode>> components) {
+    int result = 0;
+    for (Set<SourceCode> component : components) {
+      result = Math.max(result, component.size());
+    }
+    return result;
+  }
+
   private void savePositiveMeasure(Resource sonarResource, Metric metric, double value) {
     if (value >= 0.0) {
       context.saveMeasure(sonarResource, metric, value);
@@ -97,26 +155,105 @@ public class DesignBridge extends Bridge {
   public void onPackage(SourcePackage squidPackage, Resource sonarPackage) {
     Set<SourceCode> squidFiles = squidPackage.getChildren();
     if (squidFiles != null && !squidFiles.isEmpty()) {
+      if (fileDesigns == null) {
+        fileDesigns = analyzeFileDesigns();
+      }
+      FileDesign fileDesign = fileDesigns.remove(squidPackage);
+      Profiler.Phase phase = squid.getProfiler().start("File design saving");
 
       saveFileDependencies(squidFiles);
 
-      IncrementalCyclesAndFESSolver<SourceCode> cycleDetector = new IncrementalCyclesAndFESSolver<SourceCode>(squid, squidFiles);
-      Set<Cycle> cycles = cycleDetector.getCycles();
+      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_CYCLES, fileDesign.cycles);
+      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_FEEDBACK_EDGES, fileDesign.feedbackEdges);
+      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_TANGLES, fileDesign.tangles);
+      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_EDGES_WEIGHT, fileDesign.edgesWeight);
 
-      MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
-      Set<Edge> feedbackEdges = solver.getEdges();
-      int tangles = solver.getWeightOfFeedbackEdgeSet();
+      // Serialized only after saving of dependencies, because uses their ids
+      String dsmJson = DsmSerializer.serialize(fileDesign.dsm, dependencyIndex, resourceIndex, sparseDsm);
+      context.saveMeasure(sonarPackage, new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson));
 
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_CYCLES, cycles.size());
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_FEEDBACK_EDGES, feedbackEdges.size());
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_TANGLES, tangles);
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_EDGES_WEIGHT, getEdgesWeight(squidFiles));
+      phase.stop();
+    }
+  }
 
-      String dsmJson = serializeDsm(squid, squidFiles, feedbackEdges);
-      context.saveMeasure(sonarPackage, new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson));
+  /**
+   * Designs of files of different packages are independent, so computed concurrently, when allowed by {@link JavaSquid#getParallelism()}.
+   */
+  private Map<SourceCode, FileDesign> analyzeFileDesigns() {
+    Profiler.Phase phase = squid.getProfiler().start("File design analysis");
+    List<SourceCode> squidPackages = Lists.newArrayList();
+    for (SourceCode squidPackage : squid.search(new QueryByType(SourcePackage.class))) {
+      Set<SourceCode> squidFiles = squidPackage.getChildren();
+      if (squidFiles != null && !squidFiles.isEmpty()) {
+        squidPackages.add(squidPackage);
+      }
+    }
+    Map<SourceCode, FileDesign> result = Maps.newHashMap();
+    if (squid.getParallelism() > 1) {
+      analyzeFileDesignsConcurrently(squidPackages, result);
+    } else {
+      for (SourceCode squidPackage : squidPackages) {
+        result.put(squidPackage, analyzeFileDesign(squidPackage.getChildren()));
+      }
+    }
+    phase.stop();
+    return result;
+  }
+
+  private void analyzeFileDesignsConcurrently(List<SourceCode> squidPackages, Map<SourceCode, FileDesign> result) {
+    ExecutorService executor = Executors.newFixedThreadPool(squid.getParallelism(), new ThreadFactoryBuilder()
+        .setNameFormat("java-squid-design-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      List<Future<FileDesign>> futures = Lists.newArrayList();
+      for (final SourceCode squidPackage : squidPackages) {
+        futures.add(executor.submit(new Callable<FileDesign>() {
+          public FileDesign call() {
+            return analyzeFileDesign(squidPackage.getChildren());
+          }
+        }));
+      }
+      for (int i = 0; i < squidPackages.size(); i++) {
+        result.put(squidPackages.get(i), futures.get(i).get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Interrupted while analyzing design of files", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
     }
   }
 
+  /**
+   * Doesn't modify anything, so can be executed concurrently for different packages.
+   */
+  private FileDesign analyzeFileDesign(Set<SourceCode> squidFiles) {
+    IncrementalCyclesAndFESSolver<SourceCode> cycleDetector = new IncrementalCyclesAndFESSolver<SourceCode>(squid, squidFiles);
+    Set<Cycle> cycles = cycleDetector.getCycles();
+
+    MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
+    Set<Edge> feedbackEdges = solver.getEdges();
+
+    FileDesign fileDesign = new FileDesign();
+    fileDesign.cycles = cycles.size();
+    fileDesign.feedbackEdges = feedbackEdges.size();
+    fileDesign.tangles = solver.getWeightOfFeedbackEdgeSet();
+    fileDesign.edgesWeight = getEdgesWeight(squidFiles);
+    fileDesign.dsm = createDsm(squidFiles, feedbackEdges);
+    return fileDesign;
+  }
+
+  private static final class FileDesign {
+    int cycles;
+    int feedbackEdges;
+    int tangles;
+    double edgesWeight;
+    Dsm<SourceCode> dsm;
+  }
+
   private double getEdgesWeight(Collection<SourceCode> sourceCodes) {
     List<SourceCodeEdge> edges = squid.getEdges(sourceCodes);
     double total = 0.0;
@@ -126,10 +263,14 @@ public class DesignBridge extends Bridge {
     return total;
   }
 
-  private String serializeDsm(JavaSquid squid, Set<SourceCode> squidSources, Set<Edge> feedbackEdges) {
+  private String serializeDsm(Set<SourceCode> squidSources, Set<Edge> feedbackEdges) {
+    return DsmSerializer.serialize(createDsm(squidSources, feedbackEdges), dependencyIndex, resourceIndex, sparseDsm);
+  }
+
+  private Dsm<SourceCode> createDsm(Set<SourceCode> squidSources, Set<Edge> feedbackEdges) {
     Dsm<SourceCode> dsm = new Dsm<SourceCode>(squid, squidSources, feedbackEdges);
     DsmTopologicalSorter.sort(dsm);
-    return DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex);
+    return dsm;
   }
 
   /**
@@ -19,78 +19,158 @@
  */
 package org.sonar.plugins.java.bridges;
 
+import com.google.common.base.Throwables;
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.sonar.api.resources.Resource;
 import org.sonar.graph.Dsm;
 import org.sonar.graph.DsmCell;
 import org.sonar.squid.api.SourceCode;
 
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes dependency matrix as JSON array of rows, one for each vertex:
+ * <pre>
+ * {"i":resourceId,"n":"name","q":"qualifier","v":[{},{"i":dependencyId,"w":weight},...]}
+ * </pre>
+ * In dense format (used by default) array "v" contains one cell for each column, so size of output is quadratic to dimension of matrix.
+ * In sparse format array "v" is replaced by array "c", which contains only non-empty cells along with their column:
+ * <pre>
+ * {"i":resourceId,"n":"name","q":"qualifier","c":[{"x":column,"i":dependencyId,"w":weight},...]}
+ * </pre>
+ */
 public final class DsmSerializer {
 
-  private Dsm dsm;
-  private StringBuilder json;
-  private DependencyIndex dependencyIndex;
-  private ResourceIndex resourceIndex;
+  private static final int ROW_MIN_LENGTH = 32;
+  private static final int MAX_ESTIMATED_LENGTH = 64 * 1024 * 1024;
+
+  private final Dsm dsm;
+  private final Writer json;
+  private final boolean sparse;
+  private final DependencyIndex dependencyIndex;
+  private final ResourceIndex resourceIndex;
 
-  private DsmSerializer(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex) {
+  private DsmSerializer(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex, Writer json, boolean sparse) {
     this.dsm = dsm;
-    this.json = new StringBuilder();
+    this.json = json;
+    this.sparse = sparse;
     this.dependencyIndex = dependencyIndex;
     this.resourceIndex = resourceIndex;
   }
 
-  private String serialize() {
-    json.append('[');
+  private void serialize() throws IOException {
+    json.write('[');
     serializeRows();
-    json.append(']');
-    return json.toString();
+    json.write(']');
   }
 
-  private void serializeRows() {
+  private void serializeRows() throws IOException {
     for (int y = 0; y < dsm.getDimension(); y++) {
       if (y > 0) {
-        json.append(',');
+        json.write(',');
       }
       serializeRow(y);
     }
   }
 
-  private void serializeRow(int y) {
+  private void serializeRow(int y) throws IOException {
     SourceCode squidResource = (SourceCode) dsm.getVertex(y);
     Resource sonarResource = resourceIndex.get(squidResource);
 
-    json.append("{");
+    json.write('{');
     if (sonarResource != null) {
-      json.append("\"i\":");
-      json.append(sonarResource.getId());
-      json.append(",\"n\":\"");
-      json.append(sonarResource.getName());
-      json.append("\",\"q\":\"");
-      json.append(sonarResource.getQualifier());
-      json.append("\",\"v\":[");
-      for (int x = 0; x < dsm.getDimension(); x++) {
-        if (x > 0) {
-          json.append(',');
-        }
-        serializeCell(y, x);
+      json.write("\"i\":");
+      json.write(String.valueOf(sonarResource.getId()));
+      json.write(",\"n\":\"");
+      json.write(String.valueOf(sonarResource.getName()));
+      json.write("\",\"q\":\"");
+      json.write(String.valueOf(sonarResource.getQualifier()));
+      if (sparse) {
+        json.write("\",\"c\":[");
+        serializeNonEmptyCells(y);
+      } else {
+        json.write("\",\"v\":[");
+        serializeCells(y);
       }
-      json.append("]");
+      json.write(']');
     }
-    json.append("}");
+    json.write('}');
   }
 
-  private void serializeCell(int y, int x) {
-    DsmCell cell = dsm.getCell(x, y);
-    json.append('{');
-    if (cell.getEdge() != null && cell.getWeight() > 0) {
-      json.append("\"i\":");
-      json.append(dependencyIndex.get(cell.getEdge()).getId());
-      json.append(",\"w\":");
-      json.append(cell.getWeight());
+  private void serializeCells(int y) throws IOException {
+    for (int x = 0; x < dsm.getDimension(); x++) {
+      if (x > 0) {
+        json.write(',');
+      }
+      DsmCell cell = dsm.getCell(x, y);
+      json.write('{');
+      if (isNotEmpty(cell)) {
+        serializeCell(cell);
+      }
+      json.write('}');
+    }
+  }
+
+  private void serializeNonEmptyCells(int y) throws IOException {
+    boolean first = true;
+    for (int x = 0; x < dsm.getDimension(); x++) {
+      DsmCell cell = dsm.getCell(x, y);
+      if (isNotEmpty(cell)) {
+        if (!first) {
+          json.write(',');
+        }
+        first = false;
+        json.write("{\"x\":");
+        json.write(String.valueOf(x));
+        json.write(',');
+        serializeCell(cell);
+        json.write('}');
+      }
     }
-    json.append('}');
+  }
+
+  private static boolean isNotEmpty(DsmCell cell) {
+    return cell.getEdge() != null && cell.getWeight() > 0;
+  }
+
+  private void serializeCell(DsmCell cell) throws IOException {
+    json.write("\"i\":");
+    json.write(String.valueOf(dependencyIndex.get(cell.getEdge()).getId()));
+    json.write(",\"w\":");
+    json.write(String.valueOf(cell.getWeight()));
   }
 
   public static String serialize(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex) {
-    return new DsmSerializer(dsm, dependencyIndex, resourceIndex).serialize();
+    return serialize(dsm, dependencyIndex, resourceIndex, false);
+  }
+
+  public static String serialize(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex, boolean sparse) {
+    StringBuilderWriter writer = new StringBuilderWriter(estimateLength(dsm, sparse));
+    try {
+      serialize(dsm, dependencyIndex, resourceIndex, writer, sparse);
+    } catch (IOException e) {
+      // never happens with StringBuilderWriter
+      throw Throwables.propagate(e);
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Lower bound of length of JSON: each row has at least its id, name and qualifier, and in dense format each cell takes at least "{},".
+   */
+  private static int estimateLength(Dsm<SourceCode> dsm, boolean sparse) {
+    long dimension = dsm.getDimension();
+    long length = dimension * ROW_MIN_LENGTH + (sparse ? 0 : dimension * dimension * 3);
+    return (int) Math.min(length, MAX_ESTIMATED_LENGTH);
+  }
+
+  /**
+   * Writes matrix to given writer. Unlike other methods, which return whole JSON as string,
+   * this one allows caller to write JSON directly to its destination.
+   */
+  public static void serialize(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex, Writer writer, boolean sparse)
+      throws IOException {
+    new DsmSerializer(dsm, dependencyIndex, resourceIndex, writer, sparse).serialize();
   }
 }
@@ -0,0 +1,299 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.sonar.graph.DirectedGraphAccessor;
+import org.sonar.graph.Edge;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Approximation of minimum feedback edge set, which doesn't enumerate cycles and so takes polynomial time even for very tangled graphs,
+ * unlike {@link org.sonar.graph.IncrementalCyclesAndFESSolver}.
+ * Cycles can exist only inside of strongly connected components, which are found by Tarjan's algorithm.
+ * Vertices of each component are ordered by greedy heuristic of Eades, Lin and Smyth (weighted by weights of edges),
+ * and edges, which go backward in this order, form feedback edge set.
+ */
+public class FastFeedbackEdgeSetSolver<V> {
+
+  /**
+   * Orders candidates, which are pairs of difference between weights of outgoing and incoming edges and of vertex,
+   * by decreasing difference and then by vertex.
+   */
+  private static final Comparator<long[]> CANDIDATES_COMPARATOR = new Comparator<long[]>() {
+    public int compare(long[] o1, long[] o2) {
+      if (o1[0] != o2[0]) {
+        return o1[0] > o2[0] ? -1 : 1;
+      }
+      return o1[1] < o2[1] ? -1 : (o1[1] == o2[1] ? 0 : 1);
+    }
+  };
+
+  private final DirectedGraphAccessor<V, ? extends Edge<V>> graph;
+  private final List<V> vertices;
+  private final Map<V, Integer> ids = Maps.newHashMap();
+
+  private final List<Set<V>> components = Lists.newArrayList();
+  private final Set<Edge> feedbackEdges = Sets.newHashSet();
+  private int weightOfFeedbackEdgeSet;
+
+  public FastFeedbackEdgeSetSolver(DirectedGraphAccessor<V, ? extends Edge<V>> graph, Collection<V> vertices) {
+    this.graph = graph;
+    this.vertices = Lists.newArrayList(vertices);
+    for (int i = 0; i < this.vertices.size(); i++) {
+      ids.put(this.vertices.get(i), i);
+    }
+    int[][] successors = new int[this.vertices.size()][];
+    for (int i = 0; i < successors.length; i++) {
+      successors[i] = getSuccessors(this.vertices.get(i));
+    }
+    for (int[] component : findStronglyConnectedComponents(successors)) {
+      if (component.length > 1) {
+        Set<V> componentVertices = Sets.newHashSet();
+        for (int id : component) {
+          componentVertices.add(this.vertices.get(id));
+        }
+        components.add(componentVertices);
+        breakCycles(component);
+      }
+    }
+  }
+
+  private int[] getSuccessors(V vertex) {
+    Collection<? extends Edge<V>> edges = graph.getOutgoingEdges(vertex);
+    int[] result = new int[edges.size()];
+    int size = 0;
+    for (Edge<V> edge : edges) {
+      Integer to = ids.get(edge.getTo());
+      if (to != null) {
+        result[size++] = to;
+      }
+    }
+    return size == result.length ? result : copyOf(result, size);
+  }
+
+  private static int[] copyOf(int[] array, int length) {
+    int[] result = new int[length];
+    System.arraycopy(array, 0, result, 0, length);
+    return result;
+  }
+
+  /**
+   * Iterative version of Tarjan's algorithm, so that depth of graph is not limited by size of stack.
+   */
+  private static List<int[]> findStronglyConnectedComponents(int[][] successors) {
+    int size = successors.length;
+    int[] index = new int[size];
+    int[] lowLink = new int[size];
+    boolean[] onStack = new boolean[size];
+    int[] stack = new int[size];
+    int stackSize = 0;
+    // Vertices, which are being visited, and position of next successor to visit for each of them
+    int[] callStack = new int[size];
+    int[] nextSuccessor = new int[size];
+    int nextIndex = 1;
+    List<int[]> result = Lists.newArrayList();
+
+    for (int root = 0; root < size; root++) {
+      if (index[root] != 0) {
+        continue;
+      }
+      int depth = 0;
+      callStack[0] = root;
+      nextSuccessor[0] = 0;
+      index[root] = nextIndex;
+      lowLink[root] = nextIndex;
+      nextIndex++;
+      stack[stackSize++] = root;
+      onStack[root] = true;
+      while (depth >= 0) {
+        int vertex = callStack[depth];
+        if (nextSuccessor[depth] < successors[vertex].length) {
+          int successor = successors[vertex][nextSuccessor[depth]++];
+          if (index[successor] == 0) {
+            index[successor] = nextIndex;
+            lowLink[successor] = nextIndex;
+            nextIndex++;
+            stack[stackSize++] = successor;
+            onStack[successor] = true;
+            depth++;
+            callStack[depth] = successor;
+            nextSuccessor[depth] = 0;
+          } else if (onStack[successor]) {
+            lowLink[vertex] = Math.min(lowLink[vertex], index[successor]);
+          }
+        } else {
+          if (lowLink[vertex] == index[vertex]) {
+            int start = stackSize;
+            do {
+              start--;
+              onStack[stack[start]] = false;
+            } while (stack[start] != vertex);
+            result.add(copyOfRange(stack, start, stackSize));
+            stackSize = start;
+          }
+          depth--;
+          if (depth >= 0) {
+            int parent = callStack[depth];
+            lowLink[parent] = Math.min(lowLink[parent], lowLink[vertex]);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static int[] copyOfRange(int[] array, int from, int to) {
+    int[] result = new int[to - from];
+    System.arraycopy(array, from, result, 0, result.length);
+    return result;
+  }
+
+  /**
+   * Vertices without incoming edges are placed at the beginning, vertices without outgoing edges are placed at the end,
+   * and when there are no such vertices, vertex with greatest difference between weights of outgoing and incoming edges
+   * is placed at the beginning.
+   */
+  private void breakCycles(int[] component) {
+    int size = component.length;
+    Map<V, Integer> positions = Maps.newHashMap();
+    for (int i = 0; i < size; i++) {
+      positions.put(vertices.get(component[i]), i);
+    }
+    List<List<Edge<V>>> outgoing = Lists.newArrayList();
+    List<List<Edge<V>>> incoming = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      outgoing.add(Lists.<Edge<V>> newArrayList());
+      incoming.add(Lists.<Edge<V>> newArrayList());
+    }
+    int[] inDegrees = new int[size];
+    int[] outDegrees = new int[size];
+    long[] deltas = new long[size];
+    for (int i = 0; i < size; i++) {
+      for (Edge<V> edge : graph.getOutgoingEdges(vertices.get(component[i]))) {
+        Integer to = positions.get(edge.getTo());
+        if (to != null) {
+          outgoing.get(i).add(edge);
+          incoming.get(to).add(edge);
+          outDegrees[i]++;
+          inDegrees[to]++;
+          deltas[i] += edge.getWeight();
+          deltas[to] -= edge.getWeight();
+        }
+      }
+    }
+
+    int[] order = new int[size];
+    int head = 0;
+    int tail = size;
+    boolean[] removed = new boolean[size];
+    int[] sinks = new int[size];
+    int sinksCount = 0;
+    int[] sources = new int[size];
+    int sourcesCount = 0;
+    PriorityQueue<long[]> candidates = new PriorityQueue<long[]>(size, CANDIDATES_COMPARATOR);
+    for (int i = 0; i < size; i++) {
+      candidates.add(new long[] {deltas[i], i});
+    }
+    while (head < tail) {
+      int vertex;
+      if (sinksCount > 0) {
+        vertex = sinks[--sinksCount];
+        if (removed[vertex]) {
+          continue;
+        }
+        order[--tail] = vertex;
+      } else if (sourcesCount > 0) {
+        vertex = sources[--sourcesCount];
+        if (removed[vertex]) {
+          continue;
+        }
+        order[head++] = vertex;
+      } else {
+        long[] candidate = candidates.poll();
+        vertex = (int) candidate[1];
+        // Queue may contain outdated entries, because entries are added, but not removed, when difference of weights changes
+        if (removed[vertex] || candidate[0] != deltas[vertex]) {
+          continue;
+        }
+        order[head++] = vertex;
+      }
+      removed[vertex] = true;
+      for (Edge<V> edge : outgoing.get(vertex)) {
+        int to = positions.get(edge.getTo());
+        if (!removed[to]) {
+          deltas[to] += edge.getWeight();
+          candidates.add(new long[] {deltas[to], to});
+          if (--inDegrees[to] == 0) {
+            sources[sourcesCount++] = to;
+          }
+        }
+      }
+      for (Edge<V> edge : incoming.get(vertex)) {
+        int from = positions.get(edge.getFrom());
+        if (!removed[from]) {
+          deltas[from] -= edge.getWeight();
+          candidates.add(new long[] {deltas[from], from});
+          if (--outDegrees[from] == 0) {
+            sinks[sinksCount++] = from;
+          }
+        }
+      }
+    }
+
+    int[] ranks = new int[size];
+    for (int i = 0; i < size; i++) {
+      ranks[order[i]] = i;
+    }
+    for (int i = 0; i < size; i++) {
+      for (Edge<V> edge : outgoing.get(i)) {
+        if (ranks[positions.get(edge.getTo())] < ranks[i]) {
+          feedbackEdges.add(edge);
+          weightOfFeedbackEdgeSet += edge.getWeight();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return strongly connected components, which contain more than one vertex, i.e. groups of vertices involved in cycles
+   */
+  public List<Set<V>> getComponents() {
+    return Collections.unmodifiableList(components);
+  }
+
+  public Set<Edge> getFeedbackEdgeSet() {
+    return Collections.unmodifiableSet(feedbackEdges);
+  }
+
+  public int getWeightOfFeedbackEdgeSet() {
+    return weightOfFeedbackEdgeSet;
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import org.junit.Test;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.graph.IncrementalCyclesAndFESSolver;
+import org.sonar.graph.StringEdge;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BudgetedCyclesAndFESSolverTest {
+
+  @Test
+  public void should_give_same_results_as_incremental_solver() {
+    DirectedGraph<String, StringEdge> graph = createTangledGraph();
+    IncrementalCyclesAndFESSolver<String> expected = new IncrementalCyclesAndFESSolver<String>(graph, graph.getVertices());
+    BudgetedCyclesAndFESSolver<String> solver = new BudgetedCyclesAndFESSolver<String>(graph, graph.getVertices(), 0, 0);
+
+    assertThat(solver.isBudgetExceeded()).isFalse();
+    assertThat(solver.getCycles()).isEqualTo(expected.getCycles());
+    assertThat(solver.getFeedbackEdgeSet()).isEqualTo(expected.getFeedbackEdgeSet());
+    assertThat(solver.getWeightOfFeedbackEdgeSet()).isEqualTo(expected.getWeightOfFeedbackEdgeSet());
+  }
+
+  @Test
+  public void should_stop_when_too_many_cycles() {
+    DirectedGraph<String, StringEdge> graph = createTangledGraph();
+    BudgetedCyclesAndFESSolver<String> solver = new BudgetedCyclesAndFESSolver<String>(graph, graph.getVertices(), 1, 0);
+
+    assertThat(solver.isBudgetExceeded()).isTrue();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_not_give_results_when_budget_exceeded() {
+    DirectedGraph<String, StringEdge> graph = createTangledGraph();
+    new BudgetedCyclesAndFESSolver<String>(graph, graph.getVertices(), 1, 0).getFeedbackEdgeSet();
+  }
+
+  private static DirectedGraph<String, StringEdge> createTangledGraph() {
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    int size = 8;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (i != j && (i + 2 * j) % 3 == 0) {
+          graph.addEdge("P" + i, "P" + j, 1 + (i * j) % 4);
+        }
+      }
+    }
+    return graph;
+  }
+
+}
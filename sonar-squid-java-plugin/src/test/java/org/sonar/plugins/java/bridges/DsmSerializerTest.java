@@ -0,0 +1,102 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.resources.JavaPackage;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.graph.Dsm;
+import org.sonar.graph.Edge;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeEdge;
+import org.sonar.squid.api.SourceCodeEdgeUsage;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourcePackage;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DsmSerializerTest {
+
+  private Dsm<SourceCode> dsm;
+  private DependencyIndex dependencyIndex = new DependencyIndex();
+  private ResourceIndex resourceIndex = new ResourceIndex();
+
+  @Before
+  public void setUp() {
+    SourceCode first = createPackage("first", 1);
+    SourceCode second = createPackage("second", 2);
+    SourceCode third = createPackage("third", 3);
+    DirectedGraph<SourceCode, SourceCodeEdge> graph = new DirectedGraph<SourceCode, SourceCodeEdge>();
+    graph.addEdge(createEdge(first, second, 2, 10L));
+    graph.addEdge(createEdge(second, third, 1, 20L));
+    dsm = new Dsm<SourceCode>(graph, Arrays.asList(first, second, third), Collections.<Edge> emptySet());
+  }
+
+  @Test
+  public void should_serialize_all_cells() {
+    assertThat(DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex)).isEqualTo("["
+      + "{\"i\":1,\"n\":\"first\",\"q\":\"PAC\",\"v\":[{},{},{}]},"
+      + "{\"i\":2,\"n\":\"second\",\"q\":\"PAC\",\"v\":[{\"i\":10,\"w\":2},{},{}]},"
+      + "{\"i\":3,\"n\":\"third\",\"q\":\"PAC\",\"v\":[{},{\"i\":20,\"w\":1},{}]}"
+      + "]");
+  }
+
+  @Test
+  public void should_serialize_only_non_empty_cells_in_sparse_format() {
+    assertThat(DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex, true)).isEqualTo("["
+      + "{\"i\":1,\"n\":\"first\",\"q\":\"PAC\",\"c\":[]},"
+      + "{\"i\":2,\"n\":\"second\",\"q\":\"PAC\",\"c\":[{\"x\":0,\"i\":10,\"w\":2}]},"
+      + "{\"i\":3,\"n\":\"third\",\"q\":\"PAC\",\"c\":[{\"x\":1,\"i\":20,\"w\":1}]}"
+      + "]");
+  }
+
+  @Test
+  public void should_write_to_writer() throws Exception {
+    StringWriter writer = new StringWriter();
+    DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex, writer, true);
+    assertThat(writer.toString()).isEqualTo(DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex, true));
+  }
+
+  private SourceCode createPackage(String key, int id) {
+    SourceCode squidPackage = new SourcePackage(key);
+    JavaPackage sonarPackage = new JavaPackage(key);
+    sonarPackage.setId(id);
+    resourceIndex.put(squidPackage, sonarPackage);
+    return squidPackage;
+  }
+
+  private SourceCodeEdge createEdge(SourceCode from, SourceCode to, int weight, long dependencyId) {
+    SourceCodeEdge edge = new SourceCodeEdge(from, to, SourceCodeEdgeUsage.USES);
+    for (int i = 0; i < weight; i++) {
+      edge.addRootEdge(new SourceCodeEdge(new SourceFile(from.getKey() + "/File" + i), to, SourceCodeEdgeUsage.USES));
+    }
+    Dependency dependency = new Dependency(resourceIndex.get(from), resourceIndex.get(to));
+    dependency.setId(dependencyId);
+    dependencyIndex.put(edge, dependency);
+    return edge;
+  }
+
+}
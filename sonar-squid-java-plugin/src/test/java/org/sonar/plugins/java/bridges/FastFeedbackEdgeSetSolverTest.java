@@ -0,0 +1,93 @@
+/*
+ * Sonar Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.sonar.graph.CycleDetector;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.graph.StringEdge;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FastFeedbackEdgeSetSolverTest {
+
+  @Test
+  public void should_find_nothing_in_acyclic_graph() {
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    graph.addEdge("A", "B").addEdge("B", "C").addEdge("A", "C");
+    FastFeedbackEdgeSetSolver<String> solver = new FastFeedbackEdgeSetSolver<String>(graph, graph.getVertices());
+
+    assertThat(solver.getComponents()).isEmpty();
+    assertThat(solver.getFeedbackEdgeSet()).isEmpty();
+    assertThat(solver.getWeightOfFeedbackEdgeSet()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_remove_lightest_edges_of_components() {
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    graph.addEdge("A", "B", 5).addEdge("B", "A", 1);
+    graph.addEdge("B", "C", 1);
+    graph.addEdge("C", "D", 3).addEdge("D", "E", 3).addEdge("E", "C", 2);
+    FastFeedbackEdgeSetSolver<String> solver = new FastFeedbackEdgeSetSolver<String>(graph, graph.getVertices());
+
+    assertThat(solver.getComponents()).hasSize(2);
+    assertThat(solver.getComponents()).contains(Sets.newHashSet("A", "B"), Sets.newHashSet("C", "D", "E"));
+    assertThat(solver.getFeedbackEdgeSet()).containsOnly(graph.getEdge("B", "A"), graph.getEdge("E", "C"));
+    assertThat(solver.getWeightOfFeedbackEdgeSet()).isEqualTo(3);
+  }
+
+  @Test
+  public void should_break_all_cycles_of_tangled_graph() {
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    int size = 30;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (i != j && (i * 7 + j * 3) % 5 == 0) {
+          graph.addEdge("P" + i, "P" + j, 1 + (i + j) % 3);
+        }
+      }
+    }
+    FastFeedbackEdgeSetSolver<String> solver = new FastFeedbackEdgeSetSolver<String>(graph, graph.getVertices());
+
+    assertThat(solver.getComponents()).isNotEmpty();
+    assertThat(new CycleDetector<String>(graph, graph.getVertices(), solver.getFeedbackEdgeSet()).isAcyclicGraph()).isTrue();
+  }
+
+  @Test
+  public void should_not_be_limited_by_depth_of_graph() {
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    int size = 100000;
+    for (int i = 1; i < size; i++) {
+      graph.addEdge("P" + (i - 1), "P" + i);
+    }
+    graph.addEdge("P" + (size - 1), "P0");
+    List<String> vertices = Lists.newArrayList(graph.getVertices());
+    FastFeedbackEdgeSetSolver<String> solver = new FastFeedbackEdgeSetSolver<String>(graph, vertices);
+
+    assertThat(solver.getComponents()).hasSize(1);
+    assertThat(solver.getComponents().get(0)).hasSize(size);
+    assertThat(solver.getFeedbackEdgeSet()).hasSize(1);
+  }
+
+}